@@ -4,7 +4,6 @@ plugins {
 
 dependencies {
     implementation(project(":common"))
-    implementation("com.rabbitmq:amqp-client:5.22.0")
 }
 
 application {
@@ -1,26 +1,35 @@
 package itmo.maga.javaparallel.lab2.aggregator;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.Connection;
-import com.rabbitmq.client.ConnectionFactory;
-import com.rabbitmq.client.DeliverCallback;
 import itmo.maga.javaparallel.lab2.common.FinalJobResult;
+import itmo.maga.javaparallel.lab2.common.MessageTransport;
+import itmo.maga.javaparallel.lab2.common.NameReplacer;
+import itmo.maga.javaparallel.lab2.common.PrefetchController;
+import itmo.maga.javaparallel.lab2.common.RabbitTransport;
+import itmo.maga.javaparallel.lab2.common.ResultBatch;
 import itmo.maga.javaparallel.lab2.common.ResultMessage;
+import itmo.maga.javaparallel.lab2.common.ResultStore;
+import itmo.maga.javaparallel.lab2.common.SectionStore;
+import itmo.maga.javaparallel.lab2.common.SentenceRun;
+import itmo.maga.javaparallel.lab2.common.SentenceSplitter;
+import itmo.maga.javaparallel.lab2.common.TaskMessage;
+import itmo.maga.javaparallel.lab2.common.TextEdits;
+import itmo.maga.javaparallel.lab2.common.WordCounter;
+import itmo.maga.javaparallel.lab2.common.WordFrequencyTable;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
-import java.util.stream.Collectors;
 
 public class AggregatorApp {
 
@@ -32,134 +41,215 @@ public class AggregatorApp {
     private static final String RABBIT_USERNAME = "labuser";
     private static final String RABBIT_PASSWORD = "labpassword";
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-
     private static final Map<String, JobAggregation> JOBS = new ConcurrentHashMap<>();
 
-    public static void main(String[] args) {
-        ConnectionFactory factory = new ConnectionFactory();
-        factory.setHost(RABBIT_HOST);
-        factory.setPort(RABBIT_PORT);
-        factory.setUsername(RABBIT_USERNAME);
-        factory.setPassword(RABBIT_PASSWORD);
+    // Между секциями в итоговом тексте, если секция начинает параграф; секция, отрезанная посреди
+    // параграфа, приклеивается по исходным пробелам (ResultMessage.continuationSeparator)
+    private static final String SECTION_SEPARATOR = System.lineSeparator() + System.lineSeparator();
+
+    // Общий с продюсером каталог ResultStore; не задан — результаты не сохраняются
+    private static final String RESULT_STORE_DIR = System.getProperty("lab2.resultStore.dir");
+
+    // Тот же каталог, что у продюсера: из него берутся исходники секций, пришедших правками
+    private static final String SECTION_STORE_DIR = System.getProperty("lab2.sectionStore.dir");
 
+    private static ResultStore resultStore;
+    private static SectionStore sectionStore;
+
+    public static void main(String[] args) {
         try {
-            Connection connection = factory.newConnection();
-            Channel channel = connection.createChannel();
+            start(new RabbitTransport(rabbitSettings()));
+        } catch (IOException | TimeoutException e) {
+            System.err.println("Aggregator failed with unexpected error");
+            e.printStackTrace(System.err);
+        }
+    }
 
-            channel.queueDeclare(RESULT_QUEUE_NAME, true, false, false, null);
-            channel.queueDeclare(FINAL_RESULT_QUEUE_NAME, true, false, false, null);
-            channel.basicQos(1);
+    /**
+     * Подписывает агрегатор на очередь результатов; итог задания уходит ответом в очередь итогов.
+     */
+    public static void start(MessageTransport transport) throws IOException {
+        if (RESULT_STORE_DIR != null) {
+            resultStore = new ResultStore(Paths.get(RESULT_STORE_DIR));
+            System.out.println("Aggregator: using result store " + resultStore.getRoot().toAbsolutePath());
+        }
+        if (SECTION_STORE_DIR != null) {
+            sectionStore = new SectionStore(Paths.get(SECTION_STORE_DIR));
+            sectionStore.registerReader();
+            System.out.println("Aggregator: using section store " + sectionStore.getRoot().toAbsolutePath());
+        }
 
-            String aggregatorId = buildAggregatorId();
+        transport.declareQueue(RESULT_QUEUE_NAME, 0);
+        transport.declareQueue(FINAL_RESULT_QUEUE_NAME, 0);
 
-            System.out.println(
-                    "Aggregator " + aggregatorId +
-                            " started. Waiting for messages from '" + RESULT_QUEUE_NAME + "'..."
-            );
+        String aggregatorId = buildAggregatorId();
+        PrefetchController prefetch = PrefetchController.configured("lab2.aggregator", RESULT_QUEUE_NAME, 1);
 
-            DeliverCallback deliverCallback = (consumerTag, delivery) -> {
-                long deliveryTag = delivery.getEnvelope().getDeliveryTag();
-                try {
-                    byte[] body = delivery.getBody();
-                    ResultMessage result = OBJECT_MAPPER.readValue(body, ResultMessage.class);
+        System.out.println(
+                "Aggregator " + aggregatorId +
+                        " started. Waiting for messages from '" + RESULT_QUEUE_NAME + "' (" + prefetch.describe() +
+                        ", transport: " + transport.describe() + ")..."
+        );
 
-                    if (result == null) {
-                        System.err.println("Aggregator: received null ResultMessage, skipping");
-                        channel.basicAck(deliveryTag, false);
-                        return;
-                    }
+        // Состояние заданий не потокобезопасно: один потребитель обрабатывает сообщения по одному,
+        // prefetch только держит следующие наготове
+        transport.consume(RESULT_QUEUE_NAME, ResultBatch.class, 1, prefetch, null, AggregatorApp::handleBatch);
+    }
 
-                    String jobId = result.getJobId();
-                    if (jobId == null || jobId.isEmpty()) {
-                        System.err.println("Aggregator: received ResultMessage with empty jobId, skipping");
-                        channel.basicAck(deliveryTag, false);
-                        return;
-                    }
+    private static RabbitTransport.Settings rabbitSettings() {
+        RabbitTransport.Settings settings = new RabbitTransport.Settings();
+        settings.setHost(RABBIT_HOST);
+        settings.setPort(RABBIT_PORT);
+        settings.setUsername(RABBIT_USERNAME);
+        settings.setPassword(RABBIT_PASSWORD);
+        return settings;
+    }
 
-                    int totalSections = result.getTotalSections();
-                    if (totalSections <= 0) {
-                        System.err.println(
-                                "Aggregator: received ResultMessage with non-positive totalSections for job " + jobId
-                        );
-                        channel.basicAck(deliveryTag, false);
-                        return;
-                    }
+    private static MessageTransport.Reply handleBatch(ResultBatch batch) throws IOException {
+        if (batch == null || batch.getResults().isEmpty()) {
+            System.err.println("Aggregator: received empty ResultBatch, skipping");
+            return null;
+        }
+
+        // Пакет относится к одному заданию, поэтому завершает не больше одного
+        FinalJobResult finalResult = null;
+        for (ResultMessage result : batch.getResults()) {
+            FinalJobResult completed = aggregateResult(result);
+            if (completed != null) {
+                finalResult = completed;
+            }
+        }
+        return finalResult != null ? new MessageTransport.Reply(FINAL_RESULT_QUEUE_NAME, finalResult) : null;
+    }
+
+    // Возвращает итог задания, если этот результат его завершил
+    private static FinalJobResult aggregateResult(ResultMessage result) throws IOException {
+        if (result == null) {
+            System.err.println("Aggregator: received null ResultMessage, skipping");
+            return null;
+        }
+
+        String jobId = result.getJobId();
+        if (jobId == null || jobId.isEmpty()) {
+            System.err.println("Aggregator: received ResultMessage with empty jobId, skipping");
+            return null;
+        }
+
+        // Ответ воркера продюсеру, который ждёт его в хранилище перед отправкой секций
+        if (result.isVersionProbe()) {
+            if (resultStore != null && result.getAnalysisVersion() != null) {
+                resultStore.saveProbeReply(jobId, result.getAnalysisVersion());
+            }
+            return null;
+        }
 
-                    JobAggregation job = JOBS.computeIfAbsent(
-                            jobId,
-                            id -> new JobAggregation(id, totalSections)
-                    );
+        // totalSections = 0 — число секций ещё неизвестно (придёт с последней секцией)
+        int totalSections = result.getTotalSections();
+        if (totalSections < 0) {
+            System.err.println(
+                    "Aggregator: received ResultMessage with negative totalSections for job " + jobId
+            );
+            return null;
+        }
 
-                    job.addSectionResult(result);
+        if (result.isFromCache()) {
+            ResultMessage cached;
+            try {
+                cached = loadCachedResult(result);
+            } catch (IOException e) {
+                return failSection(result, "stored result for hash " + result.getContentHash() +
+                        " is unreadable: " + e.getMessage());
+            }
+            if (cached == null) {
+                return failSection(result, resultStore == null
+                        ? "the producer reused a stored result, but lab2.resultStore.dir is not set for the aggregator"
+                        : "no stored result for hash " + result.getContentHash() + " in " +
+                        resultStore.getRoot().toAbsolutePath() + " (lab2.resultStore.dir must match the producer's)");
+            }
+            result = cached;
+        } else if (resultStore != null && ResultStore.keyFor(result) != null) {
+            resultStore.save(ResultStore.keyFor(result), result);
+        }
 
-                    if (job.isComplete()) {
-                        FinalJobResult finalResult = buildFinalResult(job);
+        // Секция пришла правками: исходник понадобится при сборке итогового текста
+        if (result.getTransformedSectionText() == null && result.getTextEdits() != null
+                && (sectionStore == null || !sectionStore.contains(result.getContentHash()))) {
+            return failSection(result, sectionStore == null
+                    ? "the worker sent text edits, but lab2.sectionStore.dir is not set for the aggregator"
+                    : "no original text for hash " + result.getContentHash() + " in " +
+                    sectionStore.getRoot().toAbsolutePath() + " (lab2.sectionStore.dir must match the producer's)");
+        }
 
-                        byte[] finalBody = OBJECT_MAPPER.writeValueAsBytes(finalResult);
+        JobAggregation job = JOBS.computeIfAbsent(
+                jobId,
+                id -> new JobAggregation(id, totalSections)
+        );
 
-                        channel.basicPublish(
-                                "",
-                                FINAL_RESULT_QUEUE_NAME,
-                                null,
-                                finalBody
-                        );
+        job.addSectionResult(result, resolveSectionText(result));
+        return completeIfDone(job);
+    }
 
-                        System.out.println(
-                                "Aggregator: job " + jobId +
-                                        " is complete. Final wordCount = " + finalResult.getTotalWordCount() +
-                                        ", sections = " + finalResult.getTotalSections()
-                        );
+    // Секцию нельзя учесть: сообщение подтверждается (повтор не поможет), а задание всё равно завершается,
+    // но с причиной провала, иначе оно ждало бы эту секцию вечно
+    private static FinalJobResult failSection(ResultMessage result, String reason) throws IOException {
+        String failure = "section " + result.getSectionIndex() + ": " + reason;
+        System.err.println("Aggregator: job " + result.getJobId() + " lost " + failure);
+
+        JobAggregation job = JOBS.computeIfAbsent(
+                result.getJobId(),
+                id -> new JobAggregation(id, result.getTotalSections())
+        );
+        job.addFailedSection(result, failure);
+        return completeIfDone(job);
+    }
 
-                        JOBS.remove(jobId);
-                    }
+    private static FinalJobResult completeIfDone(JobAggregation job) throws IOException {
+        if (!job.isComplete()) {
+            return null;
+        }
 
-                    channel.basicAck(deliveryTag, false);
-                } catch (Exception ex) {
-                    ex.printStackTrace(System.err);
-                    channel.basicNack(deliveryTag, false, true);
-                }
-            };
-
-            boolean autoAck = false;
-            channel.basicConsume(
-                    RESULT_QUEUE_NAME,
-                    autoAck,
-                    deliverCallback,
-                    consumerTag -> System.out.println(
-                            "Aggregator " + aggregatorId + " cancelled consumer: " + consumerTag
-                    )
+        FinalJobResult finalResult;
+        if (job.getFailure() != null) {
+            finalResult = buildFailedResult(job);
+            System.err.println(
+                    "Aggregator: job " + job.getJobId() + " FAILED, " + job.getFailedSections() + " of " +
+                            job.getTotalSections() + " sections lost, first: " + job.getFailure()
+            );
+        } else {
+            finalResult = buildFinalResult(job);
+            System.out.println(
+                    "Aggregator: job " + job.getJobId() +
+                            " is complete. Final wordCount = " + finalResult.getTotalWordCount() +
+                            ", sections = " + finalResult.getTotalSections()
             );
-        } catch (IOException | TimeoutException e) {
-            System.err.println("Aggregator failed with unexpected error");
-            e.printStackTrace(System.err);
         }
+
+        JOBS.remove(job.getJobId());
+        return finalResult;
+    }
+
+    // Подставляет сохранённый результат вместо заглушки, сохраняя номер секции текущего задания.
+    // Ключ включает topN, режим тональности и версию настроек воркеров, так что результат посчитан
+    // с теми же параметрами. null — результата нет
+    private static ResultMessage loadCachedResult(ResultMessage stub) throws IOException {
+        ResultMessage cached = resultStore != null ? resultStore.load(ResultStore.keyFor(stub)) : null;
+        if (cached == null) {
+            return null;
+        }
+        cached.setJobId(stub.getJobId());
+        cached.setSectionIndex(stub.getSectionIndex());
+        cached.setTotalSections(stub.getTotalSections());
+        cached.setSourceFileId(stub.getSourceFileId());
+        cached.setContinuationSeparator(stub.getContinuationSeparator());
+        cached.setFromCache(true);
+        return cached;
     }
 
-    private static FinalJobResult buildFinalResult(JobAggregation job) {
+    private static FinalJobResult buildFinalResult(JobAggregation job) throws IOException {
         int totalSections = job.getTotalSections();
         int totalWordCount = job.getTotalWordCount();
 
-        Map<String, Integer> globalFreq = job.getGlobalWordFrequencies();
-
-        List<ResultMessage.WordFrequency> globalTopWords = globalFreq.entrySet()
-                .stream()
-                .sorted(new Comparator<Map.Entry<String, Integer>>() {
-                    @Override
-                    public int compare(
-                            Map.Entry<String, Integer> o1,
-                            Map.Entry<String, Integer> o2
-                    ) {
-                        int c = Integer.compare(o2.getValue(), o1.getValue());
-                        if (c != 0) {
-                            return c;
-                        }
-                        return o1.getKey().compareTo(o2.getKey());
-                    }
-                })
-                .limit(10)
-                .map(entry -> new ResultMessage.WordFrequency(entry.getKey(), entry.getValue()))
-                .collect(Collectors.toList());
+        List<ResultMessage.WordFrequency> globalTopWords = job.getGlobalWordFrequencies().topWords(job.getTopN());
 
         List<ResultMessage> orderedSections = new ArrayList<>(job.getSections().values());
         Collections.sort(orderedSections, new Comparator<ResultMessage>() {
@@ -169,79 +259,95 @@ public class AggregatorApp {
             }
         });
 
-        String modifiedText = buildModifiedText(orderedSections);
-        List<String> sortedSentences = buildSortedSentences(modifiedText);
+        // Имена, принятые хотя бы в одной секции, заменяются во всём тексте: секция сама не принимает
+        // имя в начале предложения, если не встретила его раньше
+        NameReplacer names = NameReplacer.compile(job.getDetectedNameReplacements());
+        String modifiedText = buildModifiedText(orderedSections, names);
+        List<String> sortedSentences = job.buildSortedSentences(names);
 
         double averageSentiment = 0.0;
         if (totalSections > 0) {
-            averageSentiment = (double) job.getTotalSentimentScore() / (double) totalSections;
+            averageSentiment = job.getTotalSentimentScore() / (double) totalSections;
         }
 
         FinalJobResult finalResult = new FinalJobResult();
         finalResult.setJobId(job.getJobId());
         finalResult.setTotalSections(totalSections);
         finalResult.setTotalWordCount(totalWordCount);
+        finalResult.setTopN(job.getTopN());
         finalResult.setGlobalTopWords(globalTopWords);
         finalResult.setSections(orderedSections);
         finalResult.setTotalSentimentScore(job.getTotalSentimentScore());
         finalResult.setTotalPositiveWordCount(job.getTotalPositiveWordCount());
         finalResult.setTotalNegativeWordCount(job.getTotalNegativeWordCount());
         finalResult.setAverageSentimentPerSection(averageSentiment);
+        finalResult.setClassProbabilities(job.getClassProbabilities());
+        finalResult.setClassifiedSections(job.getClassifiedSections());
         finalResult.setModifiedText(modifiedText);
         finalResult.setSortedSentences(sortedSentences);
+        finalResult.setDetectedNames(job.getDetectedNames());
+
+        return finalResult;
+    }
 
+    // Без текста и предложений: часть секций не учтена, и неполный текст выдавался бы за итог задания
+    private static FinalJobResult buildFailedResult(JobAggregation job) {
+        FinalJobResult finalResult = new FinalJobResult();
+        finalResult.setJobId(job.getJobId());
+        finalResult.setTotalSections(job.getTotalSections());
+        finalResult.setTopN(job.getTopN());
+        finalResult.setFailure(job.getFailure());
+        finalResult.setFailedSections(job.getFailedSections());
         return finalResult;
     }
 
-    private static String buildModifiedText(List<ResultMessage> orderedSections) {
+    private static String buildModifiedText(List<ResultMessage> orderedSections, NameReplacer names)
+            throws IOException {
         if (orderedSections == null || orderedSections.isEmpty()) {
             return "";
         }
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < orderedSections.size(); i++) {
             ResultMessage section = orderedSections.get(i);
-            String sectionText = section.getTransformedSectionText();
-            if (sectionText == null) {
-                sectionText = "";
+            if (i > 0) {
+                sb.append(separatorBefore(section));
             }
-            sb.append(sectionText);
-            if (i < orderedSections.size() - 1) {
-                sb.append(System.lineSeparator()).append(System.lineSeparator());
+            String sectionText = section.getTransformedSectionText();
+            if (!names.isEmpty()) {
+                String text = resolveSectionText(section);
+                TextEdits.appendTo(sb, text, names.findEdits(text));
+            } else if (sectionText != null) {
+                sb.append(sectionText);
+            } else if (section.getTextEdits() != null) {
+                // Правки применяются к исходнику прямо при записи в общий текст
+                TextEdits.appendTo(sb, loadOriginal(section.getContentHash()), section.getTextEdits());
             }
         }
         return sb.toString();
     }
 
-    private static List<String> buildSortedSentences(String text) {
-        List<String> sentences = new ArrayList<>();
-        if (text == null || text.isBlank()) {
-            return sentences;
-        }
+    private static String separatorBefore(ResultMessage section) {
+        String separator = section.getContinuationSeparator();
+        return separator != null ? separator : SECTION_SEPARATOR;
+    }
 
-        String normalized = text.replace("\r\n", " ").replace('\n', ' ');
-        String[] rawSentences = normalized.split("(?<=[.!?])\\s+");
-        for (String raw : rawSentences) {
-            if (raw == null) {
-                continue;
-            }
-            String trimmed = raw.trim();
-            if (!trimmed.isEmpty()) {
-                sentences.add(trimmed);
-            }
+    // Текст секции после замен: пришёл целиком или восстанавливается из исходника и правок
+    private static String resolveSectionText(ResultMessage result) throws IOException {
+        if (result.getTransformedSectionText() != null) {
+            return result.getTransformedSectionText();
         }
+        if (result.getTextEdits() == null) {
+            return "";
+        }
+        return TextEdits.apply(loadOriginal(result.getContentHash()), result.getTextEdits());
+    }
 
-        sentences.sort(new Comparator<String>() {
-            @Override
-            public int compare(String s1, String s2) {
-                int c = Integer.compare(s1.length(), s2.length());
-                if (c != 0) {
-                    return c;
-                }
-                return s1.compareTo(s2);
-            }
-        });
-
-        return sentences;
+    private static String loadOriginal(String contentHash) throws IOException {
+        String original = sectionStore.load(contentHash);
+        if (original == null) {
+            throw new IOException("Original text " + contentHash + " disappeared from section store");
+        }
+        return original;
     }
 
     private static String buildAggregatorId() {
@@ -254,22 +360,42 @@ public class AggregatorApp {
 
         private final String jobId;
         private final Map<Integer, ResultMessage> sections;
-        private final Map<String, Integer> globalWordFrequencies;
+        private final WordCounter globalWordFrequencies;
+
+        // Имена, найденные эвристикой воркеров: число вхождений и замена
+        private final WordCounter detectedNameCounts = new WordCounter();
+        private final Map<String, String> detectedNameReplacements = new HashMap<>();
         private final Set<Integer> receivedSectionIndexes;
 
+        // Предложения внутри секций сливаются по мере прихода; края секций (до первого и после
+        // последнего разрыва) склеиваются с соседями при сборке: {начало, конец, склейка с предыдущей}
+        // или {весь текст, null, склейка с предыдущей}
+        private final SortedRuns<String> sentenceRuns = new SortedRuns<>(SentenceSplitter.ORDER);
+        private final Map<Integer, String[]> sentenceEdges = new HashMap<>();
+
         private int totalSections;
+        private int topN = TaskMessage.DEFAULT_TOP_N;
         private int receivedSections;
         private int totalWordCount;
 
-        private int totalSentimentScore;
+        private double totalSentimentScore;
         private int totalPositiveWordCount;
         private int totalNegativeWordCount;
 
+        // Сумма вероятностей классов секций, взвешенных числом слов секции, по меткам в порядке появления
+        private final Map<String, double[]> classProbabilitySums = new LinkedHashMap<>();
+        private double classifiedWeight;
+        private int classifiedSections;
+
+        // Первая причина потери секции и число потерянных секций
+        private String failure;
+        private int failedSections;
+
         JobAggregation(String jobId, int totalSections) {
             this.jobId = jobId;
             this.totalSections = totalSections;
             this.sections = new HashMap<>();
-            this.globalWordFrequencies = new HashMap<>();
+            this.globalWordFrequencies = new WordCounter();
             this.receivedSectionIndexes = new HashSet<>();
             this.receivedSections = 0;
             this.totalWordCount = 0;
@@ -286,6 +412,10 @@ public class AggregatorApp {
             return totalSections;
         }
 
+        int getTopN() {
+            return topN;
+        }
+
         int getReceivedSections() {
             return receivedSections;
         }
@@ -298,11 +428,27 @@ public class AggregatorApp {
             return sections;
         }
 
-        Map<String, Integer> getGlobalWordFrequencies() {
+        WordCounter getGlobalWordFrequencies() {
             return globalWordFrequencies;
         }
 
-        int getTotalSentimentScore() {
+        // По убыванию числа вхождений, при равенстве — по алфавиту
+        Map<String, String> getDetectedNameReplacements() {
+            return detectedNameReplacements;
+        }
+
+        List<ResultMessage.DetectedName> getDetectedNames() {
+            List<ResultMessage.WordFrequency> ordered = detectedNameCounts.topWords(detectedNameCounts.size());
+            List<ResultMessage.DetectedName> names = new ArrayList<>(ordered.size());
+            for (ResultMessage.WordFrequency wf : ordered) {
+                names.add(new ResultMessage.DetectedName(
+                        wf.getWord(), detectedNameReplacements.get(wf.getWord()), wf.getCount()
+                ));
+            }
+            return names;
+        }
+
+        double getTotalSentimentScore() {
             return totalSentimentScore;
         }
 
@@ -314,15 +460,67 @@ public class AggregatorApp {
             return totalNegativeWordCount;
         }
 
+        /**
+         * Вероятности классов задания: среднее вероятностей секций, взвешенное числом слов.
+         * Произведение правдоподобий по всему тексту почти всегда даёт 0 или 1, а среднее показывает,
+         * какая доля текста написана в каком тоне. null — ни одна секция не классифицирована.
+         */
+        List<ResultMessage.ClassProbability> getClassProbabilities() {
+            if (classifiedSections == 0) {
+                return null;
+            }
+            List<ResultMessage.ClassProbability> classes = new ArrayList<>(classProbabilitySums.size());
+            for (Map.Entry<String, double[]> entry : classProbabilitySums.entrySet()) {
+                classes.add(new ResultMessage.ClassProbability(
+                        entry.getKey(), entry.getValue()[0] / classifiedWeight
+                ));
+            }
+            return classes;
+        }
+
+        int getClassifiedSections() {
+            return classifiedSections;
+        }
+
         boolean isComplete() {
-            return receivedSections == totalSections;
+            return totalSections > 0 && receivedSections == totalSections;
+        }
+
+        String getFailure() {
+            return failure;
+        }
+
+        int getFailedSections() {
+            return failedSections;
         }
 
-        void addSectionResult(ResultMessage result) {
+        // Потерянная секция считается полученной, чтобы задание завершилось
+        void addFailedSection(ResultMessage result, String reason) {
+            if (result.getTotalSections() > 0) {
+                totalSections = result.getTotalSections();
+            }
+            if (!receivedSectionIndexes.add(result.getSectionIndex())) {
+                return;
+            }
+            receivedSections++;
+            failedSections++;
+            if (failure == null) {
+                failure = reason;
+            }
+        }
+
+        void addSectionResult(ResultMessage result, String sectionText) {
             if (result == null) {
                 return;
             }
 
+            if (result.getTotalSections() > 0) {
+                totalSections = result.getTotalSections();
+            }
+            if (result.getTopN() > 0) {
+                topN = result.getTopN();
+            }
+
             int sectionIndex = result.getSectionIndex();
             if (receivedSectionIndexes.contains(sectionIndex)) {
                 return;
@@ -338,9 +536,18 @@ public class AggregatorApp {
             totalSentimentScore += result.getSentimentScore();
             totalPositiveWordCount += result.getPositiveWordCount();
             totalNegativeWordCount += result.getNegativeWordCount();
+            addClassProbabilities(result);
+
+            addSentences(result, sectionText != null ? sectionText : "");
 
+            // Полная таблица даёт точный глобальный топ; без неё суммируются только локальные топы
+            WordFrequencyTable wordFrequencies = result.getWordFrequencies();
             List<ResultMessage.WordFrequency> topWords = result.getTopWords();
-            if (topWords != null) {
+            if (wordFrequencies != null) {
+                wordFrequencies.addTo(globalWordFrequencies);
+                // Таблица уже учтена: не держим её до конца задания и не отправляем в итоговом результате
+                result.setWordFrequencies(null);
+            } else if (topWords != null) {
                 for (ResultMessage.WordFrequency wf : topWords) {
                     if (wf == null) {
                         continue;
@@ -353,9 +560,89 @@ public class AggregatorApp {
                     if (count <= 0) {
                         continue;
                     }
-                    globalWordFrequencies.merge(word, count, Integer::sum);
+                    globalWordFrequencies.add(word, count);
+                }
+            }
+
+            List<ResultMessage.DetectedName> detectedNames = result.getDetectedNames();
+            if (detectedNames != null) {
+                for (ResultMessage.DetectedName detected : detectedNames) {
+                    if (detected == null || detected.getName() == null || detected.getCount() <= 0) {
+                        continue;
+                    }
+                    detectedNameCounts.add(detected.getName(), detected.getCount());
+                    detectedNameReplacements.putIfAbsent(detected.getName(), detected.getReplacement());
                 }
             }
         }
+
+        private void addClassProbabilities(ResultMessage result) {
+            List<ResultMessage.ClassProbability> classes = result.getClassProbabilities();
+            if (classes == null || classes.isEmpty()) {
+                return;
+            }
+            // Секция без слов всё равно учитывается, но с наименьшим весом
+            double weight = Math.max(1, result.getWordCount());
+            for (ResultMessage.ClassProbability probability : classes) {
+                if (probability == null || probability.getLabel() == null) {
+                    continue;
+                }
+                classProbabilitySums.computeIfAbsent(probability.getLabel(), label -> new double[1])[0] +=
+                        weight * probability.getProbability();
+            }
+            classifiedWeight += weight;
+            classifiedSections++;
+        }
+
+        private void addSentences(ResultMessage result, String text) {
+            // Результаты без серии (старые записи ResultStore) разбиваются здесь
+            SentenceRun run = result.getSentences() != null ? result.getSentences() : SentenceSplitter.split(text);
+            sentenceRuns.add(SentenceSplitter.sentences(text, run));
+            String separator = separatorBefore(result);
+            sentenceEdges.put(result.getSectionIndex(), run.hasBreaks()
+                    ? new String[]{text.substring(0, run.getHeadEnd()), text.substring(run.getTailStart()), separator}
+                    : new String[]{text, null, separator});
+            // Серия уже учтена и не нужна в итоговом результате
+            result.setSentences(null);
+        }
+
+        /**
+         * Все предложения задания по длине и алфавиту. Края соседних секций склеиваются так же,
+         * как в итоговом тексте, и разбиваются заново, так что предложение, перешедшее через границу,
+         * получается таким же, как при разбиении всего итогового текста.
+         */
+        List<String> buildSortedSentences(NameReplacer names) {
+            List<Integer> indexes = new ArrayList<>(sentenceEdges.keySet());
+            Collections.sort(indexes);
+
+            List<String> edgeSentences = new ArrayList<>();
+            StringBuilder open = new StringBuilder();
+            for (int i = 0; i < indexes.size(); i++) {
+                String[] edges = sentenceEdges.get(indexes.get(i));
+                if (i > 0) {
+                    open.append(edges[2]);
+                }
+                open.append(edges[0]);
+                if (edges[1] != null) {
+                    edgeSentences.addAll(SentenceSplitter.sortedSentences(open.toString()));
+                    open.setLength(0);
+                    open.append(edges[1]);
+                }
+            }
+            edgeSentences.addAll(SentenceSplitter.sortedSentences(open.toString()));
+            edgeSentences.sort(SentenceSplitter.ORDER);
+
+            List<String> sentences = sentenceRuns.merge(Collections.singletonList(edgeSentences));
+            if (names.isEmpty()) {
+                return sentences;
+            }
+            // Замена меняет длину предложений, поэтому порядок восстанавливается заново
+            List<String> renamed = new ArrayList<>(sentences.size());
+            for (String sentence : sentences) {
+                renamed.add(TextEdits.apply(sentence, names.findEdits(sentence)));
+            }
+            renamed.sort(SentenceSplitter.ORDER);
+            return renamed;
+        }
     }
 }
@@ -0,0 +1,102 @@
+package itmo.maga.javaparallel.lab2.aggregator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Слияние отсортированных серий по мере поступления.
+ * Серии лежат в стеке, каждая как минимум вдвое длиннее следующей; новая серия сливается
+ * с вершиной, пока это условие нарушено (как в TimSort). Поэтому серий остаётся O(log n),
+ * каждый элемент участвует в O(log n) слияниях, а в конце остаётся одно k-путевое слияние
+ * небольшого числа серий.
+ */
+final class SortedRuns<T> {
+
+    private final Comparator<? super T> order;
+    private final List<List<T>> runs = new ArrayList<>();
+    private int size;
+
+    SortedRuns(Comparator<? super T> order) {
+        this.order = order;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(List<T> run) {
+        if (run == null || run.isEmpty()) {
+            return;
+        }
+        runs.add(run);
+        size += run.size();
+        while (runs.size() >= 2
+                && runs.get(runs.size() - 2).size() <= 2 * runs.get(runs.size() - 1).size()) {
+            List<T> upper = runs.remove(runs.size() - 1);
+            List<T> lower = runs.remove(runs.size() - 1);
+            runs.add(mergeTwo(lower, upper));
+        }
+    }
+
+    /**
+     * Все накопленные элементы вместе с extra (каждая из серий отсортирована) одним списком.
+     */
+    List<T> merge(List<List<T>> extra) {
+        List<List<T>> all = new ArrayList<>(runs);
+        for (List<T> run : extra) {
+            if (run != null && !run.isEmpty()) {
+                all.add(run);
+            }
+        }
+        if (all.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (all.size() == 1) {
+            return new ArrayList<>(all.get(0));
+        }
+
+        int total = 0;
+        // Курсор: номер серии и позиция в ней
+        PriorityQueue<int[]> heads = new PriorityQueue<>(all.size(), (a, b) -> {
+            int c = order.compare(all.get(a[0]).get(a[1]), all.get(b[0]).get(b[1]));
+            return c != 0 ? c : Integer.compare(a[0], b[0]);
+        });
+        for (int r = 0; r < all.size(); r++) {
+            heads.add(new int[]{r, 0});
+            total += all.get(r).size();
+        }
+
+        List<T> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<T> run = all.get(head[0]);
+            merged.add(run.get(head[1]));
+            if (++head[1] < run.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private List<T> mergeTwo(List<T> left, List<T> right) {
+        List<T> merged = new ArrayList<>(left.size() + right.size());
+        int i = 0;
+        int j = 0;
+        while (i < left.size() && j < right.size()) {
+            if (order.compare(right.get(j), left.get(i)) < 0) {
+                merged.add(right.get(j++));
+            } else {
+                merged.add(left.get(i++));
+            }
+        }
+        while (i < left.size()) {
+            merged.add(left.get(i++));
+        }
+        while (j < right.size()) {
+            merged.add(right.get(j++));
+        }
+        return merged;
+    }
+}
@@ -4,4 +4,7 @@ plugins {
 
 dependencies {
     // Общий модуль, использует зависимости из subprojects (Jackson, SLF4J, JUnit)
+
+    // RabbitMQ client для RabbitTransport
+    implementation("com.rabbitmq:amqp-client:5.22.0")
 }
@@ -0,0 +1,470 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Компактный бинарный формат сообщений: varint вместо текстовых чисел, строки UTF-8 с длиной,
+ * повторяющиеся строки (jobId, слова топов) записываются один раз на сообщение.
+ * Сообщение начинается с сигнатуры, версии формата и тега типа.
+ */
+public final class BinaryMessageCodec implements MessageCodec {
+
+    public static final String CONTENT_TYPE = "application/x-lab2-binary";
+
+    private static final int MAGIC = 0xB2;
+    private static final int FORMAT_VERSION = 11;
+
+    private static final int TAG_TASK_MESSAGE = 1;
+    private static final int TAG_TASK_BATCH = 2;
+    private static final int TAG_RESULT_MESSAGE = 3;
+    private static final int TAG_RESULT_BATCH = 4;
+    private static final int TAG_FINAL_JOB_RESULT = 5;
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] encode(Object message) throws IOException {
+        BinaryWriter out = new BinaryWriter(estimateSize(message));
+        out.writeByte(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+
+        if (message instanceof TaskMessage) {
+            out.writeByte(TAG_TASK_MESSAGE);
+            writeTask(out, (TaskMessage) message);
+        } else if (message instanceof TaskBatch) {
+            out.writeByte(TAG_TASK_BATCH);
+            writeTaskBatch(out, (TaskBatch) message);
+        } else if (message instanceof ResultMessage) {
+            out.writeByte(TAG_RESULT_MESSAGE);
+            writeResult(out, (ResultMessage) message);
+        } else if (message instanceof ResultBatch) {
+            out.writeByte(TAG_RESULT_BATCH);
+            writeResultBatch(out, (ResultBatch) message);
+        } else if (message instanceof FinalJobResult) {
+            out.writeByte(TAG_FINAL_JOB_RESULT);
+            writeFinalResult(out, (FinalJobResult) message);
+        } else {
+            throw new IOException("Binary codec does not support " +
+                    (message != null ? message.getClass().getName() : "null"));
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public <T> T decode(byte[] body, Class<T> type) throws IOException {
+        BinaryReader in = new BinaryReader(body);
+        if (in.readByte() != MAGIC) {
+            throw new IOException("Not a binary lab2 message");
+        }
+        int version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported binary message version " + version);
+        }
+
+        int tag = in.readByte();
+        Object message;
+        switch (tag) {
+            case TAG_TASK_MESSAGE:
+                message = readTask(in);
+                break;
+            case TAG_TASK_BATCH:
+                message = readTaskBatch(in);
+                break;
+            case TAG_RESULT_MESSAGE:
+                message = readResult(in);
+                break;
+            case TAG_RESULT_BATCH:
+                message = readResultBatch(in);
+                break;
+            case TAG_FINAL_JOB_RESULT:
+                message = readFinalResult(in);
+                break;
+            default:
+                throw new IOException("Unknown binary message tag " + tag);
+        }
+        // Лишние байты после сообщения — признак повреждённого или чужого формата
+        if (in.hasRemaining()) {
+            throw new IOException("Malformed binary message: trailing bytes after message with tag " + tag);
+        }
+
+        if (!type.isInstance(message)) {
+            throw new IOException("Expected " + type.getSimpleName() + " but message contains " +
+                    message.getClass().getSimpleName());
+        }
+        return type.cast(message);
+    }
+
+    private static void writeTask(BinaryWriter out, TaskMessage task) {
+        out.writeTableString(task.getJobId());
+        out.writeVarInt(task.getSectionIndex());
+        out.writeVarInt(task.getTotalSections());
+        out.writeVarInt(task.getSourceFileId());
+        out.writeString(task.getContentHash());
+        out.writeVarInt(task.getTopN());
+        out.writeBoolean(task.isOriginalStored());
+        out.writeVarInt(task.getSentimentMode().ordinal());
+        out.writeBoolean(task.isVersionProbe());
+        out.writeString(task.getContinuationSeparator());
+        out.writeString(task.getSectionText());
+    }
+
+    private static TaskMessage readTask(BinaryReader in) throws IOException {
+        TaskMessage task = new TaskMessage();
+        task.setJobId(in.readTableString());
+        task.setSectionIndex(in.readVarInt());
+        task.setTotalSections(in.readVarInt());
+        task.setSourceFileId(in.readVarInt());
+        task.setContentHash(in.readString());
+        task.setTopN(in.readVarInt());
+        task.setOriginalStored(in.readBoolean());
+        task.setSentimentMode(readSentimentMode(in));
+        task.setVersionProbe(in.readBoolean());
+        task.setContinuationSeparator(in.readString());
+        task.setSectionText(in.readString());
+        return task;
+    }
+
+    private static void writeTaskBatch(BinaryWriter out, TaskBatch batch) {
+        out.writeTableString(batch.getJobId());
+        List<TaskMessage> tasks = batch.getTasks();
+        out.writeVarInt(tasks.size());
+        for (TaskMessage task : tasks) {
+            writeTask(out, task);
+        }
+    }
+
+    private static TaskBatch readTaskBatch(BinaryReader in) throws IOException {
+        String jobId = in.readTableString();
+        int count = in.readCount();
+        List<TaskMessage> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(readTask(in));
+        }
+        return new TaskBatch(jobId, tasks);
+    }
+
+    private static void writeResult(BinaryWriter out, ResultMessage result) {
+        out.writeTableString(result.getJobId());
+        out.writeVarInt(result.getSectionIndex());
+        out.writeVarInt(result.getTotalSections());
+        out.writeVarInt(result.getSourceFileId());
+        out.writeVarInt(result.getWordCount());
+        out.writeVarInt(result.getTopN());
+        writeWordFrequencies(out, result.getTopWords());
+        writeFrequencyTable(out, result.getWordFrequencies());
+        out.writeDouble(result.getSentimentScore());
+        out.writeVarInt(result.getPositiveWordCount());
+        out.writeVarInt(result.getNegativeWordCount());
+        writeClassProbabilities(out, result.getClassProbabilities());
+        out.writeString(result.getTransformedSectionText());
+        writeTextEdits(out, result.getTextEdits());
+        writeSentenceRun(out, result.getSentences());
+        writeDetectedNames(out, result.getDetectedNames());
+        out.writeString(result.getContentHash());
+        out.writeBoolean(result.isFromCache());
+        out.writeVarInt(result.getSentimentMode().ordinal());
+        out.writeString(result.getAnalysisVersion());
+        out.writeBoolean(result.isVersionProbe());
+        out.writeString(result.getContinuationSeparator());
+    }
+
+    private static ResultMessage readResult(BinaryReader in) throws IOException {
+        ResultMessage result = new ResultMessage();
+        result.setJobId(in.readTableString());
+        result.setSectionIndex(in.readVarInt());
+        result.setTotalSections(in.readVarInt());
+        result.setSourceFileId(in.readVarInt());
+        result.setWordCount(in.readVarInt());
+        result.setTopN(in.readVarInt());
+        result.setTopWords(readWordFrequencies(in));
+        result.setWordFrequencies(readFrequencyTable(in));
+        result.setSentimentScore(in.readDouble());
+        result.setPositiveWordCount(in.readVarInt());
+        result.setNegativeWordCount(in.readVarInt());
+        result.setClassProbabilities(readClassProbabilities(in));
+        result.setTransformedSectionText(in.readString());
+        result.setTextEdits(readTextEdits(in));
+        result.setSentences(readSentenceRun(in));
+        result.setDetectedNames(readDetectedNames(in));
+        result.setContentHash(in.readString());
+        result.setFromCache(in.readBoolean());
+        result.setSentimentMode(readSentimentMode(in));
+        result.setAnalysisVersion(in.readString());
+        result.setVersionProbe(in.readBoolean());
+        result.setContinuationSeparator(in.readString());
+        return result;
+    }
+
+    private static void writeResultBatch(BinaryWriter out, ResultBatch batch) {
+        out.writeTableString(batch.getJobId());
+        List<ResultMessage> results = batch.getResults();
+        out.writeVarInt(results.size());
+        for (ResultMessage result : results) {
+            writeResult(out, result);
+        }
+    }
+
+    private static ResultBatch readResultBatch(BinaryReader in) throws IOException {
+        String jobId = in.readTableString();
+        int count = in.readCount();
+        List<ResultMessage> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(readResult(in));
+        }
+        return new ResultBatch(jobId, results);
+    }
+
+    private static void writeFinalResult(BinaryWriter out, FinalJobResult result) {
+        out.writeTableString(result.getJobId());
+        out.writeVarInt(result.getTotalSections());
+        out.writeVarInt(result.getTotalWordCount());
+        out.writeVarInt(result.getTopN());
+        writeWordFrequencies(out, result.getGlobalTopWords());
+
+        List<ResultMessage> sections = result.getSections();
+        out.writeVarInt(sections.size());
+        for (ResultMessage section : sections) {
+            writeResult(out, section);
+        }
+
+        out.writeDouble(result.getTotalSentimentScore());
+        out.writeVarInt(result.getTotalPositiveWordCount());
+        out.writeVarInt(result.getTotalNegativeWordCount());
+        out.writeDouble(result.getAverageSentimentPerSection());
+        writeClassProbabilities(out, result.getClassProbabilities());
+        out.writeVarInt(result.getClassifiedSections());
+        out.writeString(result.getModifiedText());
+
+        List<String> sentences = result.getSortedSentences();
+        out.writeVarInt(sentences.size());
+        for (String sentence : sentences) {
+            out.writeString(sentence);
+        }
+        writeDetectedNames(out, result.getDetectedNames());
+        out.writeString(result.getFailure());
+        out.writeVarInt(result.getFailedSections());
+    }
+
+    private static FinalJobResult readFinalResult(BinaryReader in) throws IOException {
+        FinalJobResult result = new FinalJobResult();
+        result.setJobId(in.readTableString());
+        result.setTotalSections(in.readVarInt());
+        result.setTotalWordCount(in.readVarInt());
+        result.setTopN(in.readVarInt());
+        result.setGlobalTopWords(readWordFrequencies(in));
+
+        int sectionCount = in.readCount();
+        List<ResultMessage> sections = new ArrayList<>(sectionCount);
+        for (int i = 0; i < sectionCount; i++) {
+            sections.add(readResult(in));
+        }
+        result.setSections(sections);
+
+        result.setTotalSentimentScore(in.readDouble());
+        result.setTotalPositiveWordCount(in.readVarInt());
+        result.setTotalNegativeWordCount(in.readVarInt());
+        result.setAverageSentimentPerSection(in.readDouble());
+        result.setClassProbabilities(readClassProbabilities(in));
+        result.setClassifiedSections(in.readVarInt());
+        result.setModifiedText(in.readString());
+
+        int sentenceCount = in.readCount();
+        List<String> sentences = new ArrayList<>(sentenceCount);
+        for (int i = 0; i < sentenceCount; i++) {
+            sentences.add(in.readString());
+        }
+        result.setSortedSentences(sentences);
+        result.setDetectedNames(readDetectedNames(in));
+        result.setFailure(in.readString());
+        result.setFailedSections(in.readVarInt());
+        return result;
+    }
+
+    private static void writeWordFrequencies(BinaryWriter out, List<ResultMessage.WordFrequency> words) {
+        out.writeVarInt(words.size());
+        for (ResultMessage.WordFrequency wf : words) {
+            out.writeTableString(wf.getWord());
+            out.writeVarInt(wf.getCount());
+        }
+    }
+
+    private static List<ResultMessage.WordFrequency> readWordFrequencies(BinaryReader in) throws IOException {
+        int count = in.readCount();
+        List<ResultMessage.WordFrequency> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String word = in.readTableString();
+            int frequency = in.readVarInt();
+            words.add(new ResultMessage.WordFrequency(word, frequency));
+        }
+        return words;
+    }
+
+    private static SentimentMode readSentimentMode(BinaryReader in) throws IOException {
+        int ordinal = in.readVarInt();
+        SentimentMode[] modes = SentimentMode.values();
+        if (ordinal < 0 || ordinal >= modes.length) {
+            throw new IOException("Unknown sentiment mode " + ordinal);
+        }
+        return modes[ordinal];
+    }
+
+    // Признак наличия, затем пары метка из таблицы строк — вероятность
+    private static void writeClassProbabilities(BinaryWriter out, List<ResultMessage.ClassProbability> classes) {
+        out.writeBoolean(classes != null);
+        if (classes == null) {
+            return;
+        }
+        out.writeVarInt(classes.size());
+        for (ResultMessage.ClassProbability probability : classes) {
+            out.writeTableString(probability.getLabel());
+            out.writeDouble(probability.getProbability());
+        }
+    }
+
+    private static List<ResultMessage.ClassProbability> readClassProbabilities(BinaryReader in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int count = in.readCount();
+        List<ResultMessage.ClassProbability> classes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String label = in.readTableString();
+            classes.add(new ResultMessage.ClassProbability(label, in.readDouble()));
+        }
+        return classes;
+    }
+
+    // Признак наличия, затем число слов и пары слово из таблицы строк — частота
+    private static void writeFrequencyTable(BinaryWriter out, WordFrequencyTable table) {
+        out.writeBoolean(table != null);
+        if (table == null) {
+            return;
+        }
+        List<String> words = table.getWords();
+        int[] counts = table.getCounts();
+        out.writeVarInt(words.size());
+        for (int i = 0; i < words.size(); i++) {
+            out.writeTableString(words.get(i));
+            out.writeVarInt(counts[i]);
+        }
+    }
+
+    private static WordFrequencyTable readFrequencyTable(BinaryReader in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int count = in.readCount();
+        List<String> words = new ArrayList<>(count);
+        int[] counts = new int[count];
+        for (int i = 0; i < count; i++) {
+            words.add(in.readTableString());
+            counts[i] = in.readVarInt();
+        }
+        return new WordFrequencyTable(words, counts);
+    }
+
+    // Признак наличия; смещение пишется относительно конца предыдущей правки, замены — через таблицу строк
+    private static void writeTextEdits(BinaryWriter out, List<ResultMessage.TextEdit> edits) {
+        out.writeBoolean(edits != null);
+        if (edits == null) {
+            return;
+        }
+        out.writeVarInt(edits.size());
+        int previousEnd = 0;
+        for (ResultMessage.TextEdit edit : edits) {
+            out.writeVarInt(edit.getOffset() - previousEnd);
+            out.writeVarInt(edit.getLength());
+            out.writeTableString(edit.getReplacement());
+            previousEnd = edit.getOffset() + edit.getLength();
+        }
+    }
+
+    private static List<ResultMessage.TextEdit> readTextEdits(BinaryReader in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int count = in.readCount();
+        List<ResultMessage.TextEdit> edits = new ArrayList<>(count);
+        int previousEnd = 0;
+        for (int i = 0; i < count; i++) {
+            int offset = previousEnd + in.readVarInt();
+            int length = in.readVarInt();
+            edits.add(new ResultMessage.TextEdit(offset, length, in.readTableString()));
+            previousEnd = offset + length;
+        }
+        return edits;
+    }
+
+    // Признак наличия, края со сдвигом +1 (NO_BREAK -> 0), затем пары начало — длина
+    private static void writeSentenceRun(BinaryWriter out, SentenceRun run) {
+        out.writeBoolean(run != null);
+        if (run == null) {
+            return;
+        }
+        out.writeVarInt(run.getHeadEnd() + 1);
+        out.writeVarInt(run.getTailStart() + 1);
+        int[] bounds = run.getBounds();
+        out.writeVarInt(bounds.length / 2);
+        for (int i = 0; i + 1 < bounds.length; i += 2) {
+            out.writeVarInt(bounds[i]);
+            out.writeVarInt(bounds[i + 1] - bounds[i]);
+        }
+    }
+
+    private static SentenceRun readSentenceRun(BinaryReader in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int headEnd = in.readVarInt() - 1;
+        int tailStart = in.readVarInt() - 1;
+        int count = in.readCount();
+        int[] bounds = new int[count * 2];
+        for (int i = 0; i < bounds.length; i += 2) {
+            bounds[i] = in.readVarInt();
+            bounds[i + 1] = bounds[i] + in.readVarInt();
+        }
+        return new SentenceRun(bounds, headEnd, tailStart);
+    }
+
+    private static void writeDetectedNames(BinaryWriter out, List<ResultMessage.DetectedName> names) {
+        out.writeVarInt(names.size());
+        for (ResultMessage.DetectedName name : names) {
+            out.writeTableString(name.getName());
+            out.writeTableString(name.getReplacement());
+            out.writeVarInt(name.getCount());
+        }
+    }
+
+    private static List<ResultMessage.DetectedName> readDetectedNames(BinaryReader in) throws IOException {
+        int count = in.readCount();
+        List<ResultMessage.DetectedName> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = in.readTableString();
+            String replacement = in.readTableString();
+            int occurrences = in.readVarInt();
+            names.add(new ResultMessage.DetectedName(name, replacement, occurrences));
+        }
+        return names;
+    }
+
+    // Начальный размер буфера: текст секций плюс небольшой запас на служебные поля
+    private static int estimateSize(Object message) {
+        if (message instanceof TaskBatch) {
+            long chars = 0;
+            for (TaskMessage task : ((TaskBatch) message).getTasks()) {
+                chars += task.getSectionText() != null ? task.getSectionText().length() : 0;
+            }
+            return (int) Math.min(Integer.MAX_VALUE - 64, chars + 256);
+        }
+        if (message instanceof FinalJobResult) {
+            String text = ((FinalJobResult) message).getModifiedText();
+            return (text != null ? text.length() * 2 : 0) + 4096;
+        }
+        return 1024;
+    }
+}
@@ -0,0 +1,103 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Чтение сообщений, записанных {@link BinaryWriter}.
+ */
+final class BinaryReader {
+
+    private final byte[] buffer;
+    private int position;
+
+    private final List<String> stringTable = new ArrayList<>();
+
+    BinaryReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    boolean hasRemaining() {
+        return position < buffer.length;
+    }
+
+    int readByte() throws IOException {
+        if (position >= buffer.length) {
+            throw new IOException("Malformed binary message: unexpected end at byte " + position);
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    int readVarInt() throws IOException {
+        long value = readVarLong();
+        if ((value >>> 32) != 0) {
+            throw new IOException("Malformed binary message: varint does not fit in int at byte " + position);
+        }
+        return (int) value;
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed binary message: varint too long at byte " + position);
+    }
+
+    double readDouble() throws IOException {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | readByte();
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    String readString() throws IOException {
+        int lengthPlusOne = readVarInt();
+        if (lengthPlusOne == 0) {
+            return null;
+        }
+        int length = lengthPlusOne - 1;
+        if (length < 0 || length > buffer.length - position) {
+            throw new IOException("Malformed binary message: string of " + length + " bytes at byte " + position);
+        }
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    String readTableString() throws IOException {
+        int reference = readVarInt();
+        if (reference == 0) {
+            String value = readString();
+            if (value != null) {
+                stringTable.add(value);
+            }
+            return value;
+        }
+        int index = reference - 1;
+        if (index >= stringTable.size()) {
+            throw new IOException("Malformed binary message: unknown string table entry " + index);
+        }
+        return stringTable.get(index);
+    }
+
+    // Защита от абсурдных длин списков в повреждённом сообщении
+    int readCount() throws IOException {
+        int count = readVarInt();
+        if (count < 0 || count > buffer.length - position) {
+            throw new IOException("Malformed binary message: list of " + count + " elements at byte " + position);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,94 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Буфер бинарного кодека: varint-числа, строки UTF-8 с длиной и таблица повторяющихся строк.
+ */
+final class BinaryWriter {
+
+    private byte[] buffer;
+    private int size;
+
+    // Строки, уже записанные в это сообщение, и их номера
+    private final Map<String, Integer> stringTable = new HashMap<>();
+
+    BinaryWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+    }
+
+    void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    // Беззнаковый LEB128; отрицательные int занимают 5 байт и читаются обратно без потерь
+    void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    void writeDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (bits >>> shift);
+        }
+    }
+
+    // Длина + 1 (0 — null), затем байты UTF-8
+    void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    // Первое вхождение: 0 и сама строка; повторное: номер в таблице + 1
+    void writeTableString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            writeString(null);
+            return;
+        }
+        Integer index = stringTable.get(value);
+        if (index != null) {
+            writeVarInt(index + 1);
+            return;
+        }
+        stringTable.put(value, stringTable.size());
+        writeVarInt(0);
+        writeString(value);
+    }
+
+    private void ensureCapacity(int extra) {
+        int required = size + extra;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+}
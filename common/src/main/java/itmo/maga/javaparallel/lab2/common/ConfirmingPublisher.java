@@ -0,0 +1,238 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронная публикация с publisher confirms и ограниченным окном неподтверждённых сообщений.
+ * Все publish/flush вызываются из одного потока; подтверждения приходят из потока соединения.
+ * Отвергнутые брокером (nack) и не подтверждённые за confirmTimeout сообщения отправляются повторно.
+ */
+final class ConfirmingPublisher {
+
+    private static final long PROGRESS_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final Channel channel;
+    private final int maxAttempts;
+    private final long confirmTimeoutNanos;
+
+    private final Semaphore window;
+    private final ConcurrentNavigableMap<Long, PendingMessage> outstanding = new ConcurrentSkipListMap<>();
+    private final ConcurrentLinkedQueue<PendingMessage> retries = new ConcurrentLinkedQueue<>();
+    private final Object confirmSignal = new Object();
+
+    private final AtomicLong confirmedCount = new AtomicLong();
+    private final AtomicLong nackedCount = new AtomicLong();
+    private final AtomicLong confirmLatencyTotalNanos = new AtomicLong();
+    private final AtomicLong confirmLatencyMaxNanos = new AtomicLong();
+    private long publishedCount;
+    private long retriedCount;
+    private long publishedBytes;
+
+    private final long startedAt;
+    private long lastProgressLogAt;
+
+    ConfirmingPublisher(Channel channel, int windowSize, long confirmTimeoutMillis, int maxAttempts)
+            throws IOException {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Publish window must be positive: " + windowSize);
+        }
+        this.channel = channel;
+        this.maxAttempts = maxAttempts;
+        this.confirmTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMillis);
+        this.window = new Semaphore(windowSize);
+
+        channel.confirmSelect();
+        channel.addConfirmListener(this::handleAck, this::handleNack);
+
+        this.startedAt = System.nanoTime();
+        this.lastProgressLogAt = startedAt;
+    }
+
+    void publish(String routingKey, AMQP.BasicProperties properties, byte[] body, String description)
+            throws IOException, InterruptedException {
+        PendingMessage message = new PendingMessage(routingKey, properties, body, description);
+
+        // Слот окна держится до подтверждения, в том числе на время повторных отправок
+        while (!window.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+            resendFailed();
+        }
+        resendFailed();
+        send(message);
+        logProgressIfDue();
+    }
+
+    // Ждёт подтверждения всех отправленных сообщений, повторяя отвергнутые и просроченные
+    void awaitAllConfirmed(long timeoutMillis) throws IOException, InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            resendFailed();
+            if (outstanding.isEmpty() && retries.isEmpty()) {
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new TimeoutException(
+                        outstanding.size() + retries.size() + " messages still unconfirmed after " +
+                                timeoutMillis + " ms"
+                );
+            }
+            synchronized (confirmSignal) {
+                if (!outstanding.isEmpty() || !retries.isEmpty()) {
+                    confirmSignal.wait(50);
+                }
+            }
+        }
+    }
+
+    void logSummary() {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startedAt);
+        long confirmed = confirmedCount.get();
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        double averageLatencyMillis = confirmed > 0
+                ? confirmLatencyTotalNanos.get() / (double) confirmed / 1_000_000.0
+                : 0.0;
+
+        System.out.println(String.format(
+                "Publisher summary: published=%d, confirmed=%d, nacked=%d, retried=%d, bytes=%d, " +
+                        "elapsed=%.2fs, throughput=%.1f msg/s (%.2f MB/s), " +
+                        "confirm latency avg=%.2fms max=%.2fms",
+                publishedCount, confirmed, nackedCount.get(), retriedCount, publishedBytes,
+                seconds, confirmed / seconds, publishedBytes / seconds / (1024 * 1024),
+                averageLatencyMillis, confirmLatencyMaxNanos.get() / 1_000_000.0
+        ));
+    }
+
+    private void send(PendingMessage message) throws IOException {
+        message.attempts++;
+        message.sentAt = System.nanoTime();
+        long sequenceNumber = channel.getNextPublishSeqNo();
+        outstanding.put(sequenceNumber, message);
+        channel.basicPublish("", message.routingKey, message.properties, message.body);
+
+        publishedCount++;
+        publishedBytes += message.body.length;
+    }
+
+    private void resendFailed() throws IOException {
+        expireStale();
+
+        PendingMessage message;
+        while ((message = retries.poll()) != null) {
+            if (message.attempts >= maxAttempts) {
+                throw new IOException(
+                        "Message " + message.description + " was not confirmed after " +
+                                message.attempts + " attempts"
+                );
+            }
+            System.err.println(
+                    "Republishing " + message.description + " (attempt " + (message.attempts + 1) + ")"
+            );
+            retriedCount++;
+            send(message);
+        }
+    }
+
+    private void expireStale() {
+        if (outstanding.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Map.Entry<Long, PendingMessage> entry : outstanding.entrySet()) {
+            PendingMessage message = entry.getValue();
+            if (now - message.sentAt < confirmTimeoutNanos) {
+                // Номера растут вместе со временем отправки: дальше только более свежие
+                break;
+            }
+            if (outstanding.remove(entry.getKey(), message)) {
+                retries.add(message);
+            }
+        }
+    }
+
+    private void handleAck(long deliveryTag, boolean multiple) {
+        long now = System.nanoTime();
+        for (PendingMessage message : removeConfirmed(deliveryTag, multiple)) {
+            long latency = now - message.sentAt;
+            confirmLatencyTotalNanos.addAndGet(latency);
+            confirmLatencyMaxNanos.accumulateAndGet(latency, Math::max);
+            confirmedCount.incrementAndGet();
+            window.release();
+        }
+        signalConfirm();
+    }
+
+    private void handleNack(long deliveryTag, boolean multiple) {
+        for (PendingMessage message : removeConfirmed(deliveryTag, multiple)) {
+            nackedCount.incrementAndGet();
+            retries.add(message);
+        }
+        signalConfirm();
+    }
+
+    private List<PendingMessage> removeConfirmed(long deliveryTag, boolean multiple) {
+        List<PendingMessage> removed = new ArrayList<>();
+        if (multiple) {
+            ConcurrentNavigableMap<Long, PendingMessage> head = outstanding.headMap(deliveryTag, true);
+            for (Map.Entry<Long, PendingMessage> entry : head.entrySet()) {
+                if (outstanding.remove(entry.getKey(), entry.getValue())) {
+                    removed.add(entry.getValue());
+                }
+            }
+        } else {
+            PendingMessage message = outstanding.remove(deliveryTag);
+            if (message != null) {
+                removed.add(message);
+            }
+        }
+        return removed;
+    }
+
+    private void signalConfirm() {
+        synchronized (confirmSignal) {
+            confirmSignal.notifyAll();
+        }
+    }
+
+    private void logProgressIfDue() {
+        long now = System.nanoTime();
+        if (now - lastProgressLogAt < PROGRESS_LOG_INTERVAL_NANOS) {
+            return;
+        }
+        lastProgressLogAt = now;
+        double seconds = (now - startedAt) / 1_000_000_000.0;
+        System.out.println(String.format(
+                "Publisher progress: published=%d, confirmed=%d, in flight=%d, %.1f msg/s",
+                publishedCount, confirmedCount.get(), outstanding.size(), confirmedCount.get() / seconds
+        ));
+    }
+
+    private static final class PendingMessage {
+
+        private final String routingKey;
+        private final AMQP.BasicProperties properties;
+        private final byte[] body;
+        private final String description;
+
+        private int attempts;
+        private volatile long sentAt;
+
+        PendingMessage(String routingKey, AMQP.BasicProperties properties, byte[] body, String description) {
+            this.routingKey = routingKey;
+            this.properties = properties;
+            this.body = body;
+            this.description = description;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Delivery;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Канал-потребитель очереди в {@link RabbitTransport}. Сообщение обрабатывается либо прямо в потоке доставки,
+ * либо в общем пуле обработки; ответ публикуется в тот же канал в режиме publisher confirms,
+ * подтверждения задач идут через {@link OrderedAcknowledger} после подтверждения ответа.
+ */
+final class ConsumerChannel {
+
+    /**
+     * Обработка одного сообщения. null — публиковать нечего, сообщение просто подтверждается.
+     */
+    @FunctionalInterface
+    interface DeliveryHandler {
+        Reply handle(Delivery delivery) throws Exception;
+    }
+
+    /**
+     * Сообщение, которое нужно опубликовать в ответ на доставку.
+     */
+    static final class Reply {
+
+        private final String routingKey;
+        private final AMQP.BasicProperties properties;
+        private final byte[] body;
+
+        Reply(String routingKey, AMQP.BasicProperties properties, byte[] body) {
+            this.routingKey = routingKey;
+            this.properties = properties;
+            this.body = body;
+        }
+    }
+
+    private final String name;
+    private final Channel channel;
+    // null — обработка в потоке доставки канала
+    private final Executor processingExecutor;
+    private final DeliveryHandler handler;
+    private final OrderedAcknowledger acknowledger;
+    private final PrefetchController prefetch;
+    private final int maxAckBatchSize;
+
+    // Последнее значение, переданное брокеру в basicQos
+    private volatile int appliedPrefetch;
+
+    ConsumerChannel(
+            String name,
+            Channel channel,
+            Executor processingExecutor,
+            DeliveryHandler handler,
+            PrefetchController prefetch,
+            int maxAckBatchSize,
+            long ackMaxDelayMillis
+    ) throws IOException {
+        this.name = name;
+        this.channel = channel;
+        this.processingExecutor = processingExecutor;
+        this.handler = handler;
+        this.prefetch = prefetch;
+        this.maxAckBatchSize = maxAckBatchSize;
+        this.acknowledger = new OrderedAcknowledger(
+                channel, ackBatchSizeFor(prefetch.getPrefetch()), ackMaxDelayMillis
+        );
+
+        channel.confirmSelect();
+        channel.addConfirmListener(acknowledger::confirmed, acknowledger::publishFailed);
+    }
+
+    void start(String queueName) throws IOException {
+        appliedPrefetch = prefetch.getPrefetch();
+        channel.basicQos(appliedPrefetch);
+        boolean autoAck = false;
+        channel.basicConsume(
+                queueName,
+                autoAck,
+                (consumerTag, delivery) -> dispatch(delivery),
+                consumerTag -> System.out.println(
+                        "Consumer channel " + name + " cancelled consumer: " + consumerTag
+                )
+        );
+    }
+
+    OrderedAcknowledger getAcknowledger() {
+        return acknowledger;
+    }
+
+    // Для периодического таймера: отправляет ack, который копится дольше допустимого
+    void flushStaleAcks() {
+        try {
+            acknowledger.flushIfStale();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Consumer channel " + name + " failed to flush acknowledgements");
+            e.printStackTrace(System.err);
+        }
+    }
+
+    // Для периодического таймера: передаёт брокеру новое значение контроллера. Не под блокировкой
+    // acknowledger: basicQos ждёт ответа брокера, а confirm-колбэки берут ту же блокировку в потоке соединения
+    void applyPrefetch() {
+        int target = prefetch.getPrefetch();
+        if (target == appliedPrefetch) {
+            return;
+        }
+        try {
+            channel.basicQos(target);
+            acknowledger.setBatchSize(ackBatchSizeFor(target));
+            appliedPrefetch = target;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Consumer channel " + name + " failed to apply prefetch " + target);
+            e.printStackTrace(System.err);
+        }
+    }
+
+    // Не больше половины prefetch, чтобы брокер не останавливал доставку в ожидании ack
+    private int ackBatchSizeFor(int prefetchCount) {
+        return Math.min(maxAckBatchSize, Math.max(1, prefetchCount / 2));
+    }
+
+    private void dispatch(Delivery delivery) throws IOException {
+        long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+        acknowledger.register(deliveryTag);
+
+        if (processingExecutor == null) {
+            process(delivery, deliveryTag);
+            return;
+        }
+        try {
+            processingExecutor.execute(() -> {
+                try {
+                    process(delivery, deliveryTag);
+                } catch (IOException e) {
+                    System.err.println("Consumer channel " + name + " failed to settle delivery " + deliveryTag);
+                    e.printStackTrace(System.err);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            acknowledger.reject(deliveryTag);
+        }
+    }
+
+    private void process(Delivery delivery, long deliveryTag) throws IOException {
+        Reply reply;
+        long startedAt = prefetch.started();
+        try {
+            reply = handler.handle(delivery);
+        } catch (Exception ex) {
+            System.err.println(
+                    "Consumer channel " + name + " failed to process message, will requeue"
+            );
+            ex.printStackTrace(System.err);
+            acknowledger.reject(deliveryTag);
+            return;
+        } finally {
+            prefetch.finished(startedAt);
+        }
+
+        // Публикация и ack под одной блокировкой: канал не используется из нескольких потоков одновременно,
+        // а confirm не может прийти раньше, чем номер публикации записан
+        synchronized (acknowledger) {
+            if (reply == null) {
+                acknowledger.complete(deliveryTag);
+                return;
+            }
+            long publishSeqNo = channel.getNextPublishSeqNo();
+            channel.basicPublish("", reply.routingKey, reply.properties, reply.body);
+            acknowledger.published(publishSeqNo, deliveryTag);
+        }
+    }
+}
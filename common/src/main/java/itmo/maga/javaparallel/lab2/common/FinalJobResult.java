@@ -9,21 +9,35 @@ public final class FinalJobResult {
     private int totalSections;
     private int totalWordCount;
     private List<ResultMessage.WordFrequency> globalTopWords;
+    private int topN = TaskMessage.DEFAULT_TOP_N;
     private List<ResultMessage> sections;
 
-    private int totalSentimentScore;
+    private double totalSentimentScore;
     private int totalPositiveWordCount;
     private int totalNegativeWordCount;
     private double averageSentimentPerSection;
+    // Вероятности классов по заданию: среднее вероятностей секций, взвешенное числом слов;
+    // null — классификатор не использовался
+    private List<ResultMessage.ClassProbability> classProbabilities;
+    private int classifiedSections;
 
     private String modifiedText;
 
     private List<String> sortedSentences;
 
+    // Имена, найденные эвристикой во всех секциях, по убыванию числа вхождений
+    private List<ResultMessage.DetectedName> detectedNames;
+
+    // Причина, по которой задание не собрано (первая из причин), и число потерянных секций;
+    // null — все секции учтены. У проваленного задания нет итогового текста и предложений
+    private String failure;
+    private int failedSections;
+
     public FinalJobResult() {
         this.globalTopWords = new ArrayList<>();
         this.sections = new ArrayList<>();
         this.sortedSentences = new ArrayList<>();
+        this.detectedNames = new ArrayList<>();
     }
 
     public FinalJobResult(
@@ -32,7 +46,7 @@ public final class FinalJobResult {
             int totalWordCount,
             List<ResultMessage.WordFrequency> globalTopWords,
             List<ResultMessage> sections,
-            int totalSentimentScore,
+            double totalSentimentScore,
             int totalPositiveWordCount,
             int totalNegativeWordCount,
             double averageSentimentPerSection,
@@ -49,6 +63,7 @@ public final class FinalJobResult {
         this.averageSentimentPerSection = averageSentimentPerSection;
         this.modifiedText = modifiedText;
         this.sortedSentences = new ArrayList<>();
+        this.detectedNames = new ArrayList<>();
     }
 
     public String getJobId() {
@@ -83,6 +98,14 @@ public final class FinalJobResult {
         this.globalTopWords = globalTopWords != null ? new ArrayList<>(globalTopWords) : new ArrayList<>();
     }
 
+    public int getTopN() {
+        return topN;
+    }
+
+    public void setTopN(int topN) {
+        this.topN = topN;
+    }
+
     public List<ResultMessage> getSections() {
         return sections;
     }
@@ -91,11 +114,11 @@ public final class FinalJobResult {
         this.sections = sections != null ? new ArrayList<>(sections) : new ArrayList<>();
     }
 
-    public int getTotalSentimentScore() {
+    public double getTotalSentimentScore() {
         return totalSentimentScore;
     }
 
-    public void setTotalSentimentScore(int totalSentimentScore) {
+    public void setTotalSentimentScore(double totalSentimentScore) {
         this.totalSentimentScore = totalSentimentScore;
     }
 
@@ -123,6 +146,22 @@ public final class FinalJobResult {
         this.averageSentimentPerSection = averageSentimentPerSection;
     }
 
+    public List<ResultMessage.ClassProbability> getClassProbabilities() {
+        return classProbabilities;
+    }
+
+    public void setClassProbabilities(List<ResultMessage.ClassProbability> classProbabilities) {
+        this.classProbabilities = classProbabilities != null ? new ArrayList<>(classProbabilities) : null;
+    }
+
+    public int getClassifiedSections() {
+        return classifiedSections;
+    }
+
+    public void setClassifiedSections(int classifiedSections) {
+        this.classifiedSections = classifiedSections;
+    }
+
     public String getModifiedText() {
         return modifiedText;
     }
@@ -139,20 +178,50 @@ public final class FinalJobResult {
         this.sortedSentences = sortedSentences != null ? new ArrayList<>(sortedSentences) : new ArrayList<>();
     }
 
+    public List<ResultMessage.DetectedName> getDetectedNames() {
+        return detectedNames;
+    }
+
+    public void setDetectedNames(List<ResultMessage.DetectedName> detectedNames) {
+        this.detectedNames = detectedNames != null ? new ArrayList<>(detectedNames) : new ArrayList<>();
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public void setFailure(String failure) {
+        this.failure = failure;
+    }
+
+    public int getFailedSections() {
+        return failedSections;
+    }
+
+    public void setFailedSections(int failedSections) {
+        this.failedSections = failedSections;
+    }
+
     @Override
     public String toString() {
         return "FinalJobResult{" +
                 "jobId='" + jobId + '\'' +
                 ", totalSections=" + totalSections +
                 ", totalWordCount=" + totalWordCount +
+                ", topN=" + topN +
                 ", globalTopWordsSize=" + (globalTopWords != null ? globalTopWords.size() : 0) +
                 ", sectionsCount=" + (sections != null ? sections.size() : 0) +
                 ", totalSentimentScore=" + totalSentimentScore +
                 ", totalPositiveWordCount=" + totalPositiveWordCount +
                 ", totalNegativeWordCount=" + totalNegativeWordCount +
                 ", averageSentimentPerSection=" + averageSentimentPerSection +
+                ", classProbabilities=" + classProbabilities +
+                ", classifiedSections=" + classifiedSections +
                 ", modifiedTextLength=" + (modifiedText != null ? modifiedText.length() : 0) +
                 ", sortedSentencesCount=" + (sortedSentences != null ? sortedSentences.size() : 0) +
+                ", detectedNamesCount=" + (detectedNames != null ? detectedNames.size() : 0) +
+                ", failure=" + failure +
+                ", failedSections=" + failedSections +
                 '}';
     }
 }
@@ -0,0 +1,263 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Транспорт внутри одного процесса: ограниченные очереди объектов и потоки-потребители.
+ * Сообщения передаются без сериализации и сжатия, поэтому отправитель не должен менять
+ * объект после публикации. Полная очередь блокирует отправителя — так продюсер не обгоняет
+ * воркеров больше чем на capacity сообщений. Сообщение, обработчик которого упал,
+ * возвращается в начало очереди, как при nack с requeue у брокера.
+ */
+public final class InMemoryTransport implements MessageTransport {
+
+    private final int capacity;
+    private final Map<String, MemoryQueue> queues = new ConcurrentHashMap<>();
+    private final List<Thread> consumerThreads = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    public InMemoryTransport(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void declareQueue(String queue, int maxPriority) {
+        queue(queue);
+    }
+
+    @Override
+    public String publish(String queue, Object message, int priority, String description)
+            throws InterruptedException {
+        queue(queue).put(message, priority);
+        return "in-process";
+    }
+
+    // Сообщение в очереди уже доступно потребителям
+    @Override
+    public void awaitPublished(long timeoutMillis) {
+    }
+
+    @Override
+    public <T> void consume(
+            String queue,
+            Class<T> type,
+            int consumers,
+            PrefetchController prefetch,
+            Executor processingExecutor,
+            MessageHandler<T> handler
+    ) {
+        MemoryQueue source = queue(queue);
+        // С общим пулом обработки prefetch ограничивает число сообщений в обработке на потребителя;
+        // в потоке потребителя сообщение всегда одно, и контроллеру нечего регулировать
+        InFlightLimit inFlight = null;
+        if (processingExecutor != null) {
+            prefetch.setConsumers(consumers);
+            inFlight = new InFlightLimit(prefetch, Math.max(1, consumers));
+        }
+
+        for (int i = 0; i < Math.max(1, consumers); i++) {
+            String name = queue + "/" + i;
+            InFlightLimit limit = inFlight;
+            Thread thread = new Thread(() -> consumeLoop(name, source, type, processingExecutor, limit, handler),
+                    "consumer-" + name);
+            consumerThreads.add(thread);
+            thread.start();
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "in-process queues (capacity " + capacity + ")";
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread thread : consumerThreads) {
+            thread.interrupt();
+        }
+    }
+
+    private MemoryQueue queue(String name) {
+        return queues.computeIfAbsent(name, key -> new MemoryQueue(capacity));
+    }
+
+    private <T> void consumeLoop(
+            String name,
+            MemoryQueue source,
+            Class<T> type,
+            Executor processingExecutor,
+            InFlightLimit inFlight,
+            MessageHandler<T> handler
+    ) {
+        while (!closed) {
+            QueuedMessage message;
+            try {
+                if (inFlight != null) {
+                    inFlight.acquire();
+                }
+                message = source.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (processingExecutor == null) {
+                process(name, source, type, message, handler);
+                continue;
+            }
+            try {
+                processingExecutor.execute(() -> {
+                    long startedAt = inFlight.prefetch.started();
+                    try {
+                        process(name, source, type, message, handler);
+                    } finally {
+                        inFlight.prefetch.finished(startedAt);
+                        inFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                source.requeue(message);
+            }
+        }
+    }
+
+    private <T> void process(String name, MemoryQueue source, Class<T> type, QueuedMessage message,
+                             MessageHandler<T> handler) {
+        try {
+            Reply reply = handler.handle(type.cast(message.payload));
+            if (reply != null) {
+                queue(reply.getQueue()).put(reply.getMessage(), 0);
+            }
+        } catch (InterruptedException e) {
+            // Транспорт закрывается: сообщение остаётся необработанным
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            System.err.println("Consumer " + name + " failed to process message, will requeue");
+            ex.printStackTrace(System.err);
+            source.requeue(message);
+        }
+    }
+
+    private static final class QueuedMessage {
+
+        private final Object payload;
+        private final int priority;
+        private final long sequence;
+
+        QueuedMessage(Object payload, int priority, long sequence) {
+            this.payload = payload;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Число сообщений в обработке у всех потребителей очереди: не больше consumers × текущий prefetch.
+     */
+    private static final class InFlightLimit {
+
+        private final PrefetchController prefetch;
+        private final int consumers;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition hasRoom = lock.newCondition();
+        private int inFlight;
+
+        InFlightLimit(PrefetchController prefetch, int consumers) {
+            this.prefetch = prefetch;
+            this.consumers = consumers;
+        }
+
+        void acquire() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                // Лимит читается заново при каждом пробуждении: контроллер мог его изменить
+                while (inFlight >= consumers * prefetch.getPrefetch()) {
+                    hasRoom.await();
+                }
+                inFlight++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                inFlight--;
+                hasRoom.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Ограниченная очередь: сначала больший приоритет, внутри приоритета — порядок публикации.
+     */
+    private static final class MemoryQueue {
+
+        private final int capacity;
+        private final PriorityQueue<QueuedMessage> messages = new PriorityQueue<>((a, b) -> {
+            int byPriority = Integer.compare(b.priority, a.priority);
+            return byPriority != 0 ? byPriority : Long.compare(a.sequence, b.sequence);
+        });
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private long nextSequence;
+
+        MemoryQueue(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void put(Object payload, int priority) throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (messages.size() >= capacity) {
+                    notFull.await();
+                }
+                messages.add(new QueuedMessage(payload, priority, nextSequence++));
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Возврат не ждёт места: иначе потребитель мог бы заблокироваться на своей же очереди
+        void requeue(QueuedMessage message) {
+            lock.lock();
+            try {
+                messages.add(message);
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        QueuedMessage take() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (messages.isEmpty()) {
+                    notEmpty.await();
+                }
+                QueuedMessage message = messages.poll();
+                notFull.signal();
+                return message;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Состав задания: какие файлы вошли в корпус и какие номера секций и байты им соответствуют.
+ * Смещения считаются в корпусе как конкатенации файлов в порядке sourceFileId.
+ */
+public final class JobManifest {
+
+    private String jobId;
+    private String splitter;
+    private int totalSections;
+    private long totalBytes;
+    private List<SourceFile> files;
+
+    public JobManifest() {
+        this.files = new ArrayList<>();
+    }
+
+    public JobManifest(String jobId, String splitter) {
+        this.jobId = jobId;
+        this.splitter = splitter;
+        this.files = new ArrayList<>();
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getSplitter() {
+        return splitter;
+    }
+
+    public void setSplitter(String splitter) {
+        this.splitter = splitter;
+    }
+
+    public int getTotalSections() {
+        return totalSections;
+    }
+
+    public void setTotalSections(int totalSections) {
+        this.totalSections = totalSections;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public List<SourceFile> getFiles() {
+        return files;
+    }
+
+    public void setFiles(List<SourceFile> files) {
+        this.files = files != null ? new ArrayList<>(files) : new ArrayList<>();
+    }
+
+    @Override
+    public String toString() {
+        return "JobManifest{" +
+                "jobId='" + jobId + '\'' +
+                ", splitter='" + splitter + '\'' +
+                ", totalSections=" + totalSections +
+                ", totalBytes=" + totalBytes +
+                ", filesCount=" + (files != null ? files.size() : 0) +
+                '}';
+    }
+
+    public static final class SourceFile {
+
+        private int sourceFileId;
+        private String path;
+        private long sizeBytes;
+        private long corpusStartOffset;
+        private long corpusEndOffset;
+        private int firstSectionIndex;
+        private int sectionCount;
+
+        public SourceFile() {
+        }
+
+        public int getSourceFileId() {
+            return sourceFileId;
+        }
+
+        public void setSourceFileId(int sourceFileId) {
+            this.sourceFileId = sourceFileId;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        public void setSizeBytes(long sizeBytes) {
+            this.sizeBytes = sizeBytes;
+        }
+
+        public long getCorpusStartOffset() {
+            return corpusStartOffset;
+        }
+
+        public void setCorpusStartOffset(long corpusStartOffset) {
+            this.corpusStartOffset = corpusStartOffset;
+        }
+
+        public long getCorpusEndOffset() {
+            return corpusEndOffset;
+        }
+
+        public void setCorpusEndOffset(long corpusEndOffset) {
+            this.corpusEndOffset = corpusEndOffset;
+        }
+
+        public int getFirstSectionIndex() {
+            return firstSectionIndex;
+        }
+
+        public void setFirstSectionIndex(int firstSectionIndex) {
+            this.firstSectionIndex = firstSectionIndex;
+        }
+
+        public int getSectionCount() {
+            return sectionCount;
+        }
+
+        public void setSectionCount(int sectionCount) {
+            this.sectionCount = sectionCount;
+        }
+
+        @Override
+        public String toString() {
+            return "SourceFile{" +
+                    "sourceFileId=" + sourceFileId +
+                    ", path='" + path + '\'' +
+                    ", sizeBytes=" + sizeBytes +
+                    ", firstSectionIndex=" + firstSectionIndex +
+                    ", sectionCount=" + sectionCount +
+                    '}';
+        }
+    }
+}
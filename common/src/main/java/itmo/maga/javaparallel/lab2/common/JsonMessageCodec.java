@@ -0,0 +1,35 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * JSON через Jackson — исходный формат, остаётся запасным для клиентов без бинарного кодека.
+ */
+public final class JsonMessageCodec implements MessageCodec {
+
+    public static final String CONTENT_TYPE = "application/json";
+
+    private final ObjectMapper objectMapper;
+
+    public JsonMessageCodec() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.findAndRegisterModules();
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] encode(Object message) throws IOException {
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    @Override
+    public <T> T decode(byte[] body, Class<T> type) throws IOException {
+        return objectMapper.readValue(body, type);
+    }
+}
@@ -0,0 +1,15 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.io.IOException;
+
+/**
+ * Формат сообщений в очередях. Получатель выбирает кодек по AMQP-заголовку contentType.
+ */
+public interface MessageCodec {
+
+    String contentType();
+
+    byte[] encode(Object message) throws IOException;
+
+    <T> T decode(byte[] body, Class<T> type) throws IOException;
+}
@@ -0,0 +1,38 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.util.Locale;
+
+/**
+ * Выбор кодека: отправитель берёт настроенный (свойство lab2.codec: binary или json),
+ * получатель — по contentType входящего сообщения, JSON по умолчанию.
+ */
+public final class MessageCodecs {
+
+    private static final MessageCodec JSON = new JsonMessageCodec();
+    private static final MessageCodec BINARY = new BinaryMessageCodec();
+
+    private MessageCodecs() {
+    }
+
+    public static MessageCodec configured() {
+        return byName(System.getProperty("lab2.codec", "binary"));
+    }
+
+    public static MessageCodec byName(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "binary":
+                return BINARY;
+            case "json":
+                return JSON;
+            default:
+                throw new IllegalArgumentException("Unknown codec '" + name + "', expected binary or json");
+        }
+    }
+
+    public static MessageCodec forContentType(String contentType) {
+        if (contentType != null && contentType.startsWith(BinaryMessageCodec.CONTENT_TYPE)) {
+            return BINARY;
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,78 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Доставка сообщений между компонентами конвейера. Компоненты передают и получают объекты
+ * сообщений (TaskBatch, ResultBatch, FinalJobResult), а сериализация, сжатие и подтверждения —
+ * дело реализации: {@link RabbitTransport} работает через брокер, {@link InMemoryTransport} —
+ * через ограниченные очереди внутри одного процесса без сериализации.
+ */
+public interface MessageTransport extends AutoCloseable {
+
+    /**
+     * Обработка полученного сообщения. Возвращает ответ для публикации или null;
+     * исключение возвращает сообщение в очередь для повторной обработки.
+     */
+    @FunctionalInterface
+    interface MessageHandler<T> {
+        Reply handle(T message) throws Exception;
+    }
+
+    /**
+     * Ответ на сообщение. Входящее сообщение считается обработанным только после того,
+     * как ответ принят транспортом.
+     */
+    final class Reply {
+
+        private final String queue;
+        private final Object message;
+
+        public Reply(String queue, Object message) {
+            this.queue = queue;
+            this.message = message;
+        }
+
+        public String getQueue() {
+            return queue;
+        }
+
+        public Object getMessage() {
+            return message;
+        }
+    }
+
+    // maxPriority > 0 — очередь с приоритетами сообщений 0..maxPriority
+    void declareQueue(String queue, int maxPriority) throws IOException;
+
+    /**
+     * Публикация из потока приложения (не из обработчика: его ответ возвращается как Reply).
+     * Вызовы должны идти из одного потока. Возвращает описание размера сообщения для лога.
+     */
+    String publish(String queue, Object message, int priority, String description)
+            throws IOException, InterruptedException;
+
+    // Ждёт, пока все опубликованные через publish сообщения приняты
+    void awaitPublished(long timeoutMillis) throws IOException, InterruptedException, TimeoutException;
+
+    /**
+     * Подписка: consumers параллельных потребителей, у каждого не больше prefetch.getPrefetch()
+     * сообщений в обработке; транспорт сообщает контроллеру время обработки и применяет новые значения.
+     * processingExecutor == null — обработка в потоке потребителя.
+     */
+    <T> void consume(
+            String queue,
+            Class<T> type,
+            int consumers,
+            PrefetchController prefetch,
+            Executor processingExecutor,
+            MessageHandler<T> handler
+    ) throws IOException;
+
+    String describe();
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,215 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Замена имён по словарю за один проход по тексту: словарь воркера и имена, найденные во всём задании,
+ * которые агрегатор применяет к итоговому тексту.
+ * Имена собираются в префиксное дерево; поиск начинается только в позициях, где стоит граница слова,
+ * и совпадение принимается, если граница есть и после него — как у прежнего \bName\b.
+ * <p>
+ * Приоритеты:
+ * <ul>
+ *     <li>совпадения ищутся слева направо, найденный фрагмент заменяется и больше не просматривается
+ *     (замены не применяются к результату других замен);</li>
+ *     <li>из нескольких имён, начинающихся в одной позиции, выбирается самое длинное
+ *     ("Lewis Carroll" раньше "Lewis");</li>
+ *     <li>если после обрезки пробелов одно имя объявлено несколько раз, действует первое объявление.</li>
+ * </ul>
+ * Граница слова определяется как в java.util.regex на Java 17: словесные символы — буквы, цифры и '_',
+ * несамостоятельный диакритический знак относится к слову, если стоит после буквы или цифры.
+ */
+public final class NameReplacer {
+
+    private static final int NO_REPLACEMENT = -1;
+
+    // Рёбра узла node: edgeChars/edgeTargets[edgeStart[node], edgeStart[node + 1]), символы отсортированы
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    // Номер замены для узла, которым заканчивается имя, иначе NO_REPLACEMENT
+    private final int[] terminal;
+    private final String[] replacements;
+
+    private NameReplacer(int[] edgeStart, char[] edgeChars, int[] edgeTargets, int[] terminal, String[] replacements) {
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.terminal = terminal;
+        this.replacements = replacements;
+    }
+
+    /**
+     * Правила в порядке объявления: имя -> замена. Пустые имена и замены пропускаются.
+     */
+    public static NameReplacer compile(Map<String, String> rules) {
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Integer> terminals = new ArrayList<>();
+        List<String> replacements = new ArrayList<>();
+        children.add(new HashMap<>());
+        terminals.add(NO_REPLACEMENT);
+
+        for (Map.Entry<String, String> rule : rules.entrySet()) {
+            if (rule.getKey() == null || rule.getValue() == null) {
+                continue;
+            }
+            String name = rule.getKey().trim();
+            String replacement = rule.getValue().trim();
+            if (name.isEmpty() || replacement.isEmpty()) {
+                continue;
+            }
+
+            int node = 0;
+            for (int i = 0; i < name.length(); i++) {
+                Integer next = children.get(node).get(name.charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.get(node).put(name.charAt(i), next);
+                    children.add(new HashMap<>());
+                    terminals.add(NO_REPLACEMENT);
+                }
+                node = next;
+            }
+            if (terminals.get(node) == NO_REPLACEMENT) {
+                terminals.set(node, replacements.size());
+                replacements.add(replacement);
+            }
+        }
+
+        int nodeCount = children.size();
+        int[] edgeStart = new int[nodeCount + 1];
+        int edgeCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            edgeStart[node] = edgeCount;
+            edgeCount += children.get(node).size();
+        }
+        edgeStart[nodeCount] = edgeCount;
+
+        char[] edgeChars = new char[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        int[] terminal = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            Character[] keys = children.get(node).keySet().toArray(new Character[0]);
+            Arrays.sort(keys);
+            int edge = edgeStart[node];
+            for (Character key : keys) {
+                edgeChars[edge] = key;
+                edgeTargets[edge] = children.get(node).get(key);
+                edge++;
+            }
+            terminal[node] = terminals.get(node);
+        }
+
+        return new NameReplacer(edgeStart, edgeChars, edgeTargets, terminal, replacements.toArray(new String[0]));
+    }
+
+    public boolean isEmpty() {
+        return replacements.length == 0;
+    }
+
+    public int getRuleCount() {
+        return replacements.length;
+    }
+
+    /**
+     * Замены в тексте в виде правок исходного текста (см. TextEdits.apply).
+     */
+    public List<ResultMessage.TextEdit> findEdits(String text) {
+        List<ResultMessage.TextEdit> edits = new ArrayList<>();
+        if (text == null || text.isEmpty() || isEmpty()) {
+            return edits;
+        }
+
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            // Сначала дешёвая проверка первого символа, затем граница слова
+            int node = child(0, text.charAt(i));
+            if (node < 0 || !isBoundary(text, i)) {
+                i++;
+                continue;
+            }
+
+            // Самое длинное имя от позиции i, за которым тоже граница слова
+            int matchEnd = -1;
+            int matchReplacement = NO_REPLACEMENT;
+            if (terminal[node] != NO_REPLACEMENT && isBoundary(text, i + 1)) {
+                matchEnd = i + 1;
+                matchReplacement = terminal[node];
+            }
+            for (int j = i + 1; j < length; j++) {
+                node = child(node, text.charAt(j));
+                if (node < 0) {
+                    break;
+                }
+                if (terminal[node] != NO_REPLACEMENT && isBoundary(text, j + 1)) {
+                    matchEnd = j + 1;
+                    matchReplacement = terminal[node];
+                }
+            }
+
+            if (matchEnd < 0) {
+                i++;
+                continue;
+            }
+            edits.add(new ResultMessage.TextEdit(i, matchEnd - i, replacements[matchReplacement]));
+            i = matchEnd;
+        }
+        return edits;
+    }
+
+    private int child(int node, char c) {
+        int low = edgeStart[node];
+        int high = edgeStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    // Граница слова между позициями index - 1 и index
+    static boolean isBoundary(CharSequence text, int index) {
+        boolean left = index > 0 && isWordAt(text, index - Character.charCount(Character.codePointBefore(text, index)));
+        boolean right = index < text.length() && isWordAt(text, index);
+        return left != right;
+    }
+
+    private static boolean isWordAt(CharSequence text, int index) {
+        int codePoint = Character.codePointAt(text, index);
+        if (isWordCodePoint(codePoint)) {
+            return true;
+        }
+        if (Character.getType(codePoint) != Character.NON_SPACING_MARK) {
+            return false;
+        }
+        // Диакритика после буквы или цифры (не '_') считается частью слова
+        int i = index;
+        while (i > 0) {
+            int before = Character.codePointBefore(text, i);
+            if (Character.isLetterOrDigit(before)) {
+                return true;
+            }
+            if (Character.getType(before) != Character.NON_SPACING_MARK) {
+                return false;
+            }
+            i -= Character.charCount(before);
+        }
+        return false;
+    }
+
+    private static boolean isWordCodePoint(int codePoint) {
+        return codePoint == '_' || Character.isLetterOrDigit(codePoint);
+    }
+}
@@ -0,0 +1,170 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import com.rabbitmq.client.Channel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Подтверждения одного канала в порядке получения. Сообщения обрабатываются параллельно и
+ * завершаются в произвольном порядке, а ack отправляется только для непрерывного префикса
+ * завершённых тегов — одним basicAck(multiple = true) на весь префикс.
+ * <p>
+ * Задача с ответом считается завершённой только после publisher confirm её результата,
+ * поэтому задача не теряется между ack и публикацией (at-least-once). Готовый префикс
+ * копится до batchSize сообщений или maxDelay, а если в обработке ничего не осталось — отправляется сразу.
+ * Ошибочное сообщение и задача, результат которой брокер отверг, возвращаются в очередь сразу
+ * и из префикса исключаются.
+ */
+final class OrderedAcknowledger {
+
+    private final Channel channel;
+    private int batchSize;
+    private final long maxDelayNanos;
+
+    // deliveryTag -> обработка завершена
+    private final TreeMap<Long, Boolean> outstanding = new TreeMap<>();
+    // Номер публикации результата -> deliveryTag задачи, ждущей подтверждения брокера
+    private final TreeMap<Long, Long> awaitingConfirm = new TreeMap<>();
+
+    // Завершённый префикс, ещё не подтверждённый брокеру
+    private long readyTag = -1;
+    private int readyCount;
+    private long readySince;
+
+    private long acknowledged;
+    private long ackFrames;
+    private long rejected;
+
+    OrderedAcknowledger(Channel channel, int batchSize, long maxDelayMillis) {
+        this.channel = channel;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxDelayNanos = Math.max(0, maxDelayMillis) * 1_000_000L;
+    }
+
+    // Размер пачки следует за prefetch канала: готовый префикс не должен упираться в лимит брокера
+    synchronized void setBatchSize(int batchSize) throws IOException {
+        this.batchSize = Math.max(1, batchSize);
+        if (readyCount >= this.batchSize) {
+            flush();
+        }
+    }
+
+    synchronized void register(long deliveryTag) {
+        outstanding.put(deliveryTag, Boolean.FALSE);
+    }
+
+    // Задача без результата для публикации
+    synchronized void complete(long deliveryTag) throws IOException {
+        markCompleted(deliveryTag);
+        collectCompletedPrefix();
+    }
+
+    // Результат задачи опубликован под номером publishSeqNo, ждём confirm
+    synchronized void published(long publishSeqNo, long deliveryTag) {
+        awaitingConfirm.put(publishSeqNo, deliveryTag);
+    }
+
+    synchronized void confirmed(long publishSeqNo, boolean multiple) throws IOException {
+        for (long deliveryTag : removeAwaiting(publishSeqNo, multiple)) {
+            markCompleted(deliveryTag);
+        }
+        collectCompletedPrefix();
+    }
+
+    // Брокер не принял результат: задача возвращается в очередь и будет обработана заново
+    synchronized void publishFailed(long publishSeqNo, boolean multiple) throws IOException {
+        for (long deliveryTag : removeAwaiting(publishSeqNo, multiple)) {
+            System.err.println("Result for delivery " + deliveryTag + " was nacked by broker, requeueing task");
+            reject(deliveryTag);
+        }
+    }
+
+    synchronized void reject(long deliveryTag) throws IOException {
+        outstanding.remove(deliveryTag);
+        channel.basicNack(deliveryTag, false, true);
+        rejected++;
+        collectCompletedPrefix();
+    }
+
+    // Вызывается по таймеру: готовый префикс не ждёт дольше maxDelay
+    synchronized void flushIfStale() throws IOException {
+        if (readyCount > 0 && System.nanoTime() - readySince >= maxDelayNanos) {
+            flush();
+        }
+    }
+
+    synchronized int getOutstandingCount() {
+        return outstanding.size();
+    }
+
+    synchronized int getAwaitingConfirmCount() {
+        return awaitingConfirm.size();
+    }
+
+    synchronized long getAcknowledged() {
+        return acknowledged;
+    }
+
+    synchronized long getAckFrames() {
+        return ackFrames;
+    }
+
+    synchronized long getRejected() {
+        return rejected;
+    }
+
+    private void markCompleted(long deliveryTag) {
+        // Тег мог быть уже отклонён
+        if (outstanding.containsKey(deliveryTag)) {
+            outstanding.put(deliveryTag, Boolean.TRUE);
+        }
+    }
+
+    private List<Long> removeAwaiting(long publishSeqNo, boolean multiple) {
+        List<Long> deliveryTags = new ArrayList<>();
+        if (multiple) {
+            Map<Long, Long> head = awaitingConfirm.headMap(publishSeqNo, true);
+            deliveryTags.addAll(head.values());
+            head.clear();
+        } else {
+            Long deliveryTag = awaitingConfirm.remove(publishSeqNo);
+            if (deliveryTag != null) {
+                deliveryTags.add(deliveryTag);
+            }
+        }
+        return deliveryTags;
+    }
+
+    private void collectCompletedPrefix() throws IOException {
+        while (!outstanding.isEmpty()) {
+            Map.Entry<Long, Boolean> first = outstanding.firstEntry();
+            if (!first.getValue()) {
+                break;
+            }
+            if (readyCount == 0) {
+                readySince = System.nanoTime();
+            }
+            readyTag = first.getKey();
+            readyCount++;
+            outstanding.pollFirstEntry();
+        }
+        if (readyCount >= batchSize || (readyCount > 0 && outstanding.isEmpty())) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (readyCount == 0) {
+            return;
+        }
+        // Все меньшие теги уже подтверждены или отклонены, multiple затрагивает только этот префикс
+        channel.basicAck(readyTag, readyCount > 1);
+        acknowledged += readyCount;
+        ackFrames++;
+        readyCount = 0;
+    }
+}
@@ -0,0 +1,168 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Сжатие тел сообщений больше порога. Алгоритм передаётся в AMQP-заголовке contentEncoding,
+ * получатель распаковывает по нему; тело без заголовка считается несжатым.
+ * Настройки: lab2.compression (gzip, deflate или none), lab2.compression.level (0-9),
+ * lab2.compression.thresholdBytes, lab2.compression.maxDecompressedBytes (предел распакованного тела).
+ */
+public final class PayloadCompression {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final String NONE = "none";
+
+    private static final int DEFAULT_THRESHOLD_BYTES = 4 * 1024;
+    private static final int READ_CHUNK_BYTES = 64 * 1024;
+
+    // Несколько килобайт сжатых данных могут распаковаться в гигабайты; больше предела тело не читается
+    private static final long MAX_DECOMPRESSED_BYTES =
+            Long.getLong("lab2.compression.maxDecompressedBytes", 512L * 1024 * 1024);
+
+    private final String algorithm;
+    private final int level;
+    private final int thresholdBytes;
+
+    public PayloadCompression(String algorithm, int level, int thresholdBytes) {
+        String normalized = algorithm.trim().toLowerCase(Locale.ROOT);
+        if (!normalized.equals(GZIP) && !normalized.equals(DEFLATE) && !normalized.equals(NONE)) {
+            throw new IllegalArgumentException(
+                    "Unknown compression '" + algorithm + "', expected gzip, deflate or none"
+            );
+        }
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be within 0..9: " + level);
+        }
+        this.algorithm = normalized;
+        this.level = level;
+        this.thresholdBytes = Math.max(0, thresholdBytes);
+    }
+
+    public static PayloadCompression configured() {
+        return new PayloadCompression(
+                System.getProperty("lab2.compression", GZIP),
+                Integer.getInteger("lab2.compression.level", Deflater.BEST_SPEED),
+                Integer.getInteger("lab2.compression.thresholdBytes", DEFAULT_THRESHOLD_BYTES)
+        );
+    }
+
+    // Возвращает сжатое тело или исходное, если оно меньше порога либо сжатие не дало выигрыша
+    public Payload compress(byte[] body) throws IOException {
+        if (algorithm.equals(NONE) || body.length < thresholdBytes) {
+            return new Payload(body, null);
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        if (algorithm.equals(GZIP)) {
+            try (GZIPOutputStream out = new LeveledGzipOutputStream(buffer, level)) {
+                out.write(body);
+            }
+        } else {
+            // Собственный Deflater поток не освобождает сам, поэтому end() вызывается явно
+            Deflater deflater = new Deflater(level);
+            try (DeflaterOutputStream out = new DeflaterOutputStream(buffer, deflater)) {
+                out.write(body);
+            } finally {
+                deflater.end();
+            }
+        }
+
+        byte[] compressed = buffer.toByteArray();
+        if (compressed.length >= body.length) {
+            return new Payload(body, null);
+        }
+        return new Payload(compressed, algorithm);
+    }
+
+    public static byte[] decompress(byte[] body, String contentEncoding) throws IOException {
+        return decompress(body, contentEncoding, MAX_DECOMPRESSED_BYTES);
+    }
+
+    static byte[] decompress(byte[] body, String contentEncoding, long maxBytes) throws IOException {
+        if (contentEncoding == null || contentEncoding.isEmpty() || contentEncoding.equalsIgnoreCase("identity")) {
+            return body;
+        }
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        InputStream in;
+        if (encoding.equals(GZIP)) {
+            in = new GZIPInputStream(new ByteArrayInputStream(body));
+        } else if (encoding.equals(DEFLATE)) {
+            in = new InflaterInputStream(new ByteArrayInputStream(body));
+        } else {
+            throw new IOException("Unsupported content encoding: " + contentEncoding);
+        }
+        try (InputStream stream = in) {
+            return readLimited(stream, Math.min(maxBytes, Integer.MAX_VALUE - 8), body.length);
+        }
+    }
+
+    private static byte[] readLimited(InputStream in, long maxBytes, int compressedLength) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(maxBytes, 4L * compressedLength + 64));
+        byte[] chunk = new byte[READ_CHUNK_BYTES];
+        long total = 0;
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                throw new IOException(
+                        "Decompressed body exceeds " + maxBytes + " bytes (lab2.compression.maxDecompressedBytes)"
+                );
+            }
+            out.write(chunk, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return algorithm.equals(NONE)
+                ? NONE
+                : algorithm + " (level " + level + ", threshold " + thresholdBytes + " bytes)";
+    }
+
+    /**
+     * Тело сообщения и значение contentEncoding для него (null — без сжатия).
+     */
+    public static final class Payload {
+
+        private final byte[] body;
+        private final String contentEncoding;
+
+        Payload(byte[] body, String contentEncoding) {
+            this.body = body;
+            this.contentEncoding = contentEncoding;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getContentEncoding() {
+            return contentEncoding;
+        }
+
+        public boolean isCompressed() {
+            return contentEncoding != null;
+        }
+    }
+
+    // GZIPOutputStream не принимает уровень сжатия в конструкторе
+    private static final class LeveledGzipOutputStream extends GZIPOutputStream {
+
+        LeveledGzipOutputStream(ByteArrayOutputStream out, int level) throws IOException {
+            super(out);
+            def.setLevel(level);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.util.Locale;
+
+/**
+ * Адаптивный prefetch потребителей одной очереди. Оценка задержки сообщения, которое пришло
+ * последним в окно prefetch: время разобрать окно = prefetch × среднее время обработки / число
+ * сообщений, обрабатываемых потребителем одновременно. Контроллер держит эту оценку около целевой
+ * задержки: мелкие сообщения получают глубокий prefetch (брокер не ждёт ack перед следующей доставкой),
+ * а большие секции — мелкий, чтобы один потребитель не забирал работу у остальных.
+ * <p>
+ * Значение пересчитывается не чаще раза в интервал, меняется не больше чем вдвое за шаг и только
+ * при отклонении оценки от цели больше чем на четверть; границы задаются настройками.
+ * Транспорт сообщает о начале и конце обработки и сам применяет текущее значение.
+ */
+public final class PrefetchController {
+
+    private static final int DEFAULT_MIN = 1;
+    private static final int DEFAULT_MAX = 64;
+    private static final long DEFAULT_TARGET_LATENCY_MILLIS = 500L;
+    private static final long DEFAULT_INTERVAL_MILLIS = 1_000L;
+
+    // Полоса вокруг цели, внутри которой значение не меняется
+    private static final double TOLERANCE = 1.25;
+
+    private final String name;
+    private final int min;
+    private final int max;
+    private final long targetLatencyNanos;
+    private final long intervalNanos;
+
+    private volatile int prefetch;
+    private volatile String lastChangeReason;
+    private int changes;
+
+    private int consumers = 1;
+
+    // Выборка текущего интервала
+    private int running;
+    private long intervalStartedAt;
+    private long samples;
+    private long serviceNanosSum;
+    private long concurrencySum;
+    private int peakRunning;
+
+    public PrefetchController(String name, int initial, int min, int max, long targetLatencyMillis, long intervalMillis) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("Invalid prefetch bounds for " + name + ": " + min + ".." + max);
+        }
+        if (targetLatencyMillis <= 0) {
+            throw new IllegalArgumentException("Target latency must be positive: " + targetLatencyMillis);
+        }
+        this.name = name;
+        this.min = min;
+        this.max = max;
+        this.targetLatencyNanos = targetLatencyMillis * 1_000_000L;
+        this.intervalNanos = Math.max(1L, intervalMillis) * 1_000_000L;
+        this.prefetch = clamp(initial);
+        this.lastChangeReason = "initial value";
+        this.intervalStartedAt = System.nanoTime();
+    }
+
+    /**
+     * Постоянный prefetch без адаптации.
+     */
+    public static PrefetchController fixed(String name, int prefetch) {
+        int value = Math.max(1, prefetch);
+        return new PrefetchController(name, value, value, value, DEFAULT_TARGET_LATENCY_MILLIS, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Настройки из свойств с префиксом компонента, например lab2.worker: .prefetch (начальное значение),
+     * .prefetchMin, .prefetchMax, .targetLatencyMs и .prefetchIntervalMs. Min == max выключает адаптацию.
+     */
+    public static PrefetchController configured(String propertyPrefix, String name, int defaultInitial) {
+        int min = Integer.getInteger(propertyPrefix + ".prefetchMin", DEFAULT_MIN);
+        int max = Integer.getInteger(propertyPrefix + ".prefetchMax", Math.max(DEFAULT_MAX, min));
+        return new PrefetchController(
+                name,
+                Integer.getInteger(propertyPrefix + ".prefetch", defaultInitial),
+                min,
+                max,
+                Long.getLong(propertyPrefix + ".targetLatencyMs", DEFAULT_TARGET_LATENCY_MILLIS),
+                Long.getLong(propertyPrefix + ".prefetchIntervalMs", DEFAULT_INTERVAL_MILLIS)
+        );
+    }
+
+    // Значение относится к каждому потребителю; транспорт сообщает, сколько их делят контроллер
+    public synchronized void setConsumers(int consumers) {
+        this.consumers = Math.max(1, consumers);
+    }
+
+    public boolean isAdaptive() {
+        return min < max;
+    }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    public String getLastChangeReason() {
+        return lastChangeReason;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public long getTargetLatencyMillis() {
+        return targetLatencyNanos / 1_000_000L;
+    }
+
+    /**
+     * Обработка сообщения началась; возвращает метку времени для {@link #finished(long)}.
+     */
+    public synchronized long started() {
+        running++;
+        concurrencySum += running;
+        peakRunning = Math.max(peakRunning, running);
+        return System.nanoTime();
+    }
+
+    /**
+     * Обработка сообщения завершилась (успешно или нет). Возвращает true, если prefetch изменился.
+     */
+    public synchronized boolean finished(long startedAt) {
+        long now = System.nanoTime();
+        running = Math.max(0, running - 1);
+        samples++;
+        serviceNanosSum += Math.max(0L, now - startedAt);
+
+        if (!isAdaptive() || now - intervalStartedAt < intervalNanos) {
+            return false;
+        }
+        boolean changed = adjust();
+        resetInterval(now);
+        return changed;
+    }
+
+    public synchronized String describe() {
+        if (!isAdaptive()) {
+            return "prefetch " + prefetch + " (fixed)";
+        }
+        return "prefetch " + prefetch + " (adaptive " + min + ".." + max +
+                ", target " + getTargetLatencyMillis() + " ms, " + changes + " change(s), last: " +
+                lastChangeReason + ")";
+    }
+
+    private boolean adjust() {
+        if (samples == 0) {
+            return false;
+        }
+        double serviceNanos = (double) serviceNanosSum / samples;
+        // Одновременно обрабатываемых сообщений на одного потребителя; меньше одного,
+        // если потребители делят общий пул, в котором потоков меньше, чем их
+        double concurrency = (double) concurrencySum / samples / consumers;
+        double drainNanos = prefetch * serviceNanos / concurrency;
+
+        if (drainNanos <= targetLatencyNanos * TOLERANCE && drainNanos * TOLERANCE >= targetLatencyNanos) {
+            return false;
+        }
+
+        // Не больше чем вдвое за шаг: одна выборка не должна бросать значение от границы к границе
+        double ideal = targetLatencyNanos * concurrency / Math.max(1.0, serviceNanos);
+        int next = (int) Math.max(prefetch / 2.0, Math.min(prefetch * 2.0, Math.floor(ideal)));
+        next = clamp(next);
+        if (next == prefetch) {
+            return false;
+        }
+
+        String reason = String.format(
+                Locale.ROOT,
+                "%s %d -> %d: %.1f ms/message, %.1f in parallel, estimated window latency %.0f ms vs target %d ms " +
+                        "over %d message(s), peak %d in flight",
+                next > prefetch ? "raised" : "lowered", prefetch, next,
+                serviceNanos / 1_000_000.0, concurrency, drainNanos / 1_000_000.0, getTargetLatencyMillis(),
+                samples, peakRunning
+        );
+        System.out.println("Prefetch for " + name + " " + reason);
+        prefetch = next;
+        lastChangeReason = reason;
+        changes++;
+        return true;
+    }
+
+    private void resetInterval(long now) {
+        intervalStartedAt = now;
+        samples = 0;
+        serviceNanosSum = 0;
+        concurrencySum = 0;
+        peakRunning = running;
+    }
+
+    private int clamp(int value) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
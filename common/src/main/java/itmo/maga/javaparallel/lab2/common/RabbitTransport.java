@@ -0,0 +1,311 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.Delivery;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Транспорт через RabbitMQ. Сообщения кодируются настроенным кодеком (lab2.codec) и сжимаются
+ * (lab2.compression), получатель выбирает кодек и распаковку по contentType и contentEncoding.
+ * Публикация из приложения идёт через {@link ConfirmingPublisher} (publisher confirms, окно, повторы),
+ * потребители — через {@link ConsumerChannel}: ответ публикуется с подтверждением, а входящее
+ * сообщение подтверждается пачкой после подтверждения ответа (at-least-once).
+ */
+public final class RabbitTransport implements MessageTransport {
+
+    /**
+     * Параметры подключения, публикации и подтверждений; по умолчанию — прежние значения компонентов.
+     */
+    public static final class Settings {
+
+        private String host = "localhost";
+        private int port = 5672;
+        private String username = "labuser";
+        private String password = "labpassword";
+
+        // Потоки доставки соединения; 0 — пул клиента по умолчанию
+        private int connectionThreads;
+
+        private int publishWindow = 256;
+        private long confirmTimeoutMillis = 30_000L;
+        private int maxPublishAttempts = 5;
+
+        private int ackBatchSize = 32;
+        private long ackMaxDelayMillis = 20L;
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public int getConnectionThreads() {
+            return connectionThreads;
+        }
+
+        public void setConnectionThreads(int connectionThreads) {
+            this.connectionThreads = connectionThreads;
+        }
+
+        public int getPublishWindow() {
+            return publishWindow;
+        }
+
+        public void setPublishWindow(int publishWindow) {
+            this.publishWindow = publishWindow;
+        }
+
+        public long getConfirmTimeoutMillis() {
+            return confirmTimeoutMillis;
+        }
+
+        public void setConfirmTimeoutMillis(long confirmTimeoutMillis) {
+            this.confirmTimeoutMillis = confirmTimeoutMillis;
+        }
+
+        public int getMaxPublishAttempts() {
+            return maxPublishAttempts;
+        }
+
+        public void setMaxPublishAttempts(int maxPublishAttempts) {
+            this.maxPublishAttempts = maxPublishAttempts;
+        }
+
+        public int getAckBatchSize() {
+            return ackBatchSize;
+        }
+
+        public void setAckBatchSize(int ackBatchSize) {
+            this.ackBatchSize = ackBatchSize;
+        }
+
+        public long getAckMaxDelayMillis() {
+            return ackMaxDelayMillis;
+        }
+
+        public void setAckMaxDelayMillis(long ackMaxDelayMillis) {
+            this.ackMaxDelayMillis = ackMaxDelayMillis;
+        }
+    }
+
+    private final Settings settings;
+    private final ExecutorService connectionPool;
+    private final Connection connection;
+
+    private final MessageCodec codec = MessageCodecs.configured();
+    private final PayloadCompression compression = PayloadCompression.configured();
+    private final AMQP.BasicProperties messageProperties;
+
+    // Объявление очередей и публикация из потока приложения
+    private final Channel controlChannel;
+    private ConfirmingPublisher publisher;
+
+    private final List<ConsumerChannel> consumerChannels = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService ackTimer;
+
+    public RabbitTransport(Settings settings) throws IOException, TimeoutException {
+        this.settings = settings;
+
+        ConnectionFactory factory = new ConnectionFactory();
+        factory.setHost(settings.getHost());
+        factory.setPort(settings.getPort());
+        factory.setUsername(settings.getUsername());
+        factory.setPassword(settings.getPassword());
+
+        // По потоку доставки на канал, чтобы каналы не ждали друг друга
+        if (settings.getConnectionThreads() > 0) {
+            this.connectionPool = Executors.newFixedThreadPool(settings.getConnectionThreads());
+            this.connection = factory.newConnection(connectionPool);
+        } else {
+            this.connectionPool = null;
+            this.connection = factory.newConnection();
+        }
+        this.controlChannel = connection.createChannel();
+
+        this.messageProperties = new AMQP.BasicProperties.Builder()
+                .contentType(codec.contentType())
+                .deliveryMode(2)
+                .build();
+    }
+
+    @Override
+    public synchronized void declareQueue(String queue, int maxPriority) throws IOException {
+        Map<String, Object> arguments = null;
+        if (maxPriority > 0) {
+            arguments = new HashMap<>();
+            arguments.put("x-max-priority", maxPriority);
+        }
+        controlChannel.queueDeclare(queue, true, false, false, arguments);
+    }
+
+    // Возвращает размер тела для лога: "N bytes" или "N bytes gzip from M"
+    @Override
+    public String publish(String queue, Object message, int priority, String description)
+            throws IOException, InterruptedException {
+        if (publisher == null) {
+            publisher = new ConfirmingPublisher(
+                    controlChannel,
+                    settings.getPublishWindow(),
+                    settings.getConfirmTimeoutMillis(),
+                    settings.getMaxPublishAttempts()
+            );
+        }
+
+        byte[] encoded = codec.encode(message);
+        PayloadCompression.Payload payload = compression.compress(encoded);
+        AMQP.BasicProperties properties = propertiesFor(payload, priority);
+        publisher.publish(queue, properties, payload.getBody(), description);
+
+        return payload.isCompressed()
+                ? payload.getBody().length + " bytes " + payload.getContentEncoding() + " from " + encoded.length
+                : encoded.length + " bytes";
+    }
+
+    @Override
+    public void awaitPublished(long timeoutMillis) throws IOException, InterruptedException, TimeoutException {
+        if (publisher == null) {
+            return;
+        }
+        publisher.awaitAllConfirmed(timeoutMillis);
+        publisher.logSummary();
+    }
+
+    @Override
+    public <T> void consume(
+            String queue,
+            Class<T> type,
+            int consumers,
+            PrefetchController prefetch,
+            Executor processingExecutor,
+            MessageHandler<T> handler
+    ) throws IOException {
+        prefetch.setConsumers(consumers);
+        ConsumerChannel.DeliveryHandler deliveryHandler = delivery -> toReply(handler.handle(decode(delivery, type)));
+
+        for (int i = 0; i < Math.max(1, consumers); i++) {
+            ConsumerChannel consumer = new ConsumerChannel(
+                    queue + "/" + i,
+                    connection.createChannel(),
+                    processingExecutor,
+                    deliveryHandler,
+                    prefetch,
+                    settings.getAckBatchSize(),
+                    settings.getAckMaxDelayMillis()
+            );
+            consumer.start(queue);
+            consumerChannels.add(consumer);
+        }
+        startAckTimer();
+    }
+
+    @Override
+    public String describe() {
+        return "RabbitMQ " + settings.getHost() + ":" + settings.getPort() +
+                " (codec " + codec.contentType() + ", compression " + compression + ")";
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (ackTimer != null) {
+                ackTimer.shutdownNow();
+            }
+        }
+        try {
+            connection.close();
+        } finally {
+            if (connectionPool != null) {
+                connectionPool.shutdown();
+            }
+        }
+    }
+
+    // Готовые, но не набравшие пачку подтверждения отправляются по таймеру; он же применяет новый prefetch
+    private synchronized void startAckTimer() {
+        if (ackTimer != null) {
+            return;
+        }
+        long delay = Math.max(1L, settings.getAckMaxDelayMillis());
+        ackTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ack-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ackTimer.scheduleWithFixedDelay(() -> {
+            for (ConsumerChannel consumer : consumerChannels) {
+                consumer.applyPrefetch();
+                consumer.flushStaleAcks();
+            }
+        }, delay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private ConsumerChannel.Reply toReply(Reply reply) throws IOException {
+        if (reply == null) {
+            return null;
+        }
+        PayloadCompression.Payload payload = compression.compress(codec.encode(reply.getMessage()));
+        return new ConsumerChannel.Reply(reply.getQueue(), propertiesFor(payload, 0), payload.getBody());
+    }
+
+    private AMQP.BasicProperties propertiesFor(PayloadCompression.Payload payload, int priority) {
+        if (!payload.isCompressed() && priority <= 0) {
+            return messageProperties;
+        }
+        AMQP.BasicProperties.Builder builder = messageProperties.builder();
+        if (payload.isCompressed()) {
+            builder.contentEncoding(payload.getContentEncoding());
+        }
+        if (priority > 0) {
+            builder.priority(priority);
+        }
+        return builder.build();
+    }
+
+    private static <T> T decode(Delivery delivery, Class<T> type) throws IOException {
+        byte[] body = PayloadCompression.decompress(
+                delivery.getBody(), delivery.getProperties().getContentEncoding()
+        );
+        MessageCodec codec = MessageCodecs.forContentType(delivery.getProperties().getContentType());
+        return codec.decode(body, type);
+    }
+}
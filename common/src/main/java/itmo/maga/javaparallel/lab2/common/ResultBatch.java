@@ -0,0 +1,46 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Результаты обработки всех секций одного {@link TaskBatch}.
+ */
+public final class ResultBatch {
+
+    private String jobId;
+    private List<ResultMessage> results;
+
+    public ResultBatch() {
+        this.results = new ArrayList<>();
+    }
+
+    public ResultBatch(String jobId, List<ResultMessage> results) {
+        this.jobId = jobId;
+        this.results = results != null ? new ArrayList<>(results) : new ArrayList<>();
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public List<ResultMessage> getResults() {
+        return results;
+    }
+
+    public void setResults(List<ResultMessage> results) {
+        this.results = results != null ? new ArrayList<>(results) : new ArrayList<>();
+    }
+
+    @Override
+    public String toString() {
+        return "ResultBatch{" +
+                "jobId='" + jobId + '\'' +
+                ", resultsCount=" + (results != null ? results.size() : 0) +
+                '}';
+    }
+}
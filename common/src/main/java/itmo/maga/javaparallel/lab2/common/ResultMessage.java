@@ -8,17 +8,47 @@ public final class ResultMessage {
     private String jobId;
     private int sectionIndex;
     private int totalSections;
+    private int sourceFileId;
+    // Склейка с предыдущей секцией в итоговом тексте (см. TaskMessage.continuationSeparator)
+    private String continuationSeparator;
     private int wordCount;
     private List<WordFrequency> topWords;
+    // Размер топа, запрошенный для задания (см. TaskMessage)
+    private int topN = TaskMessage.DEFAULT_TOP_N;
+    // Все слова секции с частотами для точного глобального топа; null — только topWords
+    private WordFrequencyTable wordFrequencies;
 
-    private int sentimentScore;
+    // Сумма весов тональных слов и фраз секции с учётом отрицаний и усилителей
+    private double sentimentScore;
     private int positiveWordCount;
     private int negativeWordCount;
+    // Вероятности классов тональности по байесовскому классификатору в порядке классов модели;
+    // null — задание не просило классификацию
+    private List<ClassProbability> classProbabilities;
 
+    // Секция после замен: либо целиком, либо правками исходного текста из SectionStore
+    // (textEdits != null, transformedSectionText == null)
     private String transformedSectionText;
+    private List<TextEdit> textEdits;
+    // Упорядоченные предложения секции (позиции в тексте после замен) для слияния в агрегаторе
+    private SentenceRun sentences;
+
+    // Имена, найденные эвристикой в секции, с их заменами
+    private List<DetectedName> detectedNames;
+
+    // SHA-256 исходного текста секции
+    private String contentHash;
+    // Заглушка от продюсера: сам результат агрегатор берёт из ResultStore (см. ResultStore.keyFor)
+    private boolean fromCache;
+    // Параметры задания и версия настроек воркера, с которыми посчитан результат
+    private SentimentMode sentimentMode = SentimentMode.LEXICON;
+    private String analysisVersion;
+    // Ответ воркера на TaskMessage.versionProbe: только analysisVersion
+    private boolean versionProbe;
 
     public ResultMessage() {
         this.topWords = new ArrayList<>();
+        this.detectedNames = new ArrayList<>();
     }
 
     public ResultMessage(
@@ -38,7 +68,7 @@ public final class ResultMessage {
             int totalSections,
             int wordCount,
             List<WordFrequency> topWords,
-            int sentimentScore,
+            double sentimentScore,
             int positiveWordCount,
             int negativeWordCount
     ) {
@@ -52,7 +82,7 @@ public final class ResultMessage {
             int totalSections,
             int wordCount,
             List<WordFrequency> topWords,
-            int sentimentScore,
+            double sentimentScore,
             int positiveWordCount,
             int negativeWordCount,
             String transformedSectionText
@@ -62,6 +92,7 @@ public final class ResultMessage {
         this.totalSections = totalSections;
         this.wordCount = wordCount;
         this.topWords = topWords != null ? new ArrayList<>(topWords) : new ArrayList<>();
+        this.detectedNames = new ArrayList<>();
         this.sentimentScore = sentimentScore;
         this.positiveWordCount = positiveWordCount;
         this.negativeWordCount = negativeWordCount;
@@ -92,6 +123,22 @@ public final class ResultMessage {
         this.totalSections = totalSections;
     }
 
+    public int getSourceFileId() {
+        return sourceFileId;
+    }
+
+    public void setSourceFileId(int sourceFileId) {
+        this.sourceFileId = sourceFileId;
+    }
+
+    public String getContinuationSeparator() {
+        return continuationSeparator;
+    }
+
+    public void setContinuationSeparator(String continuationSeparator) {
+        this.continuationSeparator = continuationSeparator;
+    }
+
     public int getWordCount() {
         return wordCount;
     }
@@ -108,11 +155,11 @@ public final class ResultMessage {
         this.topWords = topWords != null ? new ArrayList<>(topWords) : new ArrayList<>();
     }
 
-    public int getSentimentScore() {
+    public double getSentimentScore() {
         return sentimentScore;
     }
 
-    public void setSentimentScore(int sentimentScore) {
+    public void setSentimentScore(double sentimentScore) {
         this.sentimentScore = sentimentScore;
     }
 
@@ -132,6 +179,14 @@ public final class ResultMessage {
         this.negativeWordCount = negativeWordCount;
     }
 
+    public List<ClassProbability> getClassProbabilities() {
+        return classProbabilities;
+    }
+
+    public void setClassProbabilities(List<ClassProbability> classProbabilities) {
+        this.classProbabilities = classProbabilities != null ? new ArrayList<>(classProbabilities) : null;
+    }
+
     public String getTransformedSectionText() {
         return transformedSectionText;
     }
@@ -140,19 +195,109 @@ public final class ResultMessage {
         this.transformedSectionText = transformedSectionText;
     }
 
+    public List<TextEdit> getTextEdits() {
+        return textEdits;
+    }
+
+    public void setTextEdits(List<TextEdit> textEdits) {
+        this.textEdits = textEdits != null ? new ArrayList<>(textEdits) : null;
+    }
+
+    public SentenceRun getSentences() {
+        return sentences;
+    }
+
+    public void setSentences(SentenceRun sentences) {
+        this.sentences = sentences;
+    }
+
+    public WordFrequencyTable getWordFrequencies() {
+        return wordFrequencies;
+    }
+
+    public void setWordFrequencies(WordFrequencyTable wordFrequencies) {
+        this.wordFrequencies = wordFrequencies;
+    }
+
+    public List<DetectedName> getDetectedNames() {
+        return detectedNames;
+    }
+
+    public void setDetectedNames(List<DetectedName> detectedNames) {
+        this.detectedNames = detectedNames != null ? new ArrayList<>(detectedNames) : new ArrayList<>();
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public SentimentMode getSentimentMode() {
+        return sentimentMode;
+    }
+
+    public void setSentimentMode(SentimentMode sentimentMode) {
+        this.sentimentMode = sentimentMode != null ? sentimentMode : SentimentMode.LEXICON;
+    }
+
+    public String getAnalysisVersion() {
+        return analysisVersion;
+    }
+
+    public void setAnalysisVersion(String analysisVersion) {
+        this.analysisVersion = analysisVersion;
+    }
+
+    public boolean isVersionProbe() {
+        return versionProbe;
+    }
+
+    public void setVersionProbe(boolean versionProbe) {
+        this.versionProbe = versionProbe;
+    }
+
+    public int getTopN() {
+        return topN;
+    }
+
+    public void setTopN(int topN) {
+        this.topN = topN;
+    }
+
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
+    public void setFromCache(boolean fromCache) {
+        this.fromCache = fromCache;
+    }
+
     @Override
     public String toString() {
         return "ResultMessage{" +
                 "jobId='" + jobId + '\'' +
                 ", sectionIndex=" + sectionIndex +
                 ", totalSections=" + totalSections +
+                ", sourceFileId=" + sourceFileId +
+                ", continuesParagraph=" + (continuationSeparator != null) +
                 ", wordCount=" + wordCount +
+                ", topN=" + topN +
                 ", sentimentScore=" + sentimentScore +
                 ", positiveWordCount=" + positiveWordCount +
                 ", negativeWordCount=" + negativeWordCount +
+                ", classProbabilities=" + classProbabilities +
+                ", fromCache=" + fromCache +
+                ", sentimentMode=" + sentimentMode +
+                ", analysisVersion=" + analysisVersion +
+                ", versionProbe=" + versionProbe +
                 ", transformedSectionTextLength=" +
                 (transformedSectionText != null ? transformedSectionText.length() : 0) +
+                ", textEdits=" + (textEdits != null ? textEdits.size() : "none") +
                 ", topWords=" + topWords +
+                ", detectedNames=" + (detectedNames != null ? detectedNames.size() : 0) +
                 '}';
     }
 
@@ -193,4 +338,149 @@ public final class ResultMessage {
                     '}';
         }
     }
+
+    /**
+     * Класс тональности (метка из модели классификатора) и его вероятность.
+     */
+    public static final class ClassProbability {
+
+        private String label;
+        private double probability;
+
+        public ClassProbability() {
+        }
+
+        public ClassProbability(String label, double probability) {
+            this.label = label;
+            this.probability = probability;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public void setLabel(String label) {
+            this.label = label;
+        }
+
+        public double getProbability() {
+            return probability;
+        }
+
+        public void setProbability(double probability) {
+            this.probability = probability;
+        }
+
+        @Override
+        public String toString() {
+            return "ClassProbability{" +
+                    "label='" + label + '\'' +
+                    ", probability=" + probability +
+                    '}';
+        }
+    }
+
+    /**
+     * Найденное имя, его замена и число вхождений.
+     */
+    public static final class DetectedName {
+
+        private String name;
+        private String replacement;
+        private int count;
+
+        public DetectedName() {
+        }
+
+        public DetectedName(String name, String replacement, int count) {
+            this.name = name;
+            this.replacement = replacement;
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getReplacement() {
+            return replacement;
+        }
+
+        public void setReplacement(String replacement) {
+            this.replacement = replacement;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public String toString() {
+            return "DetectedName{" +
+                    "name='" + name + '\'' +
+                    ", replacement='" + replacement + '\'' +
+                    ", count=" + count +
+                    '}';
+        }
+    }
+
+    /**
+     * Замена фрагмента исходного текста [offset, offset + length) строкой replacement.
+     */
+    public static final class TextEdit {
+
+        private int offset;
+        private int length;
+        private String replacement;
+
+        public TextEdit() {
+        }
+
+        public TextEdit(int offset, int length, String replacement) {
+            this.offset = offset;
+            this.length = length;
+            this.replacement = replacement;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public void setOffset(int offset) {
+            this.offset = offset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public void setLength(int length) {
+            this.length = length;
+        }
+
+        public String getReplacement() {
+            return replacement;
+        }
+
+        public void setReplacement(String replacement) {
+            this.replacement = replacement;
+        }
+
+        @Override
+        public String toString() {
+            return "TextEdit{" +
+                    "offset=" + offset +
+                    ", length=" + length +
+                    ", replacement='" + replacement + '\'' +
+                    '}';
+        }
+    }
 }
@@ -0,0 +1,129 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+/**
+ * Локальное хранилище результатов секций. Ключ (keyFor) — хэш содержимого секции вместе с параметрами
+ * задания (topN, режим тональности) и версией настроек воркера: результат, посчитанный с другим
+ * словарём, правилами замены или моделью, под новым ключом не найдётся.
+ * Продюсер проверяет наличие результата, агрегатор сохраняет новые результаты и подтягивает сохранённые.
+ * Версию настроек знает только воркер: перед заданием продюсер отправляет воркерам пробную задачу
+ * (TaskMessage.versionProbe), агрегатор записывает ответ в каталог probes, продюсер ждёт его там.
+ * Файлы раскладываются по подкаталогам по первым двум символам ключа.
+ */
+public final class ResultStore {
+
+    private static final String PROBE_DIRECTORY = "probes";
+    private static final long PROBE_POLL_MILLIS = 20L;
+    // jobId становится именем файла
+    private static final Pattern SAFE_JOB_ID = Pattern.compile("[A-Za-z0-9._-]{1,128}");
+
+    private final Path root;
+    private final ObjectMapper objectMapper;
+
+    public ResultStore(Path root) throws IOException {
+        this.root = root;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.findAndRegisterModules();
+        Files.createDirectories(root);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Ключ результата; null, если у секции нет хэша или версия настроек воркера неизвестна.
+     */
+    public static String keyFor(String contentHash, int topN, SentimentMode sentimentMode, String analysisVersion) {
+        if (!ContentHashes.isSha256Hex(contentHash) || analysisVersion == null) {
+            return null;
+        }
+        return ContentHashes.sha256Hex(contentHash + ':' + topN + ':' + sentimentMode + ':' + analysisVersion);
+    }
+
+    public static String keyFor(ResultMessage result) {
+        return keyFor(
+                result.getContentHash(), result.getTopN(), result.getSentimentMode(), result.getAnalysisVersion()
+        );
+    }
+
+    public boolean contains(String key) {
+        return ContentHashes.isSha256Hex(key) && Files.isRegularFile(pathFor(key));
+    }
+
+    // Возвращает сохранённый результат или null, если его нет
+    public ResultMessage load(String key) throws IOException {
+        if (!contains(key)) {
+            return null;
+        }
+        return objectMapper.readValue(pathFor(key).toFile(), ResultMessage.class);
+    }
+
+    public void save(String key, ResultMessage result) throws IOException {
+        if (!ContentHashes.isSha256Hex(key)) {
+            throw new IllegalArgumentException("Not a SHA-256 result key: " + key);
+        }
+        Path target = pathFor(key);
+        Files.createDirectories(target.getParent());
+        writeAtomically(target, key, temp -> objectMapper.writeValue(temp.toFile(), result));
+    }
+
+    // Агрегатор: ответ воркера на пробную задачу задания
+    public void saveProbeReply(String jobId, String analysisVersion) throws IOException {
+        Path target = probePath(jobId);
+        Files.createDirectories(target.getParent());
+        writeAtomically(target, "probe", temp -> Files.write(temp, analysisVersion.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Продюсер: версия настроек воркера из ответа на пробную задачу или null, если ответа нет за timeoutMillis.
+     * Прочитанный ответ удаляется.
+     */
+    public String awaitProbeReply(String jobId, long timeoutMillis) throws IOException, InterruptedException {
+        Path path = probePath(jobId);
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        while (!Files.isRegularFile(path)) {
+            if (System.nanoTime() >= deadline) {
+                return null;
+            }
+            Thread.sleep(PROBE_POLL_MILLIS);
+        }
+        String version = new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim();
+        Files.deleteIfExists(path);
+        return version.isEmpty() ? null : version;
+    }
+
+    private Path probePath(String jobId) {
+        if (jobId == null || !SAFE_JOB_ID.matcher(jobId).matches()) {
+            throw new IllegalArgumentException("Job id cannot be used as a file name: " + jobId);
+        }
+        return root.resolve(PROBE_DIRECTORY).resolve(jobId);
+    }
+
+    private Path pathFor(String key) {
+        return root.resolve(key.substring(0, 2)).resolve(key + ".json");
+    }
+
+    // Запись через временный файл, чтобы читатель не увидел половину содержимого
+    private static void writeAtomically(Path target, String prefix, TempFileWriter writer) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), prefix, ".tmp");
+        try {
+            writer.write(temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private interface TempFileWriter {
+        void write(Path temp) throws IOException;
+    }
+}
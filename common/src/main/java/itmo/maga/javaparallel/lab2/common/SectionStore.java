@@ -0,0 +1,79 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Хранилище исходных текстов секций по хэшу содержимого.
+ * Продюсер кладёт текст перед отправкой, агрегатор восстанавливает по нему секции,
+ * для которых воркер прислал только правки. Раскладка каталогов — как у ResultStore.
+ * Агрегатор отмечается в корне хранилища файлом-маркером: без него продюсер не просит воркеров
+ * присылать правки, потому что восстановить по ним текст будет некому.
+ */
+public final class SectionStore {
+
+    private static final String READER_MARKER = "aggregator.reader";
+
+    private final Path root;
+
+    public SectionStore(Path root) throws IOException {
+        this.root = root;
+        Files.createDirectories(root);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    // Вызывает агрегатор при старте: он читает это хранилище и сможет применить правки
+    public void registerReader() throws IOException {
+        Path marker = root.resolve(READER_MARKER);
+        if (!Files.isRegularFile(marker)) {
+            Files.write(marker, new byte[0]);
+        }
+    }
+
+    public boolean hasReader() {
+        return Files.isRegularFile(root.resolve(READER_MARKER));
+    }
+
+    public boolean contains(String contentHash) {
+        return ContentHashes.isSha256Hex(contentHash) && Files.isRegularFile(pathFor(contentHash));
+    }
+
+    // Возвращает исходный текст или null, если его нет
+    public String load(String contentHash) throws IOException {
+        if (!contains(contentHash)) {
+            return null;
+        }
+        return new String(Files.readAllBytes(pathFor(contentHash)), StandardCharsets.UTF_8);
+    }
+
+    // Текст с тем же хэшем уже лежит в хранилище — повторно не пишется
+    public void save(String contentHash, String text) throws IOException {
+        if (!ContentHashes.isSha256Hex(contentHash)) {
+            throw new IllegalArgumentException("Not a SHA-256 content hash: " + contentHash);
+        }
+        Path target = pathFor(contentHash);
+        if (Files.isRegularFile(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+
+        Path temp = Files.createTempFile(target.getParent(), contentHash, ".tmp");
+        try {
+            // Как при кодировании сообщений: одиночный суррогат становится '?', а не ошибкой
+            Files.write(temp, text.getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path pathFor(String contentHash) {
+        return root.resolve(contentHash.substring(0, 2)).resolve(contentHash + ".txt");
+    }
+}
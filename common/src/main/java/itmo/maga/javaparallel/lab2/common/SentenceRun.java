@@ -0,0 +1,68 @@
+package itmo.maga.javaparallel.lab2.common;
+
+/**
+ * Предложения секции, уже упорядоченные воркером (см. SentenceSplitter.ORDER).
+ * bounds — пары [начало, конец) в тексте секции после замен; в них только предложения,
+ * ограниченные разрывами с обеих сторон внутри секции. Начало секции до первого разрыва (headEnd)
+ * и конец после последнего (tailStart) могут продолжаться в соседних секциях и склеиваются агрегатором.
+ */
+public final class SentenceRun {
+
+    public static final int NO_BREAK = -1;
+
+    private int[] bounds;
+    // Начало первого разрыва и конец последнего; NO_BREAK — в секции нет ни одного разрыва
+    private int headEnd = NO_BREAK;
+    private int tailStart = NO_BREAK;
+
+    public SentenceRun() {
+        this.bounds = new int[0];
+    }
+
+    public SentenceRun(int[] bounds, int headEnd, int tailStart) {
+        this.bounds = bounds;
+        this.headEnd = headEnd;
+        this.tailStart = tailStart;
+    }
+
+    public int[] getBounds() {
+        return bounds;
+    }
+
+    public void setBounds(int[] bounds) {
+        this.bounds = bounds != null ? bounds : new int[0];
+    }
+
+    public int getHeadEnd() {
+        return headEnd;
+    }
+
+    public void setHeadEnd(int headEnd) {
+        this.headEnd = headEnd;
+    }
+
+    public int getTailStart() {
+        return tailStart;
+    }
+
+    public void setTailStart(int tailStart) {
+        this.tailStart = tailStart;
+    }
+
+    public int size() {
+        return bounds.length / 2;
+    }
+
+    public boolean hasBreaks() {
+        return headEnd != NO_BREAK;
+    }
+
+    @Override
+    public String toString() {
+        return "SentenceRun{" +
+                "sentences=" + size() +
+                ", headEnd=" + headEnd +
+                ", tailStart=" + tailStart +
+                '}';
+    }
+}
@@ -0,0 +1,161 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Разбиение текста на предложения без регулярных выражений.
+ * Разрыв — максимальная последовательность пробельных символов (\s) сразу после '.', '!' или '?',
+ * как в прежнем split("(?<=[.!?])\\s+"). Предложение обрезается по String.trim,
+ * переводы строк внутри заменяются пробелами ("\r\n" и '\n' — на один пробел каждый).
+ */
+public final class SentenceSplitter {
+
+    // Короткие предложения раньше, при равной длине — по алфавиту
+    public static final Comparator<String> ORDER = (s1, s2) -> {
+        int c = Integer.compare(s1.length(), s2.length());
+        if (c != 0) {
+            return c;
+        }
+        return s1.compareTo(s2);
+    };
+
+    private SentenceSplitter() {
+    }
+
+    /**
+     * Упорядоченные предложения секции и границы её краёв для склейки с соседями.
+     */
+    public static SentenceRun split(String text) {
+        if (text == null || text.isEmpty()) {
+            return new SentenceRun();
+        }
+
+        int[] bounds = new int[16];
+        int boundCount = 0;
+        int headEnd = SentenceRun.NO_BREAK;
+        int pieceStart = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (!isTerminator(c) || i + 1 >= length || !isSpace(text.charAt(i + 1))) {
+                i++;
+                continue;
+            }
+            int breakStart = i + 1;
+            int breakEnd = breakStart + 1;
+            while (breakEnd < length && isSpace(text.charAt(breakEnd))) {
+                breakEnd++;
+            }
+
+            if (headEnd == SentenceRun.NO_BREAK) {
+                headEnd = breakStart;
+            } else {
+                int start = trimStart(text, pieceStart, breakStart);
+                int end = trimEnd(text, start, breakStart);
+                if (start < end) {
+                    if (boundCount + 2 > bounds.length) {
+                        bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                    }
+                    bounds[boundCount++] = start;
+                    bounds[boundCount++] = end;
+                }
+            }
+            pieceStart = breakEnd;
+            i = breakEnd;
+        }
+
+        int tailStart = headEnd == SentenceRun.NO_BREAK ? SentenceRun.NO_BREAK : pieceStart;
+        return new SentenceRun(sortBounds(text, bounds, boundCount), headEnd, tailStart);
+    }
+
+    // Предложения run в его порядке
+    public static List<String> sentences(String text, SentenceRun run) {
+        int[] bounds = run.getBounds();
+        List<String> sentences = new ArrayList<>(bounds.length / 2);
+        for (int i = 0; i + 1 < bounds.length; i += 2) {
+            sentences.add(sentence(text, bounds[i], bounds[i + 1]));
+        }
+        return sentences;
+    }
+
+    /**
+     * Все предложения текста, упорядоченные по ORDER.
+     */
+    public static List<String> sortedSentences(String text) {
+        List<String> sentences = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return sentences;
+        }
+        SentenceRun run = split(text);
+        if (!run.hasBreaks()) {
+            addTrimmed(sentences, text, 0, text.length());
+            return sentences;
+        }
+        sentences.addAll(sentences(text, run));
+        addTrimmed(sentences, text, 0, run.getHeadEnd());
+        addTrimmed(sentences, text, run.getTailStart(), text.length());
+        sentences.sort(ORDER);
+        return sentences;
+    }
+
+    private static int[] sortBounds(String text, int[] bounds, int boundCount) {
+        int count = boundCount / 2;
+        String[] sentences = new String[count];
+        Integer[] order = new Integer[count];
+        for (int k = 0; k < count; k++) {
+            sentences[k] = sentence(text, bounds[2 * k], bounds[2 * k + 1]);
+            order[k] = k;
+        }
+        Arrays.sort(order, (a, b) -> ORDER.compare(sentences[a], sentences[b]));
+
+        int[] sorted = new int[boundCount];
+        for (int k = 0; k < count; k++) {
+            sorted[2 * k] = bounds[2 * order[k]];
+            sorted[2 * k + 1] = bounds[2 * order[k] + 1];
+        }
+        return sorted;
+    }
+
+    private static void addTrimmed(List<String> sentences, String text, int from, int to) {
+        int start = trimStart(text, from, to);
+        int end = trimEnd(text, start, to);
+        if (start < end) {
+            sentences.add(sentence(text, start, end));
+        }
+    }
+
+    private static String sentence(String text, int start, int end) {
+        String sentence = text.substring(start, end);
+        if (sentence.indexOf('\n') < 0) {
+            return sentence;
+        }
+        return sentence.replace("\r\n", " ").replace('\n', ' ');
+    }
+
+    private static int trimStart(String text, int from, int to) {
+        while (from < to && text.charAt(from) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(String text, int from, int to) {
+        while (to > from && text.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isTerminator(char c) {
+        return c == '.' || c == '!' || c == '?';
+    }
+
+    // \s в java.util.regex без UNICODE_CHARACTER_CLASS
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,34 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.util.Locale;
+
+/**
+ * Чем задание оценивает тональность секций.
+ */
+public enum SentimentMode {
+
+    // Взвешенный словарь с отрицаниями и усилителями
+    LEXICON,
+    // Наивный байесовский классификатор: вероятности классов секции
+    BAYES,
+    // Оба способа
+    BOTH;
+
+    public boolean usesLexicon() {
+        return this != BAYES;
+    }
+
+    public boolean usesClassifier() {
+        return this != LEXICON;
+    }
+
+    public static SentimentMode fromName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    "Unknown sentiment mode '" + name + "', expected lexicon, bayes or both", e
+            );
+        }
+    }
+}
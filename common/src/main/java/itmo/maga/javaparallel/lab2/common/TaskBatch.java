@@ -0,0 +1,46 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Конверт с несколькими секциями одного задания: одна доставка и один ack на весь пакет.
+ */
+public final class TaskBatch {
+
+    private String jobId;
+    private List<TaskMessage> tasks;
+
+    public TaskBatch() {
+        this.tasks = new ArrayList<>();
+    }
+
+    public TaskBatch(String jobId, List<TaskMessage> tasks) {
+        this.jobId = jobId;
+        this.tasks = tasks != null ? new ArrayList<>(tasks) : new ArrayList<>();
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public List<TaskMessage> getTasks() {
+        return tasks;
+    }
+
+    public void setTasks(List<TaskMessage> tasks) {
+        this.tasks = tasks != null ? new ArrayList<>(tasks) : new ArrayList<>();
+    }
+
+    @Override
+    public String toString() {
+        return "TaskBatch{" +
+                "jobId='" + jobId + '\'' +
+                ", tasksCount=" + (tasks != null ? tasks.size() : 0) +
+                '}';
+    }
+}
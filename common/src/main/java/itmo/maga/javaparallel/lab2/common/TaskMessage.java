@@ -2,19 +2,43 @@ package itmo.maga.javaparallel.lab2.common;
 
 public final class TaskMessage {
 
+    // Сколько самых частых слов возвращать, если продюсер не задал другое значение
+    public static final int DEFAULT_TOP_N = 10;
+
     private String jobId;
     private int sectionIndex;
+    // 0 — число секций ещё неизвестно (потоковая отправка); итог приходит с последней секцией
     private int totalSections;
     private String sectionText;
+    // Номер исходного файла корпуса (см. JobManifest)
+    private int sourceFileId;
+    // Пробелы исходного текста, на которых секция отрезана от предыдущей посреди параграфа;
+    // null — секция начинает параграф, и агрегатор ставит между секциями пустую строку
+    private String continuationSeparator;
+    // SHA-256 текста секции (ключ ResultStore)
+    private String contentHash;
+    // Размер топа частых слов для секции и всего задания
+    private int topN = DEFAULT_TOP_N;
+    // Исходный текст лежит в SectionStore: воркер может вернуть правки вместо всего текста
+    private boolean originalStored;
+    // Словарь тональности, байесовский классификатор или оба
+    private SentimentMode sentimentMode = SentimentMode.LEXICON;
+    // Запрос версии настроек воркера перед дедупликацией (см. ResultStore): без текста, секцией не считается
+    private boolean versionProbe;
 
     public TaskMessage() {
     }
 
     public TaskMessage(String jobId, int sectionIndex, int totalSections, String sectionText) {
+        this(jobId, sectionIndex, totalSections, sectionText, 0);
+    }
+
+    public TaskMessage(String jobId, int sectionIndex, int totalSections, String sectionText, int sourceFileId) {
         this.jobId = jobId;
         this.sectionIndex = sectionIndex;
         this.totalSections = totalSections;
         this.sectionText = sectionText;
+        this.sourceFileId = sourceFileId;
     }
 
     public String getJobId() {
@@ -49,12 +73,74 @@ public final class TaskMessage {
         this.sectionText = sectionText;
     }
 
+    public int getSourceFileId() {
+        return sourceFileId;
+    }
+
+    public void setSourceFileId(int sourceFileId) {
+        this.sourceFileId = sourceFileId;
+    }
+
+    public String getContinuationSeparator() {
+        return continuationSeparator;
+    }
+
+    public void setContinuationSeparator(String continuationSeparator) {
+        this.continuationSeparator = continuationSeparator;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public int getTopN() {
+        return topN;
+    }
+
+    public void setTopN(int topN) {
+        this.topN = topN;
+    }
+
+    public boolean isOriginalStored() {
+        return originalStored;
+    }
+
+    public void setOriginalStored(boolean originalStored) {
+        this.originalStored = originalStored;
+    }
+
+    public SentimentMode getSentimentMode() {
+        return sentimentMode;
+    }
+
+    public void setSentimentMode(SentimentMode sentimentMode) {
+        this.sentimentMode = sentimentMode != null ? sentimentMode : SentimentMode.LEXICON;
+    }
+
+    public boolean isVersionProbe() {
+        return versionProbe;
+    }
+
+    public void setVersionProbe(boolean versionProbe) {
+        this.versionProbe = versionProbe;
+    }
+
     @Override
     public String toString() {
         return "TaskMessage{" +
                 "jobId='" + jobId + '\'' +
                 ", sectionIndex=" + sectionIndex +
                 ", totalSections=" + totalSections +
+                ", sourceFileId=" + sourceFileId +
+                ", continuesParagraph=" + (continuationSeparator != null) +
+                ", topN=" + topN +
+                ", originalStored=" + originalStored +
+                ", sentimentMode=" + sentimentMode +
+                ", versionProbe=" + versionProbe +
                 ", sectionTextLength=" + (sectionText != null ? sectionText.length() : 0) +
                 '}';
     }
@@ -0,0 +1,188 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Операции над списком правок текста (ResultMessage.TextEdit).
+ * Правки в списке упорядочены по offset и не пересекаются; offset и length — в символах (char) исходного текста.
+ */
+public final class TextEdits {
+
+    // Примерные накладные расходы на правку в бинарном формате: два varint и ссылка на строку
+    private static final int EDIT_OVERHEAD_BYTES = 6;
+
+    private TextEdits() {
+    }
+
+    // Текст после правок; без правок возвращается тот же экземпляр
+    public static String apply(String original, List<ResultMessage.TextEdit> edits) {
+        if (edits == null || edits.isEmpty()) {
+            return original;
+        }
+        StringBuilder out = new StringBuilder(original.length() + 16);
+        appendTo(out, original, edits);
+        return out.toString();
+    }
+
+    // Дописывает текст после правок в out, не создавая промежуточной строки секции
+    public static void appendTo(StringBuilder out, String original, List<ResultMessage.TextEdit> edits) {
+        int copiedUpTo = 0;
+        if (edits != null) {
+            for (ResultMessage.TextEdit edit : edits) {
+                int offset = edit.getOffset();
+                int end = offset + edit.getLength();
+                if (offset < copiedUpTo || end > original.length() || edit.getLength() < 0) {
+                    throw new IllegalArgumentException(
+                            "Edit " + edit + " does not fit text of length " + original.length() +
+                                    " after position " + copiedUpTo
+                    );
+                }
+                out.append(original, copiedUpTo, offset);
+                if (edit.getReplacement() != null) {
+                    out.append(edit.getReplacement());
+                }
+                copiedUpTo = end;
+            }
+        }
+        out.append(original, copiedUpTo, original.length());
+    }
+
+    /**
+     * Объединяет две последовательные серии правок: first относится к исходному тексту,
+     * second — к тексту после first. Результат применяется к исходному тексту и даёт тот же итог.
+     * Правка second, задевающая замену из first, сливается с ней в одну правку исходного текста.
+     */
+    public static List<ResultMessage.TextEdit> compose(
+            List<ResultMessage.TextEdit> first,
+            List<ResultMessage.TextEdit> second
+    ) {
+        if (second == null || second.isEmpty()) {
+            return first != null ? first : new ArrayList<>();
+        }
+        if (first == null || first.isEmpty()) {
+            return second;
+        }
+
+        List<ResultMessage.TextEdit> composed = new ArrayList<>(first.size() + second.size());
+        int i = 0;
+        // Разница между позициями в промежуточном и исходном тексте перед first[i]
+        int shift = 0;
+
+        // Собираемая правка исходного текста: начало, конец и замена
+        StringBuilder group = null;
+        int groupStart = 0;
+        int groupEnd = 0;
+        // Замена из first, внутри которой закончилась последняя правка second, и её непрочитанный хвост
+        ResultMessage.TextEdit tail = null;
+        int tailStart = 0;
+        int tailFrom = 0;
+
+        for (ResultMessage.TextEdit outer : second) {
+            int start = outer.getOffset();
+            int end = start + outer.getLength();
+
+            if (tail != null && start < tailStart + replacementLength(tail)) {
+                // Следующая правка в той же замене: продолжаем ту же правку исходного текста
+                group.append(tail.getReplacement(), tailFrom, start - tailStart);
+                appendReplacement(group, outer);
+                if (end < tailStart + replacementLength(tail)) {
+                    tailFrom = end - tailStart;
+                    continue;
+                }
+                tail = null;
+            } else {
+                if (group != null) {
+                    composed.add(closeGroup(group, groupStart, groupEnd, tail, tailFrom));
+                    tail = null;
+                }
+
+                // Правки first, целиком лежащие до начала outer, переходят без изменений
+                while (i < first.size() && shiftedEnd(first.get(i), shift) <= start) {
+                    ResultMessage.TextEdit inner = first.get(i++);
+                    composed.add(inner);
+                    shift += replacementLength(inner) - inner.getLength();
+                }
+
+                group = new StringBuilder();
+                if (i < first.size() && first.get(i).getOffset() + shift < start) {
+                    // outer начинается внутри замены: захватываем её начало
+                    ResultMessage.TextEdit inner = first.get(i);
+                    groupStart = inner.getOffset();
+                    group.append(inner.getReplacement(), 0, start - (inner.getOffset() + shift));
+                } else {
+                    groupStart = start - shift;
+                }
+                appendReplacement(group, outer);
+            }
+
+            // Замены first, которые задевает outer, поглощаются
+            groupEnd = -1;
+            while (i < first.size() && first.get(i).getOffset() + shift < end) {
+                ResultMessage.TextEdit inner = first.get(i++);
+                int innerStart = inner.getOffset() + shift;
+                shift += replacementLength(inner) - inner.getLength();
+                if (innerStart + replacementLength(inner) > end) {
+                    // outer заканчивается внутри замены: её хвост допишется при закрытии правки
+                    tail = inner;
+                    tailStart = innerStart;
+                    tailFrom = end - innerStart;
+                    groupEnd = inner.getOffset() + inner.getLength();
+                    break;
+                }
+            }
+            if (groupEnd < 0) {
+                groupEnd = end - shift;
+            }
+        }
+        if (group != null) {
+            composed.add(closeGroup(group, groupStart, groupEnd, tail, tailFrom));
+        }
+        while (i < first.size()) {
+            composed.add(first.get(i++));
+        }
+        return composed;
+    }
+
+    /**
+     * Примерный размер правок при передаче; сравнивается с длиной текста,
+     * чтобы решить, что дешевле отправить.
+     */
+    public static long estimatedSize(List<ResultMessage.TextEdit> edits) {
+        if (edits == null) {
+            return 0;
+        }
+        long size = 0;
+        for (ResultMessage.TextEdit edit : edits) {
+            size += EDIT_OVERHEAD_BYTES + replacementLength(edit);
+        }
+        return size;
+    }
+
+    private static ResultMessage.TextEdit closeGroup(
+            StringBuilder group,
+            int start,
+            int end,
+            ResultMessage.TextEdit tail,
+            int tailFrom
+    ) {
+        if (tail != null) {
+            group.append(tail.getReplacement(), tailFrom, replacementLength(tail));
+        }
+        return new ResultMessage.TextEdit(start, end - start, group.toString());
+    }
+
+    private static void appendReplacement(StringBuilder group, ResultMessage.TextEdit edit) {
+        if (edit.getReplacement() != null) {
+            group.append(edit.getReplacement());
+        }
+    }
+
+    private static int shiftedEnd(ResultMessage.TextEdit edit, int shift) {
+        return edit.getOffset() + shift + replacementLength(edit);
+    }
+
+    private static int replacementLength(ResultMessage.TextEdit edit) {
+        return edit.getReplacement() != null ? edit.getReplacement().length() : 0;
+    }
+}
@@ -0,0 +1,303 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Счётчик слов с открытой адресацией и примитивными значениями.
+ * Слова, их хэши и счётчики лежат в параллельных массивах в порядке добавления,
+ * таблица хранит номер слова + 1 (0 — пустая ячейка), коллизии разрешаются линейным пробированием.
+ * Поиск по фрагменту char[] не создаёт строку: String появляется только для нового слова.
+ * Хэш совпадает с String.hashCode, поэтому строки из счётчика не пересчитывают его в других коллекциях.
+ * Не потокобезопасен.
+ */
+public final class WordCounter {
+
+    private static final int DEFAULT_EXPECTED_SIZE = 256;
+    private static final float MAX_LOAD_FACTOR = 0.5f;
+
+    // После очистки не держим таблицу, разросшуюся на огромной секции
+    private static final int MAX_RETAINED_TABLE_SIZE = 1 << 16;
+
+    private int[] table;
+    private int mask;
+
+    private String[] words;
+    private int[] hashes;
+    private int[] counts;
+    private int size;
+
+    public WordCounter() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    public WordCounter(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String wordAt(int index) {
+        return words[index];
+    }
+
+    public int countAt(int index) {
+        return counts[index];
+    }
+
+    /**
+     * Прибавляет delta к счётчику слова buffer[offset, offset + length) и возвращает номер слова.
+     */
+    public int add(char[] buffer, int offset, int length, int delta) {
+        int hash = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int index = entry - 1;
+            if (hashes[index] == hash && matches(words[index], buffer, offset, length)) {
+                counts[index] += delta;
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(slot, new String(buffer, offset, length), hash, delta);
+    }
+
+    /**
+     * То же для фрагмента text[start, end) без создания строки.
+     */
+    public int add(CharSequence text, int start, int end, int delta) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int index = entry - 1;
+            if (hashes[index] == hash && matches(words[index], text, start, end)) {
+                counts[index] += delta;
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(slot, text.subSequence(start, end).toString(), hash, delta);
+    }
+
+    public int add(String word, int delta) {
+        int hash = word.hashCode();
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int index = entry - 1;
+            if (hashes[index] == hash && words[index].equals(word)) {
+                counts[index] += delta;
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(slot, word, hash, delta);
+    }
+
+    public void addAll(WordCounter other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.words[i], other.counts[i]);
+        }
+    }
+
+    // 0, если слова нет
+    public int get(String word) {
+        int index = indexOf(word);
+        return index >= 0 ? counts[index] : 0;
+    }
+
+    // Номер слова или -1, если слова нет
+    public int indexOf(String word) {
+        int hash = word.hashCode();
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int index = entry - 1;
+            if (hashes[index] == hash && words[index].equals(word)) {
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public void clear() {
+        if (table.length > MAX_RETAINED_TABLE_SIZE) {
+            allocate(tableSizeFor(DEFAULT_EXPECTED_SIZE));
+            return;
+        }
+        Arrays.fill(table, 0);
+        Arrays.fill(words, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Самые частые слова: по убыванию частоты, при равенстве — по алфавиту.
+     * Отбор через min-кучу из limit элементов: O(V log N) вместо сортировки всего словаря.
+     */
+    public List<ResultMessage.WordFrequency> topWords(int limit) {
+        int k = Math.min(limit, size);
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+
+        // В корне кучи — самое слабое из отобранных слов
+        int[] heap = new int[k];
+        int heapSize = 0;
+        for (int index = 0; index < size; index++) {
+            if (heapSize < k) {
+                heap[heapSize] = index;
+                siftUp(heap, heapSize);
+                heapSize++;
+            } else if (ranksHigher(index, heap[0])) {
+                heap[0] = index;
+                siftDown(heap, k);
+            }
+        }
+
+        ResultMessage.WordFrequency[] top = new ResultMessage.WordFrequency[k];
+        for (int remaining = k; remaining > 0; remaining--) {
+            int weakest = heap[0];
+            heap[0] = heap[remaining - 1];
+            siftDown(heap, remaining - 1);
+            top[remaining - 1] = new ResultMessage.WordFrequency(words[weakest], counts[weakest]);
+        }
+        return new ArrayList<>(Arrays.asList(top));
+    }
+
+    private boolean ranksHigher(int a, int b) {
+        if (counts[a] != counts[b]) {
+            return counts[a] > counts[b];
+        }
+        return words[a].compareTo(words[b]) < 0;
+    }
+
+    private void siftUp(int[] heap, int position) {
+        int node = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!ranksHigher(heap[parent], node)) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = node;
+    }
+
+    private void siftDown(int[] heap, int heapSize) {
+        if (heapSize == 0) {
+            return;
+        }
+        int position = 0;
+        int node = heap[0];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && ranksHigher(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!ranksHigher(node, heap[child])) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = node;
+    }
+
+    private int insert(int slot, String word, int hash, int delta) {
+        if (size == words.length) {
+            int newLength = words.length * 2;
+            words = Arrays.copyOf(words, newLength);
+            hashes = Arrays.copyOf(hashes, newLength);
+            counts = Arrays.copyOf(counts, newLength);
+        }
+        int index = size++;
+        words[index] = word;
+        hashes[index] = hash;
+        counts[index] = delta;
+        table[slot] = index + 1;
+
+        if (size > table.length * MAX_LOAD_FACTOR) {
+            rehash(table.length * 2);
+        }
+        return index;
+    }
+
+    private void rehash(int newTableSize) {
+        table = new int[newTableSize];
+        mask = newTableSize - 1;
+        for (int index = 0; index < size; index++) {
+            int slot = spread(hashes[index]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = index + 1;
+        }
+    }
+
+    private void allocate(int tableSize) {
+        table = new int[tableSize];
+        mask = tableSize - 1;
+        int entries = (int) (tableSize * MAX_LOAD_FACTOR);
+        words = new String[entries];
+        hashes = new int[entries];
+        counts = new int[entries];
+        size = 0;
+    }
+
+    private static boolean matches(String word, CharSequence text, int start, int end) {
+        if (word.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (word.charAt(i - start) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String word, char[] buffer, int offset, int length) {
+        if (word.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Хэш String плохо распределён по младшим битам, перемешиваем перед взятием по маске
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int required = (int) Math.ceil(Math.max(1, expectedSize) / MAX_LOAD_FACTOR);
+        return Math.max(16, Integer.highestOneBit(required - 1) << 1);
+    }
+}
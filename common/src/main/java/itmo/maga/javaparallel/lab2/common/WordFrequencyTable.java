@@ -0,0 +1,76 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Полная таблица частот слов секции: слова и счётчики в параллельных массивах.
+ * В бинарном формате слова пишутся через таблицу строк сообщения, поэтому слово,
+ * повторяющееся в секциях одного пакета, передаётся один раз.
+ */
+public final class WordFrequencyTable {
+
+    private List<String> words;
+    private int[] counts;
+
+    public WordFrequencyTable() {
+        this.words = new ArrayList<>();
+        this.counts = new int[0];
+    }
+
+    public WordFrequencyTable(List<String> words, int[] counts) {
+        if (words.size() != counts.length) {
+            throw new IllegalArgumentException(
+                    "Word and count arrays differ in length: " + words.size() + " vs " + counts.length
+            );
+        }
+        this.words = words;
+        this.counts = counts;
+    }
+
+    public static WordFrequencyTable of(WordCounter counter) {
+        int size = counter.size();
+        List<String> words = new ArrayList<>(size);
+        int[] counts = new int[size];
+        for (int i = 0; i < size; i++) {
+            words.add(counter.wordAt(i));
+            counts[i] = counter.countAt(i);
+        }
+        return new WordFrequencyTable(words, counts);
+    }
+
+    public List<String> getWords() {
+        return words;
+    }
+
+    public void setWords(List<String> words) {
+        this.words = words != null ? words : new ArrayList<>();
+    }
+
+    public int[] getCounts() {
+        return counts;
+    }
+
+    public void setCounts(int[] counts) {
+        this.counts = counts != null ? counts : new int[0];
+    }
+
+    public void addTo(WordCounter target) {
+        int size = Math.min(words.size(), counts.length);
+        for (int i = 0; i < size; i++) {
+            String word = words.get(i);
+            if (word != null && !word.isEmpty() && counts[i] > 0) {
+                target.add(word, counts[i]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WordFrequencyTable{" +
+                "size=" + words.size() +
+                ", totalCount=" + Arrays.stream(counts).asLongStream().sum() +
+                '}';
+    }
+}
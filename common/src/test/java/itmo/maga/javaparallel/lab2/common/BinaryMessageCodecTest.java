@@ -0,0 +1,185 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Сообщения после кодирования и декодирования бинарным кодеком совпадают с исходными.
+ * Сравниваются JSON-представления: в них попадают все свойства сообщений, в том числе null.
+ */
+class BinaryMessageCodecTest {
+
+    private final BinaryMessageCodec binary = new BinaryMessageCodec();
+    private final JsonMessageCodec json = new JsonMessageCodec();
+
+    @Test
+    void taskMessages() throws IOException {
+        assertRoundTrip(fullTask(3), TaskMessage.class);
+        assertRoundTrip(new TaskMessage(), TaskMessage.class);
+
+        TaskMessage emptyStrings = fullTask(0);
+        emptyStrings.setSectionText("");
+        emptyStrings.setContinuationSeparator("");
+        TaskMessage decoded = assertRoundTrip(emptyStrings, TaskMessage.class);
+        assertEquals("", decoded.getContinuationSeparator());
+
+        TaskMessage newParagraph = fullTask(1);
+        newParagraph.setContinuationSeparator(null);
+        assertNull(assertRoundTrip(newParagraph, TaskMessage.class).getContinuationSeparator());
+    }
+
+    @Test
+    void taskBatches() throws IOException {
+        List<TaskMessage> tasks = Arrays.asList(fullTask(0), fullTask(1), new TaskMessage());
+        assertRoundTrip(new TaskBatch("job-1", tasks), TaskBatch.class);
+        assertRoundTrip(new TaskBatch("job-1", new ArrayList<>()), TaskBatch.class);
+    }
+
+    @Test
+    void resultMessages() throws IOException {
+        assertRoundTrip(fullResult(5), ResultMessage.class);
+        assertRoundTrip(new ResultMessage(), ResultMessage.class);
+
+        ResultMessage edits = fullResult(2);
+        edits.setTransformedSectionText(null);
+        edits.setTextEdits(Arrays.asList(
+                new ResultMessage.TextEdit(0, 5, "Bob"),
+                new ResultMessage.TextEdit(5, 0, "Bob"),
+                new ResultMessage.TextEdit(9, 3, null)
+        ));
+        assertRoundTrip(edits, ResultMessage.class);
+    }
+
+    @Test
+    void resultBatches() throws IOException {
+        assertRoundTrip(new ResultBatch("job-1", Arrays.asList(fullResult(0), new ResultMessage())), ResultBatch.class);
+    }
+
+    @Test
+    void finalResults() throws IOException {
+        FinalJobResult result = new FinalJobResult();
+        result.setJobId("job-1");
+        result.setTotalSections(2);
+        result.setTotalWordCount(1234);
+        result.setTopN(3);
+        result.setGlobalTopWords(Arrays.asList(
+                new ResultMessage.WordFrequency("alice", 40), new ResultMessage.WordFrequency("said", 30)
+        ));
+        result.setSections(Arrays.asList(fullResult(0), fullResult(1)));
+        result.setTotalSentimentScore(-2.5);
+        result.setTotalPositiveWordCount(10);
+        result.setTotalNegativeWordCount(12);
+        result.setAverageSentimentPerSection(-1.25);
+        result.setClassProbabilities(classes());
+        result.setClassifiedSections(2);
+        result.setModifiedText("Bob was here.\n\nАлиса — тоже. 😀");
+        result.setSortedSentences(Arrays.asList("Bob was here.", "Алиса — тоже.", ""));
+        result.setDetectedNames(names());
+        assertRoundTrip(result, FinalJobResult.class);
+
+        FinalJobResult failed = new FinalJobResult();
+        failed.setJobId("job-2");
+        failed.setTotalSections(819);
+        failed.setFailure("section 17: no stored result");
+        failed.setFailedSections(1);
+        assertEquals(
+                "section 17: no stored result",
+                assertRoundTrip(failed, FinalJobResult.class).getFailure()
+        );
+        assertRoundTrip(new FinalJobResult(), FinalJobResult.class);
+    }
+
+    @Test
+    void rejectsMalformedMessages() throws IOException {
+        byte[] body = binary.encode(fullTask(0));
+
+        byte[] trailing = Arrays.copyOf(body, body.length + 1);
+        assertThrows(IOException.class, () -> binary.decode(trailing, TaskMessage.class));
+
+        byte[] truncated = Arrays.copyOf(body, body.length - 1);
+        assertThrows(IOException.class, () -> binary.decode(truncated, TaskMessage.class));
+
+        byte[] otherVersion = body.clone();
+        otherVersion[1]++;
+        assertThrows(IOException.class, () -> binary.decode(otherVersion, TaskMessage.class));
+
+        assertThrows(IOException.class, () -> binary.decode(body, ResultMessage.class));
+        assertThrows(IOException.class, () -> binary.decode("{}".getBytes(StandardCharsets.UTF_8), TaskMessage.class));
+    }
+
+    private <T> T assertRoundTrip(T message, Class<T> type) throws IOException {
+        T decoded = binary.decode(binary.encode(message), type);
+        assertEquals(
+                new String(json.encode(message), StandardCharsets.UTF_8),
+                new String(json.encode(decoded), StandardCharsets.UTF_8)
+        );
+        return decoded;
+    }
+
+    private static TaskMessage fullTask(int sectionIndex) {
+        TaskMessage task = new TaskMessage();
+        task.setJobId("job-1");
+        task.setSectionIndex(sectionIndex);
+        task.setTotalSections(sectionIndex + 1);
+        task.setSourceFileId(2);
+        task.setSectionText("Alice was beginning to get very tired\r\nof sitting — «Алиса» 😀 ");
+        task.setContinuationSeparator(" \n");
+        task.setContentHash(ContentHashes.sha256Hex(task.getSectionText()));
+        task.setTopN(7);
+        task.setOriginalStored(true);
+        task.setSentimentMode(SentimentMode.values()[SentimentMode.values().length - 1]);
+        task.setVersionProbe(true);
+        return task;
+    }
+
+    private static ResultMessage fullResult(int sectionIndex) {
+        ResultMessage result = new ResultMessage();
+        result.setJobId("job-1");
+        result.setSectionIndex(sectionIndex);
+        result.setTotalSections(sectionIndex + 1);
+        result.setSourceFileId(1);
+        result.setContinuationSeparator(sectionIndex % 2 == 0 ? null : "  ");
+        result.setWordCount(300 + sectionIndex);
+        result.setTopWords(Arrays.asList(
+                new ResultMessage.WordFrequency("the", 12), new ResultMessage.WordFrequency("alice", 12)
+        ));
+        result.setTopN(2);
+        result.setWordFrequencies(new WordFrequencyTable(Arrays.asList("the", "alice", "ёж"), new int[]{12, 12, 1}));
+        result.setSentimentScore(0.1);
+        result.setPositiveWordCount(4);
+        result.setNegativeWordCount(3);
+        result.setClassProbabilities(classes());
+        result.setTransformedSectionText("Bob saw the Rabbit. Then \"Bob\" ran");
+        result.setSentences(new SentenceRun(new int[]{0, 19, 20, 26}, 0, 26));
+        result.setDetectedNames(names());
+        result.setContentHash(ContentHashes.sha256Hex("Alice saw the Rabbit"));
+        result.setFromCache(true);
+        result.setSentimentMode(SentimentMode.values()[SentimentMode.values().length - 1]);
+        result.setAnalysisVersion("v1-" + sectionIndex);
+        result.setVersionProbe(sectionIndex == 0);
+        return result;
+    }
+
+    private static List<ResultMessage.ClassProbability> classes() {
+        return Arrays.asList(
+                new ResultMessage.ClassProbability("positive", 0.25),
+                new ResultMessage.ClassProbability("negative", 0.75)
+        );
+    }
+
+    private static List<ResultMessage.DetectedName> names() {
+        return Arrays.asList(
+                new ResultMessage.DetectedName("Alice", "Bob", 2),
+                new ResultMessage.DetectedName("Mock Turtle", "Kadi Lovu", 1)
+        );
+    }
+}
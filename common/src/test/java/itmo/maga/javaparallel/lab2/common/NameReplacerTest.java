@@ -0,0 +1,166 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * NameReplacer против прежней замены регулярными выражениями \bName\b (правила по очереди через replaceAll).
+ * Для непересекающихся имён результат должен совпадать с ней побайтно; для пересекающихся имён и цепочек
+ * замен — с одним проходом по \b(?:имена от длинных к коротким)\b, то есть leftmost-longest без повторной замены.
+ * Тесты идут на тулчейне Java 17, где \b в java.util.regex учитывает буквы и цифры Unicode.
+ */
+class NameReplacerTest {
+
+    @Test
+    void matchesRegexForDisjointNames() {
+        Map<String, String> rules = rules(
+                "Alice", "Алиса",
+                "Rabbit", "Кролик",
+                "Queen of Hearts", "Червонная Королева",
+                "Анна", "Anna",
+                "Zoë", "Зоя",
+                "O'Brien", "О'Брайен",
+                "Mr.", "мистер"
+        );
+        assertSameAsSequentialRegex(rules, "Alice saw the Rabbit. The Queen of Hearts shouted at Alice!");
+        assertSameAsSequentialRegex(rules, "Alice");
+        assertSameAsSequentialRegex(rules, "(Alice)[Rabbit]{Анна}\"Zoë\"");
+        // Имя внутри более длинного слова не заменяется
+        assertSameAsSequentialRegex(rules, "Alicea xAlice Rabbits Анная Аннушка Zoëy");
+        assertSameAsSequentialRegex(rules, "Alice_ _Alice Alice1 2Alice Alice-Rabbit Alice'Rabbit");
+        assertSameAsSequentialRegex(rules, "O'Brien O'Briens Mr. Smith Mr.Smith Mr.");
+        assertSameAsSequentialRegex(rules, "Alice\nRabbit\tQueen of  Hearts Queen of\nHearts");
+    }
+
+    @Test
+    void matchesRegexAtNonAsciiBoundaries() {
+        Map<String, String> rules = rules(
+                "Jose", "Хосе",
+                "Ана", "Ana",
+                "Éowyn", "Эовин",
+                "İz", "Iz",
+                "Σ", "sigma",
+                "ΟΔΟΣ", "odos"
+        );
+        // Буквы вне ASCII соседствуют с именем: границы нет
+        assertSameAsSequentialRegex(rules, "Ана Анатолий Ана-Мария Ана\u0301 сАна Ана, Ана.");
+        // Несамостоятельный диакритический знак после буквы — часть слова; после пробела — нет
+        assertSameAsSequentialRegex(rules, "Jose Jose\u0301 Jose\u0301\u0323 \u0301Jose José Josee");
+        assertSameAsSequentialRegex(rules, "Éowyn E\u0301owyn Éowynë İz İzmir xİz Σ ΣΟΦΙΑ ΟΔΟΣ ΟΔΟΣΟ");
+        // Суррогатные пары: математическая буква — словесный символ
+        assertSameAsSequentialRegex(rules, "Jose𝐀 𝐀Jose Jose 𝐀 Jose");
+        assertSameAsSequentialRegex(rules, "Jose Ана—Éowyn«Σ»Jose");
+    }
+
+    @Test
+    void overlappingNamesPreferLongestMatch() {
+        Map<String, String> rules = rules(
+                "Lewis", "Льюис",
+                "Lewis Carroll", "Льюис Кэрролл",
+                "Carroll", "Кэрролл",
+                "Mock", "Фальшивая",
+                "Mock Turtle", "Фальшивая Черепаха"
+        );
+        String text = "Lewis Carroll and Lewis, Carroll; the Mock Turtle, a Mock Turtles, Lewis Carrolls";
+        // "Lewis Carroll" без границы после него не подходит, и берётся более короткое "Lewis"
+        assertEquals(
+                "Льюис Кэрролл and Льюис, Кэрролл; the Фальшивая Черепаха, a Фальшивая Turtles, Льюис Carrolls",
+                replace(rules, text)
+        );
+        assertSameAsSinglePassRegex(rules, text);
+    }
+
+    @Test
+    void replacementsAreNotRescanned() {
+        Map<String, String> rules = rules(
+                "Alice", "Bob",
+                "Bob", "Carol",
+                "Carol", "Alice"
+        );
+        assertEquals("Bob Carol Alice", replace(rules, "Alice Bob Carol"));
+        assertSameAsSinglePassRegex(rules, "Alice Bob Carol AliceBob Bob's Carol.");
+    }
+
+    @Test
+    void firstDeclarationWinsAfterTrimming() {
+        Map<String, String> rules = new LinkedHashMap<>();
+        rules.put("Alice", "first");
+        rules.put(" Alice ", "second");
+        rules.put("  ", "blank");
+        rules.put("Rabbit", " ");
+        rules.put(" Hatter\t", " Болванщик ");
+        assertEquals("first, Rabbit and Болванщик", replace(rules, "Alice, Rabbit and Hatter"));
+    }
+
+    @Test
+    void matchesSinglePassRegexOnRandomTexts() {
+        String[] names = {"Al", "Alice", "Alice Liddell", "Li", "Liddell", "Ан", "Анна", "Анна Каренина",
+                "Jose", "Zoë", "Σ", "Mr.", "a b"};
+        String[] pieces = {"Al", "ice", "Alice", " ", " ", "Liddell", "Li", "Ан", "на", "Анна", " Каренина",
+                "Jose", "\u0301", "Zoë", "Σ", "Mr.", "a", "b", ".", ",", "-", "_", "1", "\n", " ", "é",
+                "𝐀"};
+        Random random = new Random(20240517L);
+        for (int iteration = 0; iteration < 300; iteration++) {
+            Map<String, String> rules = new LinkedHashMap<>();
+            for (String name : names) {
+                if (random.nextBoolean()) {
+                    rules.put(name, "<" + name.toUpperCase(Locale.ROOT) + ">");
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(120);
+            while (text.length() < length) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            assertSameAsSinglePassRegex(rules, text.toString());
+        }
+    }
+
+    private static void assertSameAsSequentialRegex(Map<String, String> rules, String text) {
+        // Прежняя реализация: каждое правило по очереди, \bName\b -> замена
+        String expected = text;
+        for (Map.Entry<String, String> rule : rules.entrySet()) {
+            Pattern pattern = Pattern.compile("\\b" + Pattern.quote(rule.getKey()) + "\\b");
+            expected = pattern.matcher(expected).replaceAll(Matcher.quoteReplacement(rule.getValue()));
+        }
+        assertEquals(expected, replace(rules, text), "text: " + text);
+    }
+
+    private static void assertSameAsSinglePassRegex(Map<String, String> rules, String text) {
+        String expected = text;
+        if (!rules.isEmpty()) {
+            List<String> names = new ArrayList<>(rules.keySet());
+            names.sort(Comparator.comparingInt(String::length).reversed());
+            Pattern pattern = Pattern.compile(names.stream()
+                    .map(Pattern::quote)
+                    .collect(Collectors.joining("|", "\\b(?:", ")\\b")));
+            expected = pattern.matcher(text)
+                    .replaceAll(match -> Matcher.quoteReplacement(rules.get(match.group())));
+        }
+        assertEquals(expected, replace(rules, text), "rules: " + rules + ", text: " + text);
+    }
+
+    private static String replace(Map<String, String> rules, String text) {
+        return TextEdits.apply(text, NameReplacer.compile(rules).findEdits(text));
+    }
+
+    private static Map<String, String> rules(String... pairs) {
+        Map<String, String> rules = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            rules.put(pairs[i], pairs[i + 1]);
+        }
+        return rules;
+    }
+}
@@ -0,0 +1,65 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сжатие и распаковка тел сообщений, включая предел размера распакованного тела.
+ */
+class PayloadCompressionTest {
+
+    @Test
+    void roundTrips() throws IOException {
+        byte[] text = "Alice was beginning to get very tired. Алиса устала. ".repeat(500)
+                .getBytes(StandardCharsets.UTF_8);
+        for (String algorithm : new String[]{PayloadCompression.GZIP, PayloadCompression.DEFLATE}) {
+            PayloadCompression.Payload payload = new PayloadCompression(algorithm, 6, 1024).compress(text);
+            assertEquals(algorithm, payload.getContentEncoding());
+            assertTrue(payload.getBody().length < text.length, algorithm);
+            assertArrayEquals(text, PayloadCompression.decompress(payload.getBody(), payload.getContentEncoding()));
+        }
+    }
+
+    @Test
+    void keepsSmallAndIncompressibleBodies() throws IOException {
+        PayloadCompression gzip = new PayloadCompression(PayloadCompression.GZIP, 1, 1024);
+        byte[] small = "short".getBytes(StandardCharsets.UTF_8);
+        assertNull(gzip.compress(small).getContentEncoding());
+
+        byte[] noise = new byte[4096];
+        new Random(20240517L).nextBytes(noise);
+        PayloadCompression.Payload payload = gzip.compress(noise);
+        assertNull(payload.getContentEncoding());
+        assertArrayEquals(noise, PayloadCompression.decompress(payload.getBody(), null));
+        assertArrayEquals(noise, PayloadCompression.decompress(payload.getBody(), "identity"));
+    }
+
+    @Test
+    void limitsDecompressedSize() throws IOException {
+        byte[] zeros = new byte[1024 * 1024];
+        for (String algorithm : new String[]{PayloadCompression.GZIP, PayloadCompression.DEFLATE}) {
+            PayloadCompression.Payload payload = new PayloadCompression(algorithm, 9, 0).compress(zeros);
+            byte[] body = payload.getBody();
+            String encoding = payload.getContentEncoding();
+
+            assertEquals(zeros.length, PayloadCompression.decompress(body, encoding, zeros.length).length);
+            assertThrows(IOException.class, () -> PayloadCompression.decompress(body, encoding, zeros.length - 1));
+            assertThrows(IOException.class, () -> PayloadCompression.decompress(body, encoding, 1000));
+        }
+    }
+
+    @Test
+    void rejectsUnknownEncodings() {
+        assertThrows(IOException.class, () -> PayloadCompression.decompress(new byte[]{1, 2, 3}, "br"));
+        assertThrows(IOException.class, () -> PayloadCompression.decompress(new byte[]{1, 2, 3}, "gzip"));
+    }
+}
@@ -0,0 +1,92 @@
+package itmo.maga.javaparallel.lab2.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * TextEdits.compose: правки исходного текста, полученные слиянием двух серий, дают тот же текст,
+ * что и последовательное применение серий: apply(s, compose(e1, e2)) == apply(apply(s, e1), e2).
+ */
+class TextEditsTest {
+
+    private static final String[] REPLACEMENTS = {null, "", "x", "yz", "Алиса", "long replacement", "\n"};
+
+    @Test
+    void composesSimpleCases() {
+        String text = "Alice saw the Rabbit";
+        // Вторая серия не задевает замены первой
+        assertComposes(text, edits(0, 5, "Bob"), edits(12, 1, "T"));
+        // Вторая правка целиком внутри замены
+        assertComposes(text, edits(0, 5, "Алиса"), edits(1, 2, "ЛИ"));
+        // Вторая правка начинается внутри одной замены и заканчивается внутри другой
+        assertComposes(text, edits(0, 5, "Bobby", 14, 6, "Hare"), edits(3, 10, "-"));
+        // Несколько правок второй серии внутри одной замены
+        assertComposes(text, edits(0, 5, "abcdefgh"), edits(1, 1, "B", 3, 0, "+", 5, 2, null));
+        // Удаление и вставка на стыке замен
+        assertComposes(text, edits(0, 0, "Oh, ", 0, 5, null), edits(4, 0, "she", 4, 1, ""));
+        assertComposes("", edits(0, 0, "abc"), edits(1, 1, "B"));
+        assertComposes(text, edits(), edits(0, 5, "Bob"));
+        assertComposes(text, edits(0, 5, "Bob"), edits());
+    }
+
+    @Test
+    void composesRandomEdits() {
+        Random random = new Random(20240517L);
+        for (int iteration = 0; iteration < 5000; iteration++) {
+            String text = randomText(random, random.nextInt(40));
+            List<ResultMessage.TextEdit> first = randomEdits(random, text.length());
+            String intermediate = TextEdits.apply(text, first);
+            List<ResultMessage.TextEdit> second = randomEdits(random, intermediate.length());
+            assertComposes(text, first, second);
+        }
+    }
+
+    private static void assertComposes(
+            String text,
+            List<ResultMessage.TextEdit> first,
+            List<ResultMessage.TextEdit> second
+    ) {
+        String expected = TextEdits.apply(TextEdits.apply(text, first), second);
+        List<ResultMessage.TextEdit> composed = TextEdits.compose(first, second);
+        assertEquals(
+                expected,
+                TextEdits.apply(text, composed),
+                "text: " + text + ", first: " + first + ", second: " + second + ", composed: " + composed
+        );
+    }
+
+    // Упорядоченные непересекающиеся правки; вставки, удаления и соседние правки встречаются часто
+    private static List<ResultMessage.TextEdit> randomEdits(Random random, int textLength) {
+        List<ResultMessage.TextEdit> edits = new ArrayList<>();
+        int position = 0;
+        while (position <= textLength && random.nextInt(4) != 0) {
+            int offset = position + random.nextInt(Math.min(4, textLength - position + 1));
+            int length = random.nextInt(Math.min(5, textLength - offset + 1));
+            edits.add(new ResultMessage.TextEdit(offset, length, REPLACEMENTS[random.nextInt(REPLACEMENTS.length)]));
+            position = offset + length;
+        }
+        return edits;
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+
+    // Тройки offset, length, replacement
+    private static List<ResultMessage.TextEdit> edits(Object... values) {
+        List<ResultMessage.TextEdit> edits = new ArrayList<>();
+        for (int i = 0; i < values.length; i += 3) {
+            edits.add(new ResultMessage.TextEdit((Integer) values[i], (Integer) values[i + 1], (String) values[i + 2]));
+        }
+        return edits;
+    }
+}
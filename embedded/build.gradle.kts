@@ -0,0 +1,16 @@
+plugins {
+    application
+}
+
+dependencies {
+    implementation(project(":common"))
+    implementation(project(":producer"))
+    implementation(project(":worker"))
+    implementation(project(":aggregator"))
+    implementation(project(":sink"))
+}
+
+application {
+    // Весь конвейер в одном процессе, без брокера
+    mainClass.set("itmo.maga.javaparallel.lab2.embedded.EmbeddedPipelineApp")
+}
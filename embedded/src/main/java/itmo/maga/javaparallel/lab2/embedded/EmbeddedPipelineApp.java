@@ -0,0 +1,61 @@
+package itmo.maga.javaparallel.lab2.embedded;
+
+import itmo.maga.javaparallel.lab2.aggregator.AggregatorApp;
+import itmo.maga.javaparallel.lab2.common.FinalJobResult;
+import itmo.maga.javaparallel.lab2.common.InMemoryTransport;
+import itmo.maga.javaparallel.lab2.common.JobManifest;
+import itmo.maga.javaparallel.lab2.producer.ProducerApp;
+import itmo.maga.javaparallel.lab2.sink.ResultSinkApp;
+import itmo.maga.javaparallel.lab2.worker.WorkerApp;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Весь конвейер в одном процессе: продюсер, воркеры, агрегатор и приёмник обмениваются
+ * объектами через {@link InMemoryTransport}, без брокера, сериализации и сети. Логика компонентов
+ * та же, что в отдельных процессах; аргументы и свойства lab2.* — как у продюсера и воркера.
+ * Число потоков обработки задаёт lab2.worker.channels (по умолчанию — число ядер).
+ */
+public class EmbeddedPipelineApp {
+
+    // Вместимость каждой очереди в сообщениях: полная очередь задач притормаживает продюсера
+    private static final int QUEUE_CAPACITY = Integer.getInteger("lab2.embedded.queueCapacity", 64);
+
+    private static final long RESULT_TIMEOUT_MILLIS = Long.getLong("lab2.embedded.timeoutMs", 3_600_000L);
+
+    public static void main(String[] args) {
+        int exitCode = 0;
+        long startedAt = System.nanoTime();
+
+        try (InMemoryTransport transport = new InMemoryTransport(QUEUE_CAPACITY)) {
+            // Задание одно, поэтому первый сохранённый итог — его
+            CompletableFuture<FinalJobResult> saved = new CompletableFuture<>();
+
+            ResultSinkApp.start(transport, saved::complete);
+            AggregatorApp.start(transport);
+            WorkerApp.start(transport);
+
+            JobManifest manifest = ProducerApp.runJob(transport, args);
+            if (manifest.getTotalSections() > 0) {
+                FinalJobResult result = saved.get(RESULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (result.getFailure() != null) {
+                    System.err.println("Embedded pipeline: job " + result.getJobId() + " failed: " + result.getFailure());
+                    exitCode = 1;
+                }
+                System.out.println(String.format(
+                        "Embedded pipeline finished job %s: %d sections, %d words in %.2fs",
+                        result.getJobId(), result.getTotalSections(), result.getTotalWordCount(),
+                        (System.nanoTime() - startedAt) / 1_000_000_000.0
+                ));
+            }
+        } catch (Exception e) {
+            System.err.println("Embedded pipeline failed with unexpected error");
+            e.printStackTrace(System.err);
+            exitCode = 1;
+        }
+
+        // Пулы обработки воркера не демоны: завершаем процесс явно
+        System.exit(exitCode);
+    }
+}
@@ -4,9 +4,6 @@ plugins {
 
 dependencies {
     implementation(project(":common"))
-
-    // RabbitMQ client
-    implementation("com.rabbitmq:amqp-client:5.22.0")
 }
 
 application {
@@ -0,0 +1,84 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+/**
+ * Основа стратегий, собирающих секцию из кусков параграфов.
+ * Внутри одного параграфа сохраняются исходные пробелы между кусками,
+ * между параграфами вставляется пустая строка. Если секция отрезана посреди параграфа,
+ * пробелы в месте разреза уходят вместе со следующей секцией (SectionSink.accept), и агрегатор
+ * склеивает секции по ним, а не как параграфы.
+ */
+abstract class AccumulatingSplitter implements Splitter {
+
+    private static final String PARAGRAPH_SEPARATOR = "\n\n";
+
+    private final SectionSink sink;
+    private final StringBuilder current = new StringBuilder();
+
+    private String lastParagraph;
+    private int lastPieceEnd;
+    // Пробелы перед текущей секцией, если она продолжает параграф предыдущей, иначе null
+    private String separator;
+
+    AccumulatingSplitter(SectionSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void finish() throws InterruptedException {
+        emit();
+    }
+
+    final void append(String paragraph, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        if (current.length() > 0) {
+            if (paragraph == lastParagraph) {
+                current.append(paragraph, lastPieceEnd, start);
+            } else {
+                current.append(PARAGRAPH_SEPARATOR);
+            }
+        } else {
+            // Первый кусок секции: разрез внутри параграфа предыдущей секции или граница параграфов
+            separator = paragraph == lastParagraph ? paragraph.substring(lastPieceEnd, start) : null;
+        }
+        current.append(paragraph, start, end);
+        lastParagraph = paragraph;
+        lastPieceEnd = end;
+    }
+
+    final boolean isEmpty() {
+        return current.length() == 0;
+    }
+
+    final void emit() throws InterruptedException {
+        if (current.length() == 0) {
+            return;
+        }
+        String section = current.toString();
+        current.setLength(0);
+        // lastParagraph остаётся: следующая секция может продолжить тот же параграф
+        sink.accept(section, separator);
+    }
+
+    // Конец предложения: [.!?], за которым пробел или конец параграфа (как при сортировке предложений)
+    static int findSentenceEnd(String text, int from) {
+        int length = text.length();
+        for (int i = from; i < length; i++) {
+            char c = text.charAt(i);
+            if ((c == '.' || c == '!' || c == '?') &&
+                    (i + 1 == length || Character.isWhitespace(text.charAt(i + 1)))) {
+                return i + 1;
+            }
+        }
+        return length;
+    }
+
+    static int skipWhitespace(String text, int from) {
+        int i = from;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
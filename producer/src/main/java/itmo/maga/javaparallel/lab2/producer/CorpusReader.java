@@ -0,0 +1,133 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Параллельное чтение и нарезка файлов корпуса.
+ * У каждого файла своя ограниченная очередь секций, потребитель читает их строго по порядку файлов,
+ * поэтому секции одного файла получают непрерывный диапазон номеров, а вперёд читается не больше
+ * readerThreads файлов.
+ */
+final class CorpusReader implements AutoCloseable {
+
+    // Маркер конца файла в очереди секций (сравнивается по ссылке)
+    private static final Section END_OF_SOURCE = new Section(null, null);
+
+    private final List<CorpusSource> sources;
+    private final String splitterSpec;
+    private final int queueCapacity;
+    private final ExecutorService readers;
+    private final List<SourceState> states = new ArrayList<>();
+
+    CorpusReader(List<CorpusSource> sources, String splitterSpec, int readerThreads, int queueCapacity) {
+        this.sources = sources;
+        this.splitterSpec = splitterSpec;
+        this.queueCapacity = queueCapacity;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.readers = Executors.newFixedThreadPool(Math.max(1, readerThreads), runnable -> {
+            Thread thread = new Thread(runnable, "corpus-reader-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() {
+        for (CorpusSource source : sources) {
+            SourceState state = new SourceState(queueCapacity);
+            states.add(state);
+            readers.execute(() -> read(source, state));
+        }
+    }
+
+    // Следующая секция файла или null, когда файл дочитан
+    Section nextSection(int sourceIndex) throws IOException, InterruptedException {
+        SourceState state = states.get(sourceIndex);
+        Section section = state.sections.take();
+        if (section != END_OF_SOURCE) {
+            return section;
+        }
+        if (state.failure != null) {
+            throw new IOException(
+                    "Failed to read " + sources.get(sourceIndex).getName() + ": " + state.failure.getMessage(),
+                    state.failure
+            );
+        }
+        return null;
+    }
+
+    long getBytesRead(int sourceIndex) {
+        return states.get(sourceIndex).bytesRead;
+    }
+
+    @Override
+    public void close() {
+        readers.shutdownNow();
+    }
+
+    private void read(CorpusSource source, SourceState state) {
+        try {
+            Splitter splitter = Splitters.fromSpec(
+                    splitterSpec, (text, separator) -> state.sections.put(new Section(text, separator))
+            );
+            ParagraphStreamSplitter paragraphs = new ParagraphStreamSplitter(splitter);
+            source.split(paragraphs);
+            splitter.finish();
+            state.bytesRead = paragraphs.getBytesRead();
+            System.out.println(
+                    "Read " + source.getName() + ": " + paragraphs.getSectionCount() +
+                            " non-empty paragraphs in " + paragraphs.getBytesRead() + " bytes"
+            );
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            state.failure = e;
+        }
+        try {
+            state.sections.put(END_OF_SOURCE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Секция и пробелы, отделяющие её от предыдущей секции того же параграфа (null — начало параграфа).
+     */
+    static final class Section {
+
+        private final String text;
+        private final String separator;
+
+        Section(String text, String separator) {
+            this.text = text;
+            this.separator = separator;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        String getSeparator() {
+            return separator;
+        }
+    }
+
+    private static final class SourceState {
+
+        private final BlockingQueue<Section> sections;
+        private volatile Exception failure;
+        private volatile long bytesRead;
+
+        SourceState(int capacity) {
+            this.sections = new LinkedBlockingQueue<>(capacity);
+        }
+    }
+}
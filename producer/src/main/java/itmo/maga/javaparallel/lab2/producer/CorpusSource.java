@@ -0,0 +1,134 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Один входной файл корпуса (или ресурс из classpath) со своим номером внутри задания.
+ */
+final class CorpusSource {
+
+    private final int sourceFileId;
+    private final Path file;
+    private final String resourceName;
+
+    private CorpusSource(int sourceFileId, Path file, String resourceName) {
+        this.sourceFileId = sourceFileId;
+        this.file = file;
+        this.resourceName = resourceName;
+    }
+
+    // Аргументы — файлы, каталоги (обходятся рекурсивно) или glob-шаблоны; без аргументов — ресурс по умолчанию
+    static List<CorpusSource> resolve(String[] args, String defaultResourceName) throws IOException {
+        List<CorpusSource> sources = new ArrayList<>();
+        if (args.length == 0) {
+            sources.add(new CorpusSource(0, null, defaultResourceName));
+            return sources;
+        }
+
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            files.addAll(expand(arg));
+        }
+        if (files.isEmpty()) {
+            throw new IOException("No input files matched: " + String.join(" ", args));
+        }
+
+        for (Path path : files) {
+            sources.add(new CorpusSource(sources.size(), path, null));
+        }
+        return sources;
+    }
+
+    int getSourceFileId() {
+        return sourceFileId;
+    }
+
+    String getName() {
+        return file != null ? file.toString() : "classpath:" + resourceName;
+    }
+
+    void split(ParagraphStreamSplitter splitter) throws IOException, InterruptedException {
+        if (file != null) {
+            splitter.splitFile(file);
+            return;
+        }
+        ClassLoader classLoader = CorpusSource.class.getClassLoader();
+        try (InputStream in = classLoader.getResourceAsStream(resourceName)) {
+            if (in == null) {
+                throw new IOException("Resource not found on classpath: " + resourceName);
+            }
+            splitter.splitStream(in);
+        }
+    }
+
+    private static List<Path> expand(String arg) throws IOException {
+        if (isGlob(arg)) {
+            int separator = globBaseSeparator(arg);
+            Path base = separator < 0
+                    ? Paths.get(".")
+                    : Paths.get(separator == 0 ? "/" : arg.substring(0, separator));
+            // Остаток шаблона сопоставляется с путём относительно base: Files.walk(".") возвращает
+            // ./a.txt, и с "*.txt" целиком такой путь не совпал бы
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + arg.substring(separator + 1));
+            return walkFiles(base).stream()
+                    .filter(path -> matcher.matches(base.relativize(path)))
+                    .collect(Collectors.toList());
+        }
+
+        Path path = Paths.get(arg);
+        if (Files.isDirectory(path)) {
+            return walkFiles(path);
+        }
+        if (!Files.exists(path)) {
+            throw new IOException("File does not exist: " + arg);
+        }
+        List<Path> single = new ArrayList<>();
+        single.add(path);
+        return single;
+    }
+
+    private static List<Path> walkFiles(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            throw new IOException("Directory does not exist: " + root);
+        }
+        try (Stream<Path> stream = Files.walk(root)) {
+            return stream
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isGlob(String arg) {
+        for (int i = 0; i < arg.length(); i++) {
+            char c = arg.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Последний разделитель каталогов перед первым метасимволом (конец базового каталога) или -1
+    private static int globBaseSeparator(String glob) {
+        int firstMeta = glob.length();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                firstMeta = i;
+                break;
+            }
+        }
+        return Math.max(glob.lastIndexOf('/', firstMeta), glob.lastIndexOf('\\', firstMeta));
+    }
+}
@@ -0,0 +1,43 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+import itmo.maga.javaparallel.lab2.common.TaskMessage;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Скользящее окно LPT: держит до windowSize секций и при переполнении выдаёт самую дорогую.
+ * Окно 0 — буферизовать весь корпус (точный LPT ценой памяти).
+ */
+final class LongestFirstWindow {
+
+    private static final Comparator<TaskMessage> LONGEST_FIRST =
+            Comparator.comparingLong(LongestFirstWindow::estimateCost).reversed()
+                    .thenComparingInt(TaskMessage::getSectionIndex);
+
+    private final int windowSize;
+    private final PriorityQueue<TaskMessage> window = new PriorityQueue<>(LONGEST_FIRST);
+
+    LongestFirstWindow(int windowSize) {
+        this.windowSize = Math.max(0, windowSize);
+    }
+
+    // Возвращает секцию, вытесненную из окна, или null
+    TaskMessage offer(TaskMessage task) {
+        window.add(task);
+        if (windowSize > 0 && window.size() > windowSize) {
+            return window.poll();
+        }
+        return null;
+    }
+
+    TaskMessage poll() {
+        return window.poll();
+    }
+
+    // Стоимость обработки секции пропорциональна её длине
+    static long estimateCost(TaskMessage task) {
+        String text = task.getSectionText();
+        return text != null ? text.length() : 0;
+    }
+}
@@ -0,0 +1,22 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+/**
+ * Один параграф — одна секция (прежнее поведение).
+ */
+final class ParagraphSplitter implements Splitter {
+
+    private final SectionSink sink;
+
+    ParagraphSplitter(SectionSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void accept(String paragraph) throws InterruptedException {
+        sink.accept(paragraph, null);
+    }
+
+    @Override
+    public void finish() {
+    }
+}
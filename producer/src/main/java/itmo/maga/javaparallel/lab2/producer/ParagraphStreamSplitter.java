@@ -0,0 +1,166 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Потоковое разбиение корпуса на параграфы без загрузки всего текста в память.
+ * Граница параграфа — пробельный промежуток, содержащий не меньше двух переводов строки
+ * (как прежний split("\\n\\s*\\n")), каждый параграф обрезается по краям.
+ */
+final class ParagraphStreamSplitter {
+
+    private static final int MAPPED_WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final int INITIAL_PENDING_CAPACITY = 8 * 1024;
+    private static final int MAX_RETAINED_PENDING_CAPACITY = 1024 * 1024;
+
+    private final Splitter splitter;
+
+    // Байты текущего параграфа, ещё не отданные в splitter (включая внутренние пробелы)
+    private byte[] pending = new byte[INITIAL_PENDING_CAPACITY];
+    private int pendingLength;
+    // Длина параграфа до последнего непробельного байта включительно
+    private int contentLength;
+
+    private boolean inSection;
+    private int lineBreaks;
+    private boolean previousWasCarriageReturn;
+
+    private int sectionCount;
+    private long bytesRead;
+
+    ParagraphStreamSplitter(Splitter splitter) {
+        this.splitter = splitter;
+    }
+
+    int getSectionCount() {
+        return sectionCount;
+    }
+
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    void splitFile(Path path) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(MAPPED_WINDOW_SIZE, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                feed(window);
+                position += length;
+            }
+        }
+        finish();
+    }
+
+    void splitStream(InputStream in) throws IOException, InterruptedException {
+        ReadableByteChannel channel = Channels.newChannel(in);
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            feed(buffer);
+            buffer.clear();
+        }
+        finish();
+    }
+
+    void feed(ByteBuffer chunk) throws InterruptedException {
+        int limit = chunk.limit();
+        int segmentStart = chunk.position();
+        bytesRead += limit - segmentStart;
+
+        for (int i = chunk.position(); i < limit; i++) {
+            byte b = chunk.get(i);
+            if (isBlank(b)) {
+                if (b == '\r' || (b == '\n' && !previousWasCarriageReturn)) {
+                    lineBreaks++;
+                }
+                previousWasCarriageReturn = b == '\r';
+                continue;
+            }
+            previousWasCarriageReturn = false;
+
+            if (!inSection) {
+                inSection = true;
+                segmentStart = i;
+            } else if (lineBreaks >= 2) {
+                emit(chunk, segmentStart);
+                segmentStart = i;
+            }
+            lineBreaks = 0;
+            contentLength = pendingLength + (i - segmentStart) + 1;
+        }
+
+        if (inSection) {
+            append(chunk, segmentStart, limit);
+        }
+        chunk.position(limit);
+    }
+
+    void finish() throws InterruptedException {
+        if (inSection && contentLength > 0) {
+            publish();
+        }
+        inSection = false;
+        lineBreaks = 0;
+        previousWasCarriageReturn = false;
+    }
+
+    private void emit(ByteBuffer chunk, int segmentStart) throws InterruptedException {
+        int fromChunk = contentLength - pendingLength;
+        if (fromChunk > 0) {
+            append(chunk, segmentStart, segmentStart + fromChunk);
+        }
+        publish();
+    }
+
+    private void publish() throws InterruptedException {
+        String section = new String(pending, 0, contentLength, StandardCharsets.UTF_8);
+        if (section.indexOf('\r') >= 0) {
+            section = section.replace("\r\n", "\n").replace('\r', '\n');
+        }
+
+        pendingLength = 0;
+        contentLength = 0;
+        if (pending.length > MAX_RETAINED_PENDING_CAPACITY) {
+            // После гигантского параграфа не держим большой буфер до конца работы
+            pending = new byte[INITIAL_PENDING_CAPACITY];
+        }
+
+        sectionCount++;
+        splitter.accept(section);
+    }
+
+    private void append(ByteBuffer chunk, int from, int to) {
+        int length = to - from;
+        if (length <= 0) {
+            return;
+        }
+        int required = pendingLength + length;
+        if (required > pending.length) {
+            int newCapacity = Math.max(required, pending.length * 2);
+            byte[] grown = new byte[newCapacity];
+            System.arraycopy(pending, 0, grown, 0, pendingLength);
+            pending = grown;
+        }
+        chunk.get(from, pending, pendingLength, length);
+        pendingLength = required;
+    }
+
+    // Те же символы, что отбрасывает String.trim(); байты UTF-8 продолжений (>= 0x80) сюда не попадают
+    private static boolean isBlank(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+}
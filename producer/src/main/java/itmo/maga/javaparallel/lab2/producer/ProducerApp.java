@@ -1,19 +1,20 @@
 package itmo.maga.javaparallel.lab2.producer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.rabbitmq.client.AMQP;
-import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.Connection;
-import com.rabbitmq.client.ConnectionFactory;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import itmo.maga.javaparallel.lab2.common.JobManifest;
+import itmo.maga.javaparallel.lab2.common.MessageTransport;
+import itmo.maga.javaparallel.lab2.common.RabbitTransport;
+import itmo.maga.javaparallel.lab2.common.ResultStore;
+import itmo.maga.javaparallel.lab2.common.SectionStore;
+import itmo.maga.javaparallel.lab2.common.SentimentMode;
+import itmo.maga.javaparallel.lab2.common.TaskBatch;
 import itmo.maga.javaparallel.lab2.common.TaskMessage;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeoutException;
@@ -21,6 +22,7 @@ import java.util.concurrent.TimeoutException;
 public class ProducerApp {
 
     private static final String TASK_QUEUE_NAME = "text_tasks";
+    private static final String RESULT_QUEUE_NAME = "text_results";
 
     private static final String RABBIT_HOST = "localhost";
     private static final int RABBIT_PORT = 5672;
@@ -29,122 +31,236 @@ public class ProducerApp {
 
     private static final String DEFAULT_RESOURCE_NAME = "book.txt";
 
-    public static void main(String[] args) {
-        try {
-            String corpusText;
-            String sourceDescription;
-
-            if (args.length >= 1) {
-                String inputFilePath = args[0];
-                corpusText = readCorpusFromFile(inputFilePath);
-                sourceDescription = "file: " + inputFilePath;
-            } else {
-                corpusText = readCorpusFromResource(DEFAULT_RESOURCE_NAME);
-                sourceDescription = "classpath resource: " + DEFAULT_RESOURCE_NAME;
-            }
+    // Стратегия нарезки секций: paragraph, sentences:N, bytes:N или tokens:N
+    private static final String SPLITTER_SPEC = System.getProperty("lab2.producer.splitter", Splitters.DEFAULT_SPEC);
+
+    // Ограничение на число нарезанных, но ещё не отправленных секций одного файла
+    private static final int SECTION_QUEUE_CAPACITY = 1024;
+
+    // Сколько файлов корпуса читается и нарезается параллельно
+    private static final int READER_THREADS = Integer.getInteger(
+            "lab2.producer.readerThreads",
+            Math.min(4, Runtime.getRuntime().availableProcessors())
+    );
+
+    // Общий с агрегатором каталог ResultStore; не задан — дедупликация секций выключена
+    private static final String RESULT_STORE_DIR = System.getProperty("lab2.resultStore.dir");
+    // Сколько ждать ответа воркеров на пробную задачу; без ответа все секции уходят воркерам
+    private static final long VERSION_PROBE_TIMEOUT_MILLIS = Long.getLong("lab2.producer.probeTimeoutMs", 10_000L);
+    // Общий с агрегатором каталог исходных текстов секций; задан — воркеры возвращают правки вместо текста
+    private static final String SECTION_STORE_DIR = System.getProperty("lab2.sectionStore.dir");
+
+    private static final Path MANIFEST_DIR = Paths.get(System.getProperty("lab2.producer.manifestDir", "results"));
+
+    // Окно неподтверждённых брокером сообщений и параметры повторной отправки
+    private static final int PUBLISH_WINDOW = Integer.getInteger("lab2.producer.publishWindow", 256);
+    private static final long CONFIRM_TIMEOUT_MILLIS = Long.getLong("lab2.producer.confirmTimeoutMs", 30_000L);
+    private static final int MAX_PUBLISH_ATTEMPTS = Integer.getInteger("lab2.producer.maxPublishAttempts", 5);
+    private static final long FINAL_CONFIRM_TIMEOUT_MILLIS =
+            Long.getLong("lab2.producer.finalConfirmTimeoutMs", 300_000L);
 
-            List<String> sections = splitIntoParagraphSections(corpusText);
+    // Бюджет пакета секций (0 — каждая секция отдельным сообщением) и предел числа секций в пакете
+    private static final int BATCH_BYTE_BUDGET = Integer.getInteger("lab2.producer.batchBytes", 64 * 1024);
+    private static final int MAX_SECTIONS_PER_BATCH = Integer.getInteger("lab2.producer.maxBatchSections", 256);
 
-            String jobId = UUID.randomUUID().toString();
-            int totalSections = sections.size();
+    // Порядок выдачи секций (document, lpt, priority) и окно переупорядочивания для lpt (0 — весь корпус)
+    private static final SchedulingMode SCHEDULING_MODE =
+            SchedulingMode.fromName(System.getProperty("lab2.producer.schedule", "document"));
+    private static final int SCHEDULE_WINDOW = Integer.getInteger("lab2.producer.scheduleWindow", 4096);
 
-            System.out.println("Starting job " + jobId + " with " + totalSections +
-                    " sections (source: " + sourceDescription + ")");
+    // Размер топа частых слов по секциям и по всему заданию
+    private static final int TOP_N = Integer.getInteger("lab2.producer.topN", TaskMessage.DEFAULT_TOP_N);
 
-            sendTasksToRabbit(jobId, sections, totalSections);
+    // Тональность секций: lexicon (словарь), bayes (классификатор воркера) или both
+    private static final SentimentMode SENTIMENT_MODE =
+            SentimentMode.fromName(System.getProperty("lab2.producer.sentiment", "lexicon"));
 
-            System.out.println("Job " + jobId + " completed. All sections sent to queue '" + TASK_QUEUE_NAME + "'.");
+    // x-max-priority очереди задач; должен совпадать у продюсера и воркеров (0 — обычная очередь)
+    private static final int TASK_QUEUE_MAX_PRIORITY = Integer.getInteger("lab2.taskQueue.maxPriority", 0);
+
+    public static void main(String[] args) {
+        try (MessageTransport transport = new RabbitTransport(rabbitSettings())) {
+            runJob(transport, args);
         } catch (IOException e) {
-            System.err.println("Failed to read corpus");
+            System.err.println("Failed to read corpus: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("Unexpected error in ProducerApp");
+            e.printStackTrace(System.err);
         }
     }
 
-    private static String readCorpusFromFile(String inputFilePath) throws IOException {
-        Path path = Paths.get(inputFilePath);
-        if (!Files.exists(path)) {
-            throw new IOException("File does not exist: " + inputFilePath);
+    /**
+     * Нарезает корпус (файлы из args или ресурс по умолчанию) и отправляет задание через transport.
+     */
+    public static JobManifest runJob(MessageTransport transport, String[] args)
+            throws IOException, TimeoutException, InterruptedException {
+        String jobId = UUID.randomUUID().toString();
+
+        // Проверяем спецификацию стратегии до запуска чтения
+        Splitters.fromSpec(SPLITTER_SPEC, (section, separator) -> {
+        });
+        if (TOP_N <= 0) {
+            throw new IllegalArgumentException("lab2.producer.topN must be positive: " + TOP_N);
         }
-        byte[] bytes = Files.readAllBytes(path);
-        return new String(bytes, StandardCharsets.UTF_8);
-    }
 
-    private static String readCorpusFromResource(String resourceName) throws IOException {
-        ClassLoader classLoader = ProducerApp.class.getClassLoader();
-        try (InputStream in = classLoader.getResourceAsStream(resourceName)) {
-            if (in == null) {
-                throw new IOException("Resource not found on classpath: " + resourceName);
-            }
-            byte[] bytes = in.readAllBytes();
-            return new String(bytes, StandardCharsets.UTF_8);
+        List<CorpusSource> sources = CorpusSource.resolve(args, DEFAULT_RESOURCE_NAME);
+
+        System.out.println("Starting job " + jobId + " (" + sources.size() + " source file(s), " +
+                "first: " + sources.get(0).getName() +
+                ", splitter: " + SPLITTER_SPEC + ", schedule: " + SCHEDULING_MODE + ", top " + TOP_N +
+                ", sentiment: " + SENTIMENT_MODE + ")");
+
+        JobManifest manifest;
+        // Чтение и разбиение идут в потоках чтения, отправка перекрывается с чтением
+        try (CorpusReader reader = new CorpusReader(sources, SPLITTER_SPEC, READER_THREADS, SECTION_QUEUE_CAPACITY)) {
+            reader.start();
+            manifest = sendTasks(transport, jobId, sources, reader);
         }
+
+        Path manifestPath = writeManifest(manifest);
+
+        System.out.println("Job " + jobId + " completed. All " + manifest.getTotalSections() +
+                " sections from " + manifest.getFiles().size() + " file(s) sent to queue '" +
+                TASK_QUEUE_NAME + "'. Manifest: " + manifestPath.toAbsolutePath());
+        return manifest;
     }
 
-    private static List<String> splitIntoParagraphSections(String text) {
-        String normalized = text.replace("\r\n", "\n").replace('\r', '\n');
+    private static RabbitTransport.Settings rabbitSettings() {
+        RabbitTransport.Settings settings = new RabbitTransport.Settings();
+        settings.setHost(RABBIT_HOST);
+        settings.setPort(RABBIT_PORT);
+        settings.setUsername(RABBIT_USERNAME);
+        settings.setPassword(RABBIT_PASSWORD);
+        settings.setPublishWindow(PUBLISH_WINDOW);
+        settings.setConfirmTimeoutMillis(CONFIRM_TIMEOUT_MILLIS);
+        settings.setMaxPublishAttempts(MAX_PUBLISH_ATTEMPTS);
+        return settings;
+    }
 
-        String[] rawBlocks = normalized.split("\\n\\s*\\n");
+    // Число секций заранее неизвестно, поэтому одна секция придерживается до прихода следующей:
+    // все секции, кроме последней, уходят с totalSections = 0, последняя — с итоговым числом.
+    private static JobManifest sendTasks(
+            MessageTransport transport,
+            String jobId,
+            List<CorpusSource> sources,
+            CorpusReader reader
+    ) throws IOException, TimeoutException, InterruptedException {
+        transport.declareQueue(TASK_QUEUE_NAME, TASK_QUEUE_MAX_PRIORITY);
+        transport.declareQueue(RESULT_QUEUE_NAME, 0);
 
-        List<String> sections = new ArrayList<>();
-        for (String block : rawBlocks) {
-            String trimmed = block.trim();
-            if (!trimmed.isEmpty()) {
-                sections.add(trimmed);
-            }
+        ResultStore resultStore = RESULT_STORE_DIR != null ? new ResultStore(Paths.get(RESULT_STORE_DIR)) : null;
+        SectionStore sectionStore = SECTION_STORE_DIR != null ? new SectionStore(Paths.get(SECTION_STORE_DIR)) : null;
+        if (sectionStore != null && !sectionStore.hasReader()) {
+            // Правки без исходника агрегатор не соберёт: пусть воркеры присылают полный текст
+            System.err.println(
+                    "Producer: no aggregator reads section store " + sectionStore.getRoot().toAbsolutePath() +
+                            ", workers will return full section texts"
+            );
+            sectionStore = null;
         }
 
-        System.out.println("Detected " + sections.size() + " non-empty paragraph sections");
-        return sections;
-    }
+        System.out.println("Transport: " + transport.describe());
+        String analysisVersion = resultStore != null ? probeAnalysisVersion(transport, jobId, resultStore) : null;
+
+        TaskDispatcher dispatcher = new TaskDispatcher(
+                TASK_QUEUE_NAME,
+                transport,
+                new SectionBatcher(jobId, BATCH_BYTE_BUDGET, MAX_SECTIONS_PER_BATCH),
+                SCHEDULING_MODE,
+                SCHEDULE_WINDOW,
+                TASK_QUEUE_MAX_PRIORITY,
+                resultStore,
+                analysisVersion,
+                sectionStore,
+                RESULT_QUEUE_NAME
+        );
 
-    private static void sendTasksToRabbit(String jobId, List<String> sections, int totalSections)
-            throws IOException, TimeoutException {
+        JobManifest manifest = new JobManifest(jobId, SPLITTER_SPEC);
 
-        ConnectionFactory factory = new ConnectionFactory();
-        factory.setHost(RABBIT_HOST);
-        factory.setPort(RABBIT_PORT);
-        factory.setUsername(RABBIT_USERNAME);
-        factory.setPassword(RABBIT_PASSWORD);
+        int index = 0;
+        long corpusOffset = 0;
+        TaskMessage previousTask = null;
 
-        try (Connection connection = factory.newConnection();
-             Channel channel = connection.createChannel()) {
+        for (int sourceIndex = 0; sourceIndex < sources.size(); sourceIndex++) {
+            CorpusSource source = sources.get(sourceIndex);
+            int firstSectionIndex = index;
 
-            channel.queueDeclare(TASK_QUEUE_NAME, true, false, false, null);
+            CorpusReader.Section section;
+            while ((section = reader.nextSection(sourceIndex)) != null) {
+                if (previousTask != null) {
+                    dispatcher.submit(previousTask);
+                }
+                previousTask = new TaskMessage(jobId, index, 0, section.getText(), source.getSourceFileId());
+                previousTask.setContinuationSeparator(section.getSeparator());
+                previousTask.setTopN(TOP_N);
+                previousTask.setSentimentMode(SENTIMENT_MODE);
+                index++;
+            }
 
-            ObjectMapper objectMapper = new ObjectMapper();
-            objectMapper.findAndRegisterModules();
+            long sizeBytes = reader.getBytesRead(sourceIndex);
+            JobManifest.SourceFile entry = new JobManifest.SourceFile();
+            entry.setSourceFileId(source.getSourceFileId());
+            entry.setPath(source.getName());
+            entry.setSizeBytes(sizeBytes);
+            entry.setCorpusStartOffset(corpusOffset);
+            entry.setCorpusEndOffset(corpusOffset + sizeBytes);
+            entry.setFirstSectionIndex(firstSectionIndex);
+            entry.setSectionCount(index - firstSectionIndex);
+            manifest.getFiles().add(entry);
+            corpusOffset += sizeBytes;
+        }
 
-            AMQP.BasicProperties messageProperties = new AMQP.BasicProperties.Builder()
-                    .contentType("application/json")
-                    .deliveryMode(2)
-                    .build();
+        manifest.setTotalSections(index);
+        manifest.setTotalBytes(corpusOffset);
 
-            for (int index = 0; index < sections.size(); index++) {
-                String sectionText = sections.get(index);
+        if (previousTask == null) {
+            System.out.println("Corpus contains no sections, nothing to send");
+            return manifest;
+        }
 
-                TaskMessage taskMessage = new TaskMessage(
-                        jobId,
-                        index,
-                        totalSections,
-                        sectionText
-                );
+        previousTask.setTotalSections(index);
+        dispatcher.submit(previousTask);
+        dispatcher.flush();
 
-                byte[] body = objectMapper.writeValueAsBytes(taskMessage);
+        transport.awaitPublished(FINAL_CONFIRM_TIMEOUT_MILLIS);
+        System.out.println(
+                "Packed " + dispatcher.getSentSections() + " sections into " +
+                        dispatcher.getSentBatches() + " messages, " +
+                        dispatcher.getCachedSections() + " unchanged sections reused from the result store"
+        );
+        return manifest;
+    }
 
-                channel.basicPublish(
-                        "",
-                        TASK_QUEUE_NAME,
-                        messageProperties,
-                        body
-                );
+    // Сохранённый результат годится, только если воркеры сейчас настроены так же, как при его подсчёте:
+    // версию настроек сообщает воркер, ответ приходит через агрегатор в хранилище результатов
+    private static String probeAnalysisVersion(MessageTransport transport, String jobId, ResultStore resultStore)
+            throws IOException, InterruptedException {
+        TaskMessage probe = new TaskMessage();
+        probe.setJobId(jobId);
+        probe.setVersionProbe(true);
+        transport.publish(
+                TASK_QUEUE_NAME, new TaskBatch(jobId, List.of(probe)), TASK_QUEUE_MAX_PRIORITY, "version probe"
+        );
 
-                System.out.println(
-                        "Sent section " + index +
-                                " of " + totalSections +
-                                ", text length = " + sectionText.length()
-                );
-            }
+        String analysisVersion = resultStore.awaitProbeReply(jobId, VERSION_PROBE_TIMEOUT_MILLIS);
+        if (analysisVersion != null) {
+            System.out.println("Workers run analysis version " + analysisVersion + ", reusing matching stored results");
+        } else {
+            System.err.println(
+                    "No worker answered the version probe within " + VERSION_PROBE_TIMEOUT_MILLIS +
+                            " ms, all sections go to workers"
+            );
         }
+        return analysisVersion;
+    }
+
+    private static Path writeManifest(JobManifest manifest) throws IOException {
+        Files.createDirectories(MANIFEST_DIR);
+        Path path = MANIFEST_DIR.resolve("job-" + manifest.getJobId() + "-manifest.json");
+
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        mapper.writeValue(path.toFile(), manifest);
+        return path;
     }
 }
@@ -0,0 +1,26 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+import java.util.Locale;
+
+/**
+ * Порядок выдачи секций воркерам.
+ */
+enum SchedulingMode {
+
+    // Порядок документа
+    DOCUMENT,
+    // Longest-processing-time-first: самые дорогие секции из окна уходят первыми
+    LPT,
+    // Порядок документа, но с AMQP-приоритетом по стоимости — переупорядочивает брокер
+    PRIORITY;
+
+    static SchedulingMode fromName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    "Unknown scheduling mode '" + name + "', expected document, lpt or priority", e
+            );
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+import itmo.maga.javaparallel.lab2.common.TaskBatch;
+import itmo.maga.javaparallel.lab2.common.TaskMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Упаковка секций в пакеты по бюджету байт.
+ * Предел числа секций в пакете подстраивается под скользящее среднее длины секции,
+ * а секции не меньше половины бюджета уходят отдельным пакетом, чтобы не тормозить соседей.
+ */
+final class SectionBatcher {
+
+    // Оценка служебных байт JSON-конверта на одну секцию
+    private static final int PER_SECTION_OVERHEAD_BYTES = 96;
+    private static final double AVERAGE_SMOOTHING = 0.1;
+
+    private final String jobId;
+    private final int byteBudget;
+    private final int maxSectionsPerBatch;
+
+    private final List<TaskMessage> current = new ArrayList<>();
+    private long currentBytes;
+    private double averageSectionBytes;
+
+    SectionBatcher(String jobId, int byteBudget, int maxSectionsPerBatch) {
+        this.jobId = jobId;
+        this.byteBudget = Math.max(0, byteBudget);
+        this.maxSectionsPerBatch = Math.max(1, maxSectionsPerBatch);
+    }
+
+    // Возвращает пакеты, готовые к отправке после добавления секции (0, 1 или 2)
+    List<TaskBatch> add(TaskMessage task) {
+        long size = estimateBytes(task);
+        averageSectionBytes = averageSectionBytes == 0.0
+                ? size
+                : averageSectionBytes + AVERAGE_SMOOTHING * (size - averageSectionBytes);
+
+        if (size * 2 >= byteBudget) {
+            List<TaskBatch> ready = new ArrayList<>(2);
+            if (!current.isEmpty()) {
+                ready.add(flush());
+            }
+            ready.add(new TaskBatch(jobId, Collections.singletonList(task)));
+            return ready;
+        }
+
+        List<TaskBatch> ready = Collections.emptyList();
+        if (!current.isEmpty() &&
+                (currentBytes + size > byteBudget || current.size() >= adaptiveSectionLimit())) {
+            ready = Collections.singletonList(flush());
+        }
+        current.add(task);
+        currentBytes += size;
+        return ready;
+    }
+
+    // Отдаёт недобранный пакет или null, если он пуст
+    TaskBatch flush() {
+        if (current.isEmpty()) {
+            return null;
+        }
+        TaskBatch batch = new TaskBatch(jobId, current);
+        current.clear();
+        currentBytes = 0;
+        return batch;
+    }
+
+    private int adaptiveSectionLimit() {
+        if (averageSectionBytes <= 0.0) {
+            return maxSectionsPerBatch;
+        }
+        long fitting = (long) (byteBudget / averageSectionBytes);
+        return (int) Math.max(1, Math.min(maxSectionsPerBatch, fitting));
+    }
+
+    // Бюджет задан в байтах, поэтому текст считается в UTF-8: у кириллицы два байта на символ
+    private static long estimateBytes(TaskMessage task) {
+        String text = task.getSectionText();
+        return PER_SECTION_OVERHEAD_BYTES + (text != null ? Utf8.length(text, 0, text.length()) : 0);
+    }
+}
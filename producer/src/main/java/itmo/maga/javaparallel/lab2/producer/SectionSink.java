@@ -0,0 +1,14 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+/**
+ * Получатель готовых секций.
+ */
+@FunctionalInterface
+interface SectionSink {
+
+    /**
+     * separator — пробелы исходного текста между концом предыдущей секции и началом этой, если секция
+     * продолжает тот же параграф; null — секция начинается с нового параграфа.
+     */
+    void accept(String section, String separator) throws InterruptedException;
+}
@@ -0,0 +1,39 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+/**
+ * Секция из N предложений подряд, границы параграфов не учитываются.
+ */
+final class SentenceCountSplitter extends AccumulatingSplitter {
+
+    private final int sentencesPerSection;
+    private int sentencesInCurrent;
+
+    SentenceCountSplitter(SectionSink sink, int sentencesPerSection) {
+        super(sink);
+        if (sentencesPerSection <= 0) {
+            throw new IllegalArgumentException("Sentences per section must be positive: " + sentencesPerSection);
+        }
+        this.sentencesPerSection = sentencesPerSection;
+    }
+
+    @Override
+    public void accept(String paragraph) throws InterruptedException {
+        int start = skipWhitespace(paragraph, 0);
+        while (start < paragraph.length()) {
+            int end = findSentenceEnd(paragraph, start);
+            append(paragraph, start, end);
+            sentencesInCurrent++;
+            if (sentencesInCurrent == sentencesPerSection) {
+                emit();
+                sentencesInCurrent = 0;
+            }
+            start = skipWhitespace(paragraph, end);
+        }
+    }
+
+    @Override
+    public void finish() throws InterruptedException {
+        super.finish();
+        sentencesInCurrent = 0;
+    }
+}
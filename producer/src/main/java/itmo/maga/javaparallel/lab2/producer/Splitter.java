@@ -0,0 +1,13 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+/**
+ * Стратегия нарезки секций. Получает параграфы в порядке документа (от ParagraphStreamSplitter)
+ * и отдаёт готовые секции в {@link SectionSink}.
+ */
+interface Splitter {
+
+    void accept(String paragraph) throws InterruptedException;
+
+    // Отдаёт накопленный остаток в конце корпуса
+    void finish() throws InterruptedException;
+}
@@ -0,0 +1,48 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+import java.util.Locale;
+
+/**
+ * Выбор стратегии нарезки по строке вида {@code paragraph}, {@code sentences:N},
+ * {@code bytes:N} или {@code tokens:N}.
+ */
+final class Splitters {
+
+    static final String DEFAULT_SPEC = "paragraph";
+
+    private Splitters() {
+    }
+
+    static Splitter fromSpec(String spec, SectionSink sink) {
+        String normalized = spec == null ? DEFAULT_SPEC : spec.trim().toLowerCase(Locale.ROOT);
+        int colon = normalized.indexOf(':');
+        String name = colon >= 0 ? normalized.substring(0, colon) : normalized;
+        String argument = colon >= 0 ? normalized.substring(colon + 1) : null;
+
+        switch (name) {
+            case "paragraph":
+                return new ParagraphSplitter(sink);
+            case "sentences":
+                return new SentenceCountSplitter(sink, parseSize(spec, argument));
+            case "bytes":
+                return new TargetBytesSplitter(sink, parseSize(spec, argument));
+            case "tokens":
+                return new TokenCountSplitter(sink, parseSize(spec, argument));
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown splitter '" + spec + "', expected paragraph, sentences:N, bytes:N or tokens:N"
+                );
+        }
+    }
+
+    private static int parseSize(String spec, String argument) {
+        if (argument == null || argument.isEmpty()) {
+            throw new IllegalArgumentException("Splitter '" + spec + "' requires a size, e.g. sentences:5");
+        }
+        try {
+            return Integer.parseInt(argument);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size in splitter '" + spec + "'", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+/**
+ * Секции около заданного размера в байтах UTF-8: разрез по ближайшей к цели границе предложения.
+ * Предложение длиннее цели не режется и уходит целиком.
+ */
+final class TargetBytesSplitter extends AccumulatingSplitter {
+
+    private final int targetBytes;
+    private int currentBytes;
+
+    TargetBytesSplitter(SectionSink sink, int targetBytes) {
+        super(sink);
+        if (targetBytes <= 0) {
+            throw new IllegalArgumentException("Target section size must be positive: " + targetBytes);
+        }
+        this.targetBytes = targetBytes;
+    }
+
+    @Override
+    public void accept(String paragraph) throws InterruptedException {
+        int start = skipWhitespace(paragraph, 0);
+        while (start < paragraph.length()) {
+            int end = findSentenceEnd(paragraph, start);
+            int sentenceBytes = Utf8.length(paragraph, start, end);
+
+            if (!isEmpty() && currentBytes + sentenceBytes > targetBytes) {
+                int undershoot = targetBytes - currentBytes;
+                int overshoot = currentBytes + sentenceBytes - targetBytes;
+                if (undershoot <= overshoot) {
+                    cut();
+                    add(paragraph, start, end, sentenceBytes);
+                } else {
+                    add(paragraph, start, end, sentenceBytes);
+                    cut();
+                }
+            } else {
+                add(paragraph, start, end, sentenceBytes);
+                if (currentBytes >= targetBytes) {
+                    cut();
+                }
+            }
+            start = skipWhitespace(paragraph, end);
+        }
+    }
+
+    @Override
+    public void finish() throws InterruptedException {
+        cut();
+    }
+
+    private void add(String paragraph, int start, int end, int sentenceBytes) {
+        append(paragraph, start, end);
+        currentBytes += sentenceBytes;
+    }
+
+    private void cut() throws InterruptedException {
+        emit();
+        currentBytes = 0;
+    }
+}
@@ -0,0 +1,196 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+import itmo.maga.javaparallel.lab2.common.ContentHashes;
+import itmo.maga.javaparallel.lab2.common.MessageTransport;
+import itmo.maga.javaparallel.lab2.common.ResultBatch;
+import itmo.maga.javaparallel.lab2.common.ResultMessage;
+import itmo.maga.javaparallel.lab2.common.ResultStore;
+import itmo.maga.javaparallel.lab2.common.SectionStore;
+import itmo.maga.javaparallel.lab2.common.TaskBatch;
+import itmo.maga.javaparallel.lab2.common.TaskMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Путь секции от продюсера до очереди задач: дедупликация по хэшу, упаковка в пакеты,
+ * выбор приоритета и публикация через транспорт (сериализация и подтверждения — на его стороне).
+ */
+final class TaskDispatcher {
+
+    private static final int MAX_CACHED_STUBS_PER_MESSAGE = 512;
+
+    // Пакеты короче 2^PRIORITY_BASE_LOG2 символов получают нулевой приоритет
+    private static final int PRIORITY_BASE_LOG2 = 8;
+
+    private final String taskQueueName;
+    private final MessageTransport transport;
+    private final SectionBatcher batcher;
+    private final SchedulingMode schedulingMode;
+    private final LongestFirstWindow longestFirstWindow;
+    private final int maxPriority;
+
+    // Хранилище готовых результатов; null — дедупликация выключена
+    private final ResultStore resultStore;
+    // Версия настроек воркеров из ответа на пробную задачу (часть ключа результата); null — дедупликация
+    // в этом задании выключена
+    private final String analysisVersion;
+    // Хранилище исходных текстов для агрегатора; null — воркеры возвращают текст целиком
+    private final SectionStore sectionStore;
+    private final String resultQueueName;
+    private final List<ResultMessage> cachedStubs = new ArrayList<>();
+
+    private int sentBatches;
+    private int sentSections;
+    private int cachedSections;
+
+    TaskDispatcher(
+            String taskQueueName,
+            MessageTransport transport,
+            SectionBatcher batcher,
+            SchedulingMode schedulingMode,
+            int scheduleWindow,
+            int maxPriority,
+            ResultStore resultStore,
+            String analysisVersion,
+            SectionStore sectionStore,
+            String resultQueueName
+    ) {
+        if (schedulingMode == SchedulingMode.PRIORITY && maxPriority <= 0) {
+            throw new IllegalArgumentException(
+                    "Priority scheduling requires a task queue declared with x-max-priority > 0"
+            );
+        }
+        this.taskQueueName = taskQueueName;
+        this.transport = transport;
+        this.batcher = batcher;
+        this.schedulingMode = schedulingMode;
+        this.longestFirstWindow = schedulingMode == SchedulingMode.LPT
+                ? new LongestFirstWindow(scheduleWindow)
+                : null;
+        this.maxPriority = maxPriority;
+        this.resultStore = resultStore;
+        this.analysisVersion = analysisVersion;
+        this.sectionStore = sectionStore;
+        this.resultQueueName = resultQueueName;
+    }
+
+    int getSentBatches() {
+        return sentBatches;
+    }
+
+    int getSentSections() {
+        return sentSections;
+    }
+
+    int getCachedSections() {
+        return cachedSections;
+    }
+
+    void submit(TaskMessage task) throws IOException, InterruptedException {
+        if (task.getContentHash() == null && task.getSectionText() != null) {
+            task.setContentHash(ContentHashes.sha256Hex(task.getSectionText()));
+        }
+        // Сохраняем и для секций из кэша: сохранённый результат тоже может состоять из правок
+        if (sectionStore != null && task.getSectionText() != null) {
+            sectionStore.save(task.getContentHash(), task.getSectionText());
+            task.setOriginalStored(true);
+        }
+        if (resultStore != null && analysisVersion != null && resultStore.contains(ResultStore.keyFor(
+                task.getContentHash(), task.getTopN(), task.getSentimentMode(), analysisVersion))) {
+            addCachedStub(task);
+            return;
+        }
+
+        if (longestFirstWindow != null) {
+            TaskMessage evicted = longestFirstWindow.offer(task);
+            if (evicted != null) {
+                batch(evicted);
+            }
+        } else {
+            batch(task);
+        }
+    }
+
+    void flush() throws IOException, InterruptedException {
+        if (longestFirstWindow != null) {
+            TaskMessage task;
+            while ((task = longestFirstWindow.poll()) != null) {
+                batch(task);
+            }
+        }
+        TaskBatch batch = batcher.flush();
+        if (batch != null) {
+            publishBatch(batch);
+        }
+        publishCachedStubs();
+    }
+
+    // Неизменённая секция не идёт к воркерам: агрегатор получает заглушку и берёт результат из хранилища
+    private void addCachedStub(TaskMessage task) throws IOException, InterruptedException {
+        ResultMessage stub = new ResultMessage();
+        stub.setJobId(task.getJobId());
+        stub.setSectionIndex(task.getSectionIndex());
+        stub.setTotalSections(task.getTotalSections());
+        stub.setSourceFileId(task.getSourceFileId());
+        stub.setContinuationSeparator(task.getContinuationSeparator());
+        stub.setContentHash(task.getContentHash());
+        stub.setTopN(task.getTopN());
+        stub.setSentimentMode(task.getSentimentMode());
+        stub.setAnalysisVersion(analysisVersion);
+        stub.setFromCache(true);
+
+        cachedStubs.add(stub);
+        cachedSections++;
+        if (cachedStubs.size() >= MAX_CACHED_STUBS_PER_MESSAGE) {
+            publishCachedStubs();
+        }
+    }
+
+    private void publishCachedStubs() throws IOException, InterruptedException {
+        if (cachedStubs.isEmpty()) {
+            return;
+        }
+        ResultBatch batch = new ResultBatch(cachedStubs.get(0).getJobId(), cachedStubs);
+        String description = cachedStubs.size() + " cached section(s)";
+        cachedStubs.clear();
+
+        transport.publish(resultQueueName, batch, 0, description);
+        System.out.println("Skipped " + description + ", aggregator will reuse stored results");
+    }
+
+    private void batch(TaskMessage task) throws IOException, InterruptedException {
+        List<TaskBatch> ready = batcher.add(task);
+        for (TaskBatch batch : ready) {
+            publishBatch(batch);
+        }
+    }
+
+    private void publishBatch(TaskBatch batch) throws IOException, InterruptedException {
+        List<TaskMessage> tasks = batch.getTasks();
+        int firstIndex = tasks.get(0).getSectionIndex();
+        int lastIndex = tasks.get(tasks.size() - 1).getSectionIndex();
+        String description = tasks.size() == 1
+                ? "section " + firstIndex
+                : "sections " + firstIndex + ".." + lastIndex;
+
+        int priority = schedulingMode == SchedulingMode.PRIORITY ? priorityFor(tasks) : 0;
+        String size = transport.publish(taskQueueName, batch, priority, description);
+
+        sentBatches++;
+        sentSections += tasks.size();
+
+        System.out.println("Sent " + description + " (" + tasks.size() + " in batch, " + size + ")");
+    }
+
+    // Логарифмическая шкала стоимости: каждый следующий приоритет — вдвое более длинный пакет
+    private int priorityFor(List<TaskMessage> tasks) {
+        long cost = 0;
+        for (TaskMessage task : tasks) {
+            cost += LongestFirstWindow.estimateCost(task);
+        }
+        int log2 = 63 - Long.numberOfLeadingZeros(Math.max(1, cost));
+        return Math.max(0, Math.min(maxPriority, log2 - PRIORITY_BASE_LOG2));
+    }
+}
@@ -0,0 +1,56 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+/**
+ * Секции с фиксированным числом слов (букв/цифр подряд, как в токенизаторе воркера).
+ * Разрез делается на первом пробеле после N-го слова, чтобы не отрывать пунктуацию.
+ */
+final class TokenCountSplitter extends AccumulatingSplitter {
+
+    private final int tokensPerSection;
+    private int tokensInCurrent;
+
+    TokenCountSplitter(SectionSink sink, int tokensPerSection) {
+        super(sink);
+        if (tokensPerSection <= 0) {
+            throw new IllegalArgumentException("Tokens per section must be positive: " + tokensPerSection);
+        }
+        this.tokensPerSection = tokensPerSection;
+    }
+
+    @Override
+    public void accept(String paragraph) throws InterruptedException {
+        int length = paragraph.length();
+        int pieceStart = skipWhitespace(paragraph, 0);
+        boolean inToken = false;
+
+        int i = pieceStart;
+        while (i < length) {
+            int codePoint = paragraph.codePointAt(i);
+            boolean wordChar = Character.isLetter(codePoint) || Character.isDigit(codePoint);
+            if (wordChar && !inToken) {
+                tokensInCurrent++;
+            }
+            inToken = wordChar;
+            i += Character.charCount(codePoint);
+
+            if (!inToken && tokensInCurrent >= tokensPerSection && Character.isWhitespace(codePoint)) {
+                append(paragraph, pieceStart, i - 1);
+                emit();
+                tokensInCurrent = 0;
+                pieceStart = skipWhitespace(paragraph, i);
+                i = pieceStart;
+            }
+        }
+        append(paragraph, pieceStart, length);
+        if (tokensInCurrent >= tokensPerSection) {
+            emit();
+            tokensInCurrent = 0;
+        }
+    }
+
+    @Override
+    public void finish() throws InterruptedException {
+        super.finish();
+        tokensInCurrent = 0;
+    }
+}
@@ -0,0 +1,28 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+/**
+ * Длина текста в UTF-8 без кодирования: бюджеты секций и пакетов заданы в байтах, а не в символах.
+ */
+final class Utf8 {
+
+    private Utf8() {
+    }
+
+    static int length(String text, int start, int end) {
+        int bytes = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
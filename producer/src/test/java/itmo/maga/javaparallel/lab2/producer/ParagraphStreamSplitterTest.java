@@ -0,0 +1,122 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Потоковое разбиение против прежнего: переводы строк нормализуются, текст режется по "\\n\\s*\\n",
+ * параграфы обрезаются по краям, пустые пропускаются. Вход подаётся кусками по 1-3 байта,
+ * так что CRLF и многобайтные символы UTF-8 разрываются между кусками.
+ */
+class ParagraphStreamSplitterTest {
+
+    private static final String[] SAMPLES = {
+            "",
+            "\n\n\n",
+            "one paragraph",
+            "  first\n\nsecond  \n  \n\tthird\n",
+            "line one\nline two\n\nnext",
+            "crlf\r\n\r\nparagraphs\r\nwith lines\r\n \r\nend\r\n",
+            "old mac\r\rline\rbreaks\r\r\r",
+            "mixed\r\n\nbreaks\n\r\nand\n\r\rmore",
+            "\u000B\f form\ffeed \u000B\n\u000B\nvertical tab",
+            "Алиса 😀 ёж\n\nΟΔΟΣ — «цитата»\n \t\nnon\u00A0breaking\u00A0\n\u00A0\nspace",
+            "\n\n  leading and trailing blanks  \n\n"
+    };
+
+    private static final String[] PIECES = {
+            "a", "word", "Ж", "ёж", "é", "😀", "—", " ", "  ", "\t", "\n", "\n", "\r", "\r\n", "\f", "\u000B",
+            "\u00A0", "."
+    };
+
+    @Test
+    void matchesRegexSplitOnSamples() throws Exception {
+        Random random = new Random(20240517L);
+        for (String sample : SAMPLES) {
+            assertSameAsRegex(sample, random);
+        }
+    }
+
+    @Test
+    void matchesRegexSplitOnRandomTexts() throws Exception {
+        Random random = new Random(20240517L);
+        for (int iteration = 0; iteration < 2000; iteration++) {
+            StringBuilder text = new StringBuilder();
+            int pieces = random.nextInt(40);
+            for (int i = 0; i < pieces; i++) {
+                text.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            assertSameAsRegex(text.toString(), random);
+        }
+    }
+
+    @Test
+    void splitsFilesAndStreams() throws Exception {
+        String text = String.join("\r\n \r\n", SAMPLES);
+        assertEquals(regexSplit(text), splitStream(text), "stream");
+
+        Path file = Files.createTempFile("paragraphs", ".txt");
+        try {
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+            List<String> sections = new ArrayList<>();
+            new ParagraphStreamSplitter(new ParagraphSplitter((section, separator) -> sections.add(section)))
+                    .splitFile(file);
+            assertEquals(regexSplit(text), sections, "file");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertSameAsRegex(String text, Random random) throws InterruptedException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        List<String> sections = new ArrayList<>();
+        ParagraphStreamSplitter splitter =
+                new ParagraphStreamSplitter(new ParagraphSplitter((section, separator) -> sections.add(section)));
+
+        int position = 0;
+        while (position < bytes.length) {
+            int length = Math.min(1 + random.nextInt(3), bytes.length - position);
+            // Кусок то с нулевой, то с ненулевой позицией в буфере
+            ByteBuffer chunk = random.nextBoolean()
+                    ? ByteBuffer.wrap(bytes, position, length)
+                    : ByteBuffer.wrap(bytes, position, length).slice();
+            splitter.feed(chunk);
+            position += length;
+        }
+        splitter.finish();
+
+        assertEquals(regexSplit(text), sections, "text: " + text.replace("\r", "\\r").replace("\n", "\\n"));
+        assertEquals(bytes.length, splitter.getBytesRead());
+        assertEquals(sections.size(), splitter.getSectionCount());
+    }
+
+    private static List<String> splitStream(String text) throws Exception {
+        List<String> sections = new ArrayList<>();
+        new ParagraphStreamSplitter(new ParagraphSplitter((section, separator) -> sections.add(section)))
+                .splitStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        return sections;
+    }
+
+    // Прежнее разбиение ProducerApp
+    private static List<String> regexSplit(String text) {
+        String normalized = text.replace("\r\n", "\n").replace('\r', '\n');
+        List<String> sections = new ArrayList<>();
+        for (String block : normalized.split("\\n\\s*\\n")) {
+            String trimmed = block.trim();
+            if (!trimmed.isEmpty()) {
+                sections.add(trimmed);
+            }
+        }
+        return sections;
+    }
+}
@@ -0,0 +1,94 @@
+package itmo.maga.javaparallel.lab2.producer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Секции любой стратегии, склеенные как в агрегаторе (по пробелам разреза внутри параграфа,
+ * иначе пустой строкой), дают тот же текст, что и секции по параграфам.
+ */
+class SplittersTest {
+
+    private static final String PARAGRAPH_SEPARATOR = "\n\n";
+
+    private static final String[] SPECS = {
+            "sentences:1", "sentences:3", "tokens:1", "tokens:7", "tokens:50", "bytes:1", "bytes:100", "bytes:2000"
+    };
+
+    private static final String SAMPLE = "  CHAPTER I.\r\nDown the Rabbit-Hole\r\n\r\n\r\n"
+            + "Alice was beginning to get very tired of sitting by her sister on the\n"
+            + "bank, and of having nothing to do: once or twice she had peeped into\n"
+            + "the book her sister was reading.  “And what is the use of a book,”\tthought Alice\n"
+            + "“without pictures or conversations?”\n \n"
+            + "Глава вторая.   Море слёз!  Всё страньше и страньше?\n\n\n"
+            + "Short.\n\n"
+            + "word\n";
+
+    @Test
+    void reassembledSampleMatchesParagraphs() throws Exception {
+        assertSameAsParagraphs(SAMPLE, false);
+    }
+
+    @Test
+    void reassembledBookMatchesParagraphs() throws Exception {
+        String book;
+        try (InputStream in = SplittersTest.class.getClassLoader().getResourceAsStream("book.txt")) {
+            assertNotNull(in, "book.txt is missing from the producer resources");
+            book = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        // Книга достаточно длинная, чтобы каждая стратегия резала и посреди параграфа
+        assertSameAsParagraphs(book, true);
+    }
+
+    private static void assertSameAsParagraphs(String text, boolean expectCuts) throws Exception {
+        String expected = reassemble(split(Splitters.DEFAULT_SPEC, text));
+        for (String spec : SPECS) {
+            List<String[]> sections = split(spec, text);
+            assertEquals(expected, reassemble(sections), "splitter " + spec);
+            if (!expectCuts) {
+                continue;
+            }
+
+            boolean cutInsideParagraph = false;
+            for (String[] section : sections) {
+                cutInsideParagraph |= section[1] != null;
+            }
+            assertTrue(cutInsideParagraph, "splitter " + spec + " never cut inside a paragraph");
+        }
+    }
+
+    // {текст секции, пробелы разреза или null}
+    private static List<String[]> split(String spec, String text) throws IOException, InterruptedException {
+        List<String[]> sections = new ArrayList<>();
+        Splitter splitter = Splitters.fromSpec(
+                spec, (section, separator) -> sections.add(new String[]{section, separator})
+        );
+        new ParagraphStreamSplitter(splitter).splitStream(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))
+        );
+        splitter.finish();
+        return sections;
+    }
+
+    private static String reassemble(List<String[]> sections) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < sections.size(); i++) {
+            String[] section = sections.get(i);
+            if (i > 0) {
+                text.append(section[1] != null ? section[1] : PARAGRAPH_SEPARATOR);
+            }
+            text.append(section[0]);
+        }
+        return text.toString();
+    }
+}
@@ -5,4 +5,5 @@ include("producer")
 include("worker")
 include("aggregator")
 include("sink")
+include("embedded")
 
@@ -2,11 +2,10 @@ package itmo.maga.javaparallel.lab2.sink;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
-import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.Connection;
-import com.rabbitmq.client.ConnectionFactory;
-import com.rabbitmq.client.DeliverCallback;
 import itmo.maga.javaparallel.lab2.common.FinalJobResult;
+import itmo.maga.javaparallel.lab2.common.MessageTransport;
+import itmo.maga.javaparallel.lab2.common.PrefetchController;
+import itmo.maga.javaparallel.lab2.common.RabbitTransport;
 import itmo.maga.javaparallel.lab2.common.ResultMessage;
 
 import java.io.IOException;
@@ -17,7 +16,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 public class ResultSinkApp {
 
@@ -34,7 +33,7 @@ public class ResultSinkApp {
 
     public static void main(String[] args) {
         try {
-            runSink();
+            start(new RabbitTransport(rabbitSettings()), null);
         } catch (Exception e) {
             System.err.println("Result sink failed with unexpected error");
             e.printStackTrace(System.err);
@@ -47,93 +46,91 @@ public class ResultSinkApp {
         return mapper;
     }
 
-    private static void runSink() throws IOException, TimeoutException {
+    /**
+     * Подписывает приёмник на очередь итогов; onSaved (может быть null) вызывается после записи файлов задания.
+     */
+    public static void start(MessageTransport transport, Consumer<FinalJobResult> onSaved) throws IOException {
         Files.createDirectories(OUTPUT_DIR);
 
-        ConnectionFactory factory = new ConnectionFactory();
-        factory.setHost(RABBIT_HOST);
-        factory.setPort(RABBIT_PORT);
-        factory.setUsername(RABBIT_USERNAME);
-        factory.setPassword(RABBIT_PASSWORD);
-
-        Connection connection = factory.newConnection();
-        Channel channel = connection.createChannel();
-
-        channel.queueDeclare(FINAL_RESULT_QUEUE_NAME, true, false, false, null);
-        channel.basicQos(1);
+        transport.declareQueue(FINAL_RESULT_QUEUE_NAME, 0);
 
         String sinkId = buildSinkId();
+        PrefetchController prefetch = PrefetchController.configured("lab2.sink", FINAL_RESULT_QUEUE_NAME, 1);
         System.out.println(
                 "Result sink " + sinkId +
-                        " started. Waiting for messages from '" + FINAL_RESULT_QUEUE_NAME + "'..."
+                        " started. Waiting for messages from '" + FINAL_RESULT_QUEUE_NAME + "' (" +
+                        prefetch.describe() + ", transport: " + transport.describe() + ")..."
         );
 
-        DeliverCallback deliverCallback = (consumerTag, delivery) -> {
-            long deliveryTag = delivery.getEnvelope().getDeliveryTag();
-            try {
-                byte[] body = delivery.getBody();
-                FinalJobResult result = OBJECT_MAPPER.readValue(body, FinalJobResult.class);
+        transport.consume(FINAL_RESULT_QUEUE_NAME, FinalJobResult.class, 1, prefetch, null, result -> {
+            saveResult(sinkId, result);
+            if (result != null && onSaved != null) {
+                onSaved.accept(result);
+            }
+            return null;
+        });
+    }
 
-                if (result == null) {
-                    System.err.println("Result sink: received null FinalJobResult, skipping");
-                    channel.basicAck(deliveryTag, false);
-                    return;
-                }
+    private static RabbitTransport.Settings rabbitSettings() {
+        RabbitTransport.Settings settings = new RabbitTransport.Settings();
+        settings.setHost(RABBIT_HOST);
+        settings.setPort(RABBIT_PORT);
+        settings.setUsername(RABBIT_USERNAME);
+        settings.setPassword(RABBIT_PASSWORD);
+        return settings;
+    }
 
-                Path jsonOutputPath = buildJsonOutputPath(result);
-                writeJsonResultToFile(result, jsonOutputPath);
+    private static void saveResult(String sinkId, FinalJobResult result) throws IOException {
+        if (result == null) {
+            System.err.println("Result sink: received null FinalJobResult, skipping");
+            return;
+        }
 
-                Path textOutputPath = null;
-                String modifiedText = result.getModifiedText();
-                if (modifiedText != null && !modifiedText.isEmpty()) {
-                    textOutputPath = buildModifiedTextOutputPath(result);
-                    writeModifiedTextToFile(modifiedText, textOutputPath);
-                }
+        Path jsonOutputPath = buildJsonOutputPath(result);
+        writeJsonResultToFile(result, jsonOutputPath);
+        if (result.getFailure() != null) {
+            System.err.println(
+                    "Result sink " + sinkId + ": job " + result.getJobId() + " FAILED, " +
+                            result.getFailedSections() + " of " + result.getTotalSections() +
+                            " sections lost (" + result.getFailure() + "), details in " + jsonOutputPath.toAbsolutePath()
+            );
+            return;
+        }
 
-                Path sortedSentencesOutputPath = null;
-                List<String> sortedSentences = result.getSortedSentences();
-                if (sortedSentences != null && !sortedSentences.isEmpty()) {
-                    sortedSentencesOutputPath = buildSortedSentencesOutputPath(result);
-                    writeSortedSentencesToFile(sortedSentences, sortedSentencesOutputPath);
-                }
+        Path textOutputPath = null;
+        String modifiedText = result.getModifiedText();
+        if (modifiedText != null && !modifiedText.isEmpty()) {
+            textOutputPath = buildModifiedTextOutputPath(result);
+            writeModifiedTextToFile(modifiedText, textOutputPath);
+        }
 
-                if (textOutputPath != null || sortedSentencesOutputPath != null) {
-                    StringBuilder sb = new StringBuilder();
-                    sb.append("Result sink ").append(sinkId)
-                            .append(" saved result for job ").append(result.getJobId())
-                            .append(" to ").append(jsonOutputPath.toAbsolutePath());
-                    if (textOutputPath != null) {
-                        sb.append(" and ").append(textOutputPath.toAbsolutePath());
-                    }
-                    if (sortedSentencesOutputPath != null) {
-                        sb.append(" and ").append(sortedSentencesOutputPath.toAbsolutePath());
-                    }
-                    System.out.println(sb.toString());
-                } else {
-                    System.out.println(
-                            "Result sink " + sinkId +
-                                    " saved result for job " + result.getJobId() +
-                                    " to " + jsonOutputPath.toAbsolutePath() +
-                                    " (no modifiedText or sorted sentences to write)"
-                    );
-                }
+        Path sortedSentencesOutputPath = null;
+        List<String> sortedSentences = result.getSortedSentences();
+        if (sortedSentences != null && !sortedSentences.isEmpty()) {
+            sortedSentencesOutputPath = buildSortedSentencesOutputPath(result);
+            writeSortedSentencesToFile(sortedSentences, sortedSentencesOutputPath);
+        }
 
-                channel.basicAck(deliveryTag, false);
-            } catch (Exception ex) {
-                ex.printStackTrace(System.err);
-                channel.basicNack(deliveryTag, false, true);
+        if (textOutputPath != null || sortedSentencesOutputPath != null) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Result sink ").append(sinkId)
+                    .append(" saved result for job ").append(result.getJobId())
+                    .append(" to ").append(jsonOutputPath.toAbsolutePath());
+            if (textOutputPath != null) {
+                sb.append(" and ").append(textOutputPath.toAbsolutePath());
             }
-        };
-
-        boolean autoAck = false;
-        channel.basicConsume(
-                FINAL_RESULT_QUEUE_NAME,
-                autoAck,
-                deliverCallback,
-                consumerTag -> System.out.println(
-                        "Result sink " + sinkId + " cancelled consumer: " + consumerTag
-                )
-        );
+            if (sortedSentencesOutputPath != null) {
+                sb.append(" and ").append(sortedSentencesOutputPath.toAbsolutePath());
+            }
+            System.out.println(sb.toString());
+        } else {
+            System.out.println(
+                    "Result sink " + sinkId +
+                            " saved result for job " + result.getJobId() +
+                            " to " + jsonOutputPath.toAbsolutePath() +
+                            " (no modifiedText or sorted sentences to write)"
+            );
+        }
     }
 
     private static Path buildJsonOutputPath(FinalJobResult result) {
@@ -159,12 +156,18 @@ public class ResultSinkApp {
         dto.setJobId(result.getJobId());
         dto.setTotalSections(result.getTotalSections());
         dto.setTotalWordCount(result.getTotalWordCount());
+        dto.setTopN(result.getTopN());
         dto.setGlobalTopWords(result.getGlobalTopWords());
         dto.setSections(convertSections(result.getSections()));
         dto.setTotalSentimentScore(result.getTotalSentimentScore());
         dto.setTotalPositiveWordCount(result.getTotalPositiveWordCount());
         dto.setTotalNegativeWordCount(result.getTotalNegativeWordCount());
         dto.setAverageSentimentPerSection(result.getAverageSentimentPerSection());
+        dto.setClassProbabilities(result.getClassProbabilities());
+        dto.setClassifiedSections(result.getClassifiedSections());
+        dto.setDetectedNames(result.getDetectedNames());
+        dto.setFailure(result.getFailure());
+        dto.setFailedSections(result.getFailedSections());
 
         OBJECT_MAPPER.writeValue(outputPath.toFile(), dto);
     }
@@ -180,10 +183,12 @@ public class ResultSinkApp {
             }
             SectionStatsWithoutText stats = new SectionStatsWithoutText();
             stats.setSectionIndex(section.getSectionIndex());
+            stats.setSourceFileId(section.getSourceFileId());
             stats.setWordCount(section.getWordCount());
             stats.setSentimentScore(section.getSentimentScore());
             stats.setPositiveWordCount(section.getPositiveWordCount());
             stats.setNegativeWordCount(section.getNegativeWordCount());
+            stats.setClassProbabilities(section.getClassProbabilities());
             stats.setTopWords(section.getTopWords());
             list.add(stats);
         }
@@ -219,12 +224,18 @@ public class ResultSinkApp {
         private String jobId;
         private int totalSections;
         private int totalWordCount;
+        private int topN;
         private List<ResultMessage.WordFrequency> globalTopWords;
         private List<SectionStatsWithoutText> sections;
-        private int totalSentimentScore;
+        private double totalSentimentScore;
         private int totalPositiveWordCount;
         private int totalNegativeWordCount;
         private double averageSentimentPerSection;
+        private List<ResultMessage.ClassProbability> classProbabilities;
+        private int classifiedSections;
+        private List<ResultMessage.DetectedName> detectedNames;
+        private String failure;
+        private int failedSections;
 
         public FinalJobResultWithoutText() {
         }
@@ -253,6 +264,14 @@ public class ResultSinkApp {
             this.totalWordCount = totalWordCount;
         }
 
+        public int getTopN() {
+            return topN;
+        }
+
+        public void setTopN(int topN) {
+            this.topN = topN;
+        }
+
         public List<ResultMessage.WordFrequency> getGlobalTopWords() {
             return globalTopWords;
         }
@@ -269,11 +288,11 @@ public class ResultSinkApp {
             this.sections = sections;
         }
 
-        public int getTotalSentimentScore() {
+        public double getTotalSentimentScore() {
             return totalSentimentScore;
         }
 
-        public void setTotalSentimentScore(int totalSentimentScore) {
+        public void setTotalSentimentScore(double totalSentimentScore) {
             this.totalSentimentScore = totalSentimentScore;
         }
 
@@ -300,6 +319,46 @@ public class ResultSinkApp {
         public void setAverageSentimentPerSection(double averageSentimentPerSection) {
             this.averageSentimentPerSection = averageSentimentPerSection;
         }
+
+        public List<ResultMessage.ClassProbability> getClassProbabilities() {
+            return classProbabilities;
+        }
+
+        public void setClassProbabilities(List<ResultMessage.ClassProbability> classProbabilities) {
+            this.classProbabilities = classProbabilities;
+        }
+
+        public int getClassifiedSections() {
+            return classifiedSections;
+        }
+
+        public void setClassifiedSections(int classifiedSections) {
+            this.classifiedSections = classifiedSections;
+        }
+
+        public List<ResultMessage.DetectedName> getDetectedNames() {
+            return detectedNames;
+        }
+
+        public void setDetectedNames(List<ResultMessage.DetectedName> detectedNames) {
+            this.detectedNames = detectedNames;
+        }
+
+        public String getFailure() {
+            return failure;
+        }
+
+        public void setFailure(String failure) {
+            this.failure = failure;
+        }
+
+        public int getFailedSections() {
+            return failedSections;
+        }
+
+        public void setFailedSections(int failedSections) {
+            this.failedSections = failedSections;
+        }
     }
 
     /**
@@ -308,10 +367,12 @@ public class ResultSinkApp {
     private static final class SectionStatsWithoutText {
 
         private int sectionIndex;
+        private int sourceFileId;
         private int wordCount;
-        private int sentimentScore;
+        private double sentimentScore;
         private int positiveWordCount;
         private int negativeWordCount;
+        private List<ResultMessage.ClassProbability> classProbabilities;
         private List<ResultMessage.WordFrequency> topWords;
 
         public SectionStatsWithoutText() {
@@ -325,6 +386,14 @@ public class ResultSinkApp {
             this.sectionIndex = sectionIndex;
         }
 
+        public int getSourceFileId() {
+            return sourceFileId;
+        }
+
+        public void setSourceFileId(int sourceFileId) {
+            this.sourceFileId = sourceFileId;
+        }
+
         public int getWordCount() {
             return wordCount;
         }
@@ -333,11 +402,11 @@ public class ResultSinkApp {
             this.wordCount = wordCount;
         }
 
-        public int getSentimentScore() {
+        public double getSentimentScore() {
             return sentimentScore;
         }
 
-        public void setSentimentScore(int sentimentScore) {
+        public void setSentimentScore(double sentimentScore) {
             this.sentimentScore = sentimentScore;
         }
 
@@ -357,6 +426,14 @@ public class ResultSinkApp {
             this.negativeWordCount = negativeWordCount;
         }
 
+        public List<ResultMessage.ClassProbability> getClassProbabilities() {
+            return classProbabilities;
+        }
+
+        public void setClassProbabilities(List<ResultMessage.ClassProbability> classProbabilities) {
+            this.classProbabilities = classProbabilities;
+        }
+
         public List<ResultMessage.WordFrequency> getTopWords() {
             return topWords;
         }
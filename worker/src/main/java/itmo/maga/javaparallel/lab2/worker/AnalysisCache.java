@@ -0,0 +1,107 @@
+package itmo.maga.javaparallel.lab2.worker;
+
+import itmo.maga.javaparallel.lab2.common.BinaryMessageCodec;
+import itmo.maga.javaparallel.lab2.common.MessageCodec;
+import itmo.maga.javaparallel.lab2.common.ResultMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Кэш результатов анализа секций внутри процесса воркера, LRU с ограничением по размеру.
+ * <p>
+ * Ключ — SHA-256 исходного текста секции вместе с версией словаря тональности и правил замены,
+ * поэтому повторяющиеся фрагменты (лицензии, разделители глав, титульные страницы) в любом задании
+ * стоят поиска по хэшу. Хранится не текст, а результат в бинарном формате сообщений: правки,
+ * частоты, тональность и предложения; текст после замен восстанавливается правками из исходника задачи.
+ * Записи можно держать вне кучи (direct ByteBuffer), тогда кэш не увеличивает работу GC.
+ */
+final class AnalysisCache {
+
+    // Примерные накладные расходы записи: ключ, узел LinkedHashMap, обёртка буфера
+    private static final int ENTRY_OVERHEAD = 192;
+
+    private final MessageCodec codec = new BinaryMessageCodec();
+
+    private final long maxBytes;
+    private final boolean offHeap;
+
+    // Порядок доступа: первым идёт давно не использованный ключ
+    private final LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    AnalysisCache(long maxBytes, boolean offHeap) {
+        this.maxBytes = maxBytes;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Копия сохранённого результата (её можно менять) или null.
+     */
+    ResultMessage get(String key) throws IOException {
+        ByteBuffer stored;
+        synchronized (this) {
+            stored = entries.get(key);
+            if (stored == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        // Буфер не меняется после записи, копируем без блокировки через собственный duplicate
+        ByteBuffer view = stored.duplicate();
+        byte[] bytes = new byte[view.remaining()];
+        view.get(bytes);
+        return codec.decode(bytes, ResultMessage.class);
+    }
+
+    void put(String key, ResultMessage analysis) throws IOException {
+        byte[] bytes = codec.encode(analysis);
+        long size = (long) bytes.length + ENTRY_OVERHEAD;
+        // Одна огромная секция не должна вытеснять весь кэш
+        if (size > maxBytes / 4) {
+            return;
+        }
+        ByteBuffer buffer = offHeap
+                ? ByteBuffer.allocateDirect(bytes.length).put(bytes).flip()
+                : ByteBuffer.wrap(bytes);
+
+        synchronized (this) {
+            ByteBuffer previous = entries.put(key, buffer);
+            if (previous != null) {
+                usedBytes -= previous.capacity() + ENTRY_OVERHEAD;
+            }
+            usedBytes += size;
+
+            Iterator<Map.Entry<String, ByteBuffer>> eldest = entries.entrySet().iterator();
+            while (usedBytes > maxBytes && eldest.hasNext()) {
+                ByteBuffer evicted = eldest.next().getValue();
+                eldest.remove();
+                usedBytes -= evicted.capacity() + ENTRY_OVERHEAD;
+                evictions++;
+            }
+        }
+    }
+
+    synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    synchronized String describe() {
+        return String.format(
+                Locale.ROOT,
+                "hit ratio %.1f%% (%d/%d), %d entries, %d/%d KB%s, %d evicted",
+                getHitRatio() * 100.0, hits, hits + misses, entries.size(),
+                usedBytes / 1024, maxBytes / 1024, offHeap ? " off-heap" : "", evictions
+        );
+    }
+}
@@ -0,0 +1,197 @@
+package itmo.maga.javaparallel.lab2.worker;
+
+import itmo.maga.javaparallel.lab2.common.WordCounter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Мультиномиальный наивный байесовский классификатор тональности: логарифмы априорных вероятностей
+ * классов и логарифмы правдоподобий слов словаря (со сглаживанием Лапласа, см. NaiveBayesTrainer).
+ * Слова вне словаря не влияют на оценку.
+ * <p>
+ * Словарь — WordCounter (слово -> номер), правдоподобия — один float[] по словам: значения всех
+ * классов одного слова лежат рядом, так что учёт слова секции — одно чтение подряд идущих чисел.
+ * Оценка не создаёт объектов: анализатор передаёт номер слова, число его вхождений и свой массив сумм.
+ * <p>
+ * Формат файла (DataOutputStream): сигнатура, версия, число классов, для каждого класса метка
+ * и логарифм априорной вероятности, размер словаря и слова, затем по каждому классу
+ * float-массив правдоподобий в порядке словаря.
+ */
+final class NaiveBayesModel {
+
+    private static final int MAGIC = 0x4C324E42;
+    private static final int FORMAT_VERSION = 1;
+
+    private final String[] labels;
+    private final float[] logPriors;
+    private final WordCounter vocabulary;
+    // logLikelihoods[word * classCount + c]
+    private final float[] logLikelihoods;
+
+    private NaiveBayesModel(String[] labels, float[] logPriors, WordCounter vocabulary, float[] logLikelihoods) {
+        this.labels = labels;
+        this.logPriors = logPriors;
+        this.vocabulary = vocabulary;
+        this.logLikelihoods = logLikelihoods;
+    }
+
+    /**
+     * classLikelihoods[c][w] — логарифм правдоподобия слова words[w] в классе c.
+     */
+    static NaiveBayesModel of(String[] labels, float[] logPriors, List<String> words, float[][] classLikelihoods) {
+        if (labels.length < 2 || logPriors.length != labels.length || classLikelihoods.length != labels.length) {
+            throw new IllegalArgumentException("Model needs at least two classes with priors and likelihoods");
+        }
+        WordCounter vocabulary = new WordCounter(words.size());
+        for (String word : words) {
+            vocabulary.add(word, 1);
+        }
+        if (vocabulary.size() != words.size()) {
+            throw new IllegalArgumentException("Model vocabulary contains duplicate words");
+        }
+        int classCount = labels.length;
+        float[] interleaved = new float[words.size() * classCount];
+        for (int c = 0; c < classCount; c++) {
+            if (classLikelihoods[c].length != words.size()) {
+                throw new IllegalArgumentException("Class " + labels[c] + " has " +
+                        classLikelihoods[c].length + " likelihoods for " + words.size() + " words");
+            }
+            for (int w = 0; w < words.size(); w++) {
+                interleaved[w * classCount + c] = classLikelihoods[c][w];
+            }
+        }
+        return new NaiveBayesModel(labels.clone(), logPriors.clone(), vocabulary, interleaved);
+    }
+
+    static NaiveBayesModel read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a naive Bayes model file");
+        }
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported naive Bayes model version " + version);
+        }
+
+        int classCount = in.readInt();
+        if (classCount < 2 || classCount > 256) {
+            throw new IOException("Invalid class count in model: " + classCount);
+        }
+        String[] labels = new String[classCount];
+        float[] logPriors = new float[classCount];
+        for (int c = 0; c < classCount; c++) {
+            labels[c] = in.readUTF();
+            logPriors[c] = in.readFloat();
+        }
+
+        int size = in.readInt();
+        if (size < 0 || (long) size * classCount > Integer.MAX_VALUE - 8) {
+            throw new IOException("Invalid vocabulary size in model: " + size);
+        }
+        WordCounter vocabulary = new WordCounter(size);
+        for (int w = 0; w < size; w++) {
+            vocabulary.add(in.readUTF(), 1);
+        }
+        if (vocabulary.size() != size) {
+            throw new IOException("Model vocabulary contains duplicate words");
+        }
+
+        float[] logLikelihoods = new float[size * classCount];
+        for (int c = 0; c < classCount; c++) {
+            for (int w = 0; w < size; w++) {
+                logLikelihoods[w * classCount + c] = in.readFloat();
+            }
+        }
+        return new NaiveBayesModel(labels, logPriors, vocabulary, logLikelihoods);
+    }
+
+    void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        int classCount = labels.length;
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(classCount);
+        for (int c = 0; c < classCount; c++) {
+            out.writeUTF(labels[c]);
+            out.writeFloat(logPriors[c]);
+        }
+        int size = vocabulary.size();
+        out.writeInt(size);
+        for (int w = 0; w < size; w++) {
+            out.writeUTF(vocabulary.wordAt(w));
+        }
+        for (int c = 0; c < classCount; c++) {
+            for (int w = 0; w < size; w++) {
+                out.writeFloat(logLikelihoods[w * classCount + c]);
+            }
+        }
+        out.flush();
+    }
+
+    int getClassCount() {
+        return labels.length;
+    }
+
+    String getLabel(int classIndex) {
+        return labels[classIndex];
+    }
+
+    int getVocabularySize() {
+        return vocabulary.size();
+    }
+
+    // Номер слова словаря или -1; слово уже в нижнем регистре
+    int wordIndex(String word) {
+        return vocabulary.indexOf(word);
+    }
+
+    // scores[c] = log P(c)
+    void startScores(double[] scores) {
+        for (int c = 0; c < labels.length; c++) {
+            scores[c] = logPriors[c];
+        }
+    }
+
+    // scores[c] += count * log P(word | c)
+    void addWord(int wordIndex, int count, double[] scores) {
+        int classCount = labels.length;
+        int base = wordIndex * classCount;
+        for (int c = 0; c < classCount; c++) {
+            scores[c] += count * (double) logLikelihoods[base + c];
+        }
+    }
+
+    /**
+     * Переводит суммы логарифмов в вероятности классов (softmax со сдвигом на максимум).
+     */
+    void toProbabilities(double[] scores) {
+        int classCount = labels.length;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < classCount; c++) {
+            max = Math.max(max, scores[c]);
+        }
+        double sum = 0.0;
+        for (int c = 0; c < classCount; c++) {
+            scores[c] = Math.exp(scores[c] - max);
+            sum += scores[c];
+        }
+        for (int c = 0; c < classCount; c++) {
+            scores[c] /= sum;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                Locale.ROOT,
+                "%d classes %s, vocabulary %d words",
+                labels.length, String.join("/", labels), vocabulary.size()
+        );
+    }
+}
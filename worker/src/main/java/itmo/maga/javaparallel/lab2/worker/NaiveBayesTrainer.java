@@ -0,0 +1,144 @@
+package itmo.maga.javaparallel.lab2.worker;
+
+import itmo.maga.javaparallel.lab2.common.ResultMessage;
+import itmo.maga.javaparallel.lab2.common.WordCounter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Обучение байесовского классификатора тональности по размеченному корпусу:
+ * <pre>
+ * java -cp worker.jar itmo.maga.javaparallel.lab2.worker.NaiveBayesTrainer &lt;каталог корпуса&gt; &lt;файл модели&gt;
+ * </pre>
+ * В каталоге корпуса по подкаталогу на класс (например pos и neg), каждый файл внутри — один документ
+ * в UTF-8. Слова выделяются тем же SectionAnalyzer, что и у воркера, поэтому словарь модели совпадает
+ * с тем, что воркер видит в секциях. Модель подключается к воркеру через lab2.worker.bayesModel.
+ * Настройки: lab2.trainer.alpha (сглаживание Лапласа), lab2.trainer.minCount (минимальная частота слова
+ * в корпусе), lab2.trainer.maxVocabulary (самые частые слова, остальные отбрасываются).
+ */
+public class NaiveBayesTrainer {
+
+    private static final double ALPHA = Double.parseDouble(System.getProperty("lab2.trainer.alpha", "1.0"));
+    private static final int MIN_COUNT = Integer.getInteger("lab2.trainer.minCount", 2);
+    private static final int MAX_VOCABULARY = Integer.getInteger("lab2.trainer.maxVocabulary", 50_000);
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: NaiveBayesTrainer <corpus directory with one subdirectory per class> <model file>");
+            System.exit(2);
+        }
+        try {
+            train(Paths.get(args[0]), Paths.get(args[1]));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Training failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void train(Path corpus, Path modelPath) throws IOException {
+        if (ALPHA <= 0) {
+            throw new IllegalArgumentException("lab2.trainer.alpha must be positive: " + ALPHA);
+        }
+
+        List<Path> classDirectories;
+        try (Stream<Path> entries = Files.list(corpus)) {
+            classDirectories = entries.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+        }
+        if (classDirectories.size() < 2) {
+            throw new IllegalArgumentException(
+                    "Corpus " + corpus + " must contain at least two class subdirectories, found " +
+                            classDirectories.size()
+            );
+        }
+
+        int classCount = classDirectories.size();
+        String[] labels = new String[classCount];
+        int[] documents = new int[classCount];
+        WordCounter[] classWords = new WordCounter[classCount];
+        WordCounter corpusWords = new WordCounter();
+        // Словарь тональности при обучении не нужен, анализатору достаточно пустого
+        SectionAnalyzer analyzer = new SectionAnalyzer(
+                SentimentLexicon.compile(Map.of(), Map.of(), List.of(), 0, 0.0), null
+        );
+
+        for (int c = 0; c < classCount; c++) {
+            labels[c] = classDirectories.get(c).getFileName().toString();
+            classWords[c] = new WordCounter();
+
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(classDirectories.get(c))) {
+                files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                analyzer.analyze(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), false, false);
+                classWords[c].addAll(analyzer.getFrequencies());
+                corpusWords.addAll(analyzer.getFrequencies());
+                documents[c]++;
+            }
+            System.out.println("Class '" + labels[c] + "': " + documents[c] + " document(s), " +
+                    classWords[c].size() + " distinct words");
+        }
+
+        // Самые частые слова корпуса, встретившиеся не реже MIN_COUNT раз
+        List<String> words = new ArrayList<>();
+        for (ResultMessage.WordFrequency wf : corpusWords.topWords(MAX_VOCABULARY)) {
+            if (wf.getCount() >= MIN_COUNT) {
+                words.add(wf.getWord());
+            }
+        }
+        if (words.isEmpty()) {
+            throw new IllegalArgumentException("No words occur at least " + MIN_COUNT + " times in " + corpus);
+        }
+
+        int totalDocuments = 0;
+        for (int count : documents) {
+            totalDocuments += count;
+        }
+
+        float[] logPriors = new float[classCount];
+        float[][] likelihoods = new float[classCount][words.size()];
+        for (int c = 0; c < classCount; c++) {
+            if (documents[c] == 0) {
+                throw new IllegalArgumentException("Class '" + labels[c] + "' has no documents");
+            }
+            logPriors[c] = (float) Math.log((double) documents[c] / totalDocuments);
+
+            long classTotal = 0;
+            for (String word : words) {
+                classTotal += classWords[c].get(word);
+            }
+            // log((count(w, c) + alpha) / (count(c) + alpha * |V|))
+            double denominator = Math.log(classTotal + ALPHA * words.size());
+            for (int w = 0; w < words.size(); w++) {
+                likelihoods[c][w] = (float) (Math.log(classWords[c].get(words.get(w)) + ALPHA) - denominator);
+            }
+        }
+
+        NaiveBayesModel model = NaiveBayesModel.of(labels, logPriors, words, likelihoods);
+        Path parent = modelPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(modelPath))) {
+            model.write(out);
+        }
+
+        System.out.println(String.format(
+                Locale.ROOT,
+                "Trained naive Bayes model (%s) on %d document(s), alpha %.2f, written to %s (%d bytes)",
+                model, totalDocuments, ALPHA, modelPath.toAbsolutePath(), Files.size(modelPath)
+        ));
+    }
+}
@@ -0,0 +1,401 @@
+package itmo.maga.javaparallel.lab2.worker;
+
+import itmo.maga.javaparallel.lab2.common.ResultMessage;
+import itmo.maga.javaparallel.lab2.common.TextEdits;
+import itmo.maga.javaparallel.lab2.common.WordCounter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Поиск имён без словаря за один проход по тексту секции.
+ * Кандидат — слово с заглавной буквы и строчными после неё (аббревиатуры и "I" не считаются).
+ * Соседние кандидаты, разделённые только пробелами, образуют одно имя ("Lewis Carroll").
+ * Имя принимается, если:
+ * <ul>
+ *     <li>перед ним стоит обращение (Mr., Mrs., Dr. и т.п.), само обращение остаётся в тексте;</li>
+ *     <li>оно стоит не в начале предложения (реплика после открывающей кавычки — тоже начало);</li>
+ *     <li>в начале предложения — если состоит из нескольких слов
+ *     или то же слово в секции уже принято как имя.</li>
+ * </ul>
+ * Слово, которое в той же секции встречается и со строчной буквы, считается обычным
+ * и отбрасывается; в начале предложения так отбрасывается только первое слово имени ("The Queen" -> "Queen").
+ * Служебные слова и числительные (And, The, Five) обычными считаются всегда: в короткой секции
+ * их строчного написания может не оказаться.
+ * Каждое слово имени заменяется псевдонимом, который вычисляется по самому слову,
+ * поэтому одно и то же имя получает одну замену во всех секциях и на всех воркерах.
+ * Экземпляр хранит буферы между секциями и не потокобезопасен.
+ */
+final class NameDetector {
+
+    private static final Set<String> TITLES = Set.of(
+            "Mr", "Mrs", "Ms", "Miss", "Dr", "Prof", "Sir", "Lady", "Lord", "Madam", "Mme", "Mlle"
+    );
+
+    // Служебные слова и числительные, которые пишутся с заглавной только в начале предложения или реплики;
+    // однобуквенные слова кандидатами не бывают и здесь не нужны
+    private static final Set<String> STOPWORDS = Set.of(
+            "An", "The", "And", "But", "Or", "Nor", "So", "Yet", "For", "If", "Then", "Than", "As",
+            "Because", "Though", "Although", "While", "When", "Where", "Why", "How", "What", "Which", "Who",
+            "Whom", "Whose", "That", "This", "These", "Those", "There", "Here", "Now", "Just", "Not", "No",
+            "Yes", "Oh", "Ah", "Well", "Do", "Does", "Did", "Don", "Has", "Have", "Had", "Is", "Are", "Was",
+            "Were", "Be", "Will", "Would", "Shall", "Should", "Can", "Could", "May", "Might", "Must", "Let",
+            "Me", "My", "We", "Us", "Our", "You", "Your", "He", "Him", "His", "She", "Her", "It", "Its",
+            "They", "Them", "Their", "All", "Any", "Some", "Such", "Every", "Each", "Both", "Either", "Neither",
+            "Never", "Ever", "Very", "Only", "Also", "Even", "Still", "After", "Before", "At", "By", "From",
+            "In", "Into", "Of", "Off", "On", "Out", "Over", "To", "Up", "With", "Without", "Between", "About",
+            "One", "Two", "Three", "Four", "Five", "Six", "Seven", "Eight", "Nine", "Ten", "Eleven", "Twelve",
+            "Twenty", "Thirty", "Forty", "Fifty", "Hundred", "Thousand", "Million", "First", "Second", "Third",
+            "Но", "Или", "Да", "Нет", "Не", "Ни", "Так", "Как", "Что", "Кто", "Где", "Когда",
+            "Почему", "Если", "То", "Это", "Этот", "Эта", "Там", "Тут", "Вот", "Он", "Она", "Оно", "Они",
+            "Мы", "Вы", "Ты", "На", "По", "За", "Из", "От", "До",
+            "Один", "Одна", "Два", "Две", "Три", "Четыре", "Пять", "Шесть", "Семь", "Восемь", "Девять", "Десять",
+            "Сто", "Тысяча"
+    );
+
+    private static final String CONSONANTS = "bdfgklmnprstvz";
+    private static final String VOWELS = "aeiou";
+    private static final int PSEUDONYM_SYLLABLES = 3;
+
+    private static final int FLAG_SENTENCE_START = 1;
+    private static final int FLAG_TITLED = 2;
+    private static final int FLAG_MULTI_WORD = 4;
+
+    // Слова со строчной буквы в текущей секции
+    private final WordCounter lowercaseWords = new WordCounter();
+
+    // Найденные фрагменты: начало, конец, конец первого слова, признаки
+    private int[] runs = new int[4 * 64];
+    private int runCount;
+
+    private int runStart = -1;
+    private int runEnd;
+    private int runFirstWordEnd;
+    private int runFlags;
+
+    // Псевдонимы уже встречавшихся имён; сбрасывается, чтобы не расти без предела
+    private static final int MAX_CACHED_PSEUDONYMS = 16 * 1024;
+    private final Map<String, String> pseudonyms = new HashMap<>();
+
+    /**
+     * Результат для одной секции: текст с заменами, сами замены как правки входного текста и найденные имена.
+     */
+    static final class Detection {
+
+        private final String text;
+        private final List<ResultMessage.TextEdit> edits;
+        private final List<ResultMessage.DetectedName> names;
+
+        Detection(String text, List<ResultMessage.TextEdit> edits, List<ResultMessage.DetectedName> names) {
+            this.text = text;
+            this.edits = edits;
+            this.names = names;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        List<ResultMessage.TextEdit> getEdits() {
+            return edits;
+        }
+
+        List<ResultMessage.DetectedName> getNames() {
+            return names;
+        }
+    }
+
+    Detection detect(String text) {
+        if (text == null || text.isEmpty()) {
+            return new Detection(text, new ArrayList<>(), new ArrayList<>());
+        }
+        lowercaseWords.clear();
+        runCount = 0;
+        runStart = -1;
+        scan(text);
+        return apply(text);
+    }
+
+    private void scan(String text) {
+        int length = text.length();
+        boolean sentenceStart = true;
+        boolean afterTitle = false;
+        int previousWordEnd = 0;
+
+        int i = 0;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (!Character.isLetter(codePoint)) {
+                i += Character.charCount(codePoint);
+                continue;
+            }
+
+            int start = i;
+            int end = wordEnd(text, i);
+            i = end;
+
+            Gap gap = classifyGap(text, previousWordEnd, start, afterTitle);
+            if (gap == Gap.SENTENCE_END) {
+                sentenceStart = true;
+            }
+            previousWordEnd = end;
+
+            if (isTitle(text, start, end)) {
+                finishRun();
+                afterTitle = true;
+                sentenceStart = false;
+                continue;
+            }
+
+            if (isCapitalized(text, start, end)) {
+                if (runStart >= 0 && gap == Gap.SPACES) {
+                    runEnd = end;
+                    runFlags |= FLAG_MULTI_WORD;
+                } else {
+                    finishRun();
+                    runStart = start;
+                    runEnd = end;
+                    runFirstWordEnd = end;
+                    runFlags = (sentenceStart ? FLAG_SENTENCE_START : 0) | (afterTitle ? FLAG_TITLED : 0);
+                }
+            } else {
+                finishRun();
+                if (Character.isLowerCase(codePoint)) {
+                    lowercaseWords.add(text, start, end, 1);
+                }
+            }
+            afterTitle = false;
+            sentenceStart = false;
+        }
+        finishRun();
+    }
+
+    private enum Gap {
+        SPACES,
+        SENTENCE_END,
+        OTHER
+    }
+
+    // Что стоит между словами: только пробелы (без перевода абзаца), конец предложения или другое
+    private static Gap classifyGap(String text, int from, int to, boolean afterTitle) {
+        if (from == 0) {
+            return Gap.SENTENCE_END;
+        }
+        boolean onlySpaces = to > from;
+        int lineBreaks = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                lineBreaks++;
+                if (lineBreaks >= 2) {
+                    return Gap.SENTENCE_END;
+                }
+            } else if (c == '.' && afterTitle && i == from) {
+                // Точка после Mr. не завершает предложение
+                onlySpaces = false;
+            } else if (c == '.' || c == '!' || c == '?') {
+                return Gap.SENTENCE_END;
+            } else if (c == '“' || c == '«' || c == '„' || (c == '"' && i + 1 == to)) {
+                // Открывающая кавычка начинает реплику, как новое предложение
+                return Gap.SENTENCE_END;
+            } else if (!Character.isWhitespace(c)) {
+                onlySpaces = false;
+            }
+        }
+        return onlySpaces && lineBreaks == 0 ? Gap.SPACES : Gap.OTHER;
+    }
+
+    // Слово: буквы, внутри слова допускаются дефис перед буквой (Jean-Luc) и апостроф перед заглавной
+    // (O'Brien); сокращения и притяжательная форма (I'm, Alice's) в слово не входят
+    private static int wordEnd(String text, int start) {
+        int length = text.length();
+        int i = start;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (Character.isLetter(codePoint) || Character.getType(codePoint) == Character.NON_SPACING_MARK) {
+                i += Character.charCount(codePoint);
+            } else if (codePoint == '-' && i + 1 < length && Character.isLetter(text.codePointAt(i + 1))) {
+                i++;
+            } else if ((codePoint == '\'' || codePoint == '’')
+                    && i + 1 < length && Character.isUpperCase(text.codePointAt(i + 1))) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isCapitalized(String text, int start, int end) {
+        int first = text.codePointAt(start);
+        if (!Character.isUpperCase(first) && !Character.isTitleCase(first)) {
+            return false;
+        }
+        for (int i = start + Character.charCount(first); i < end; i++) {
+            if (Character.isLowerCase(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTitle(String text, int start, int end) {
+        int length = end - start;
+        if (length < 2 || length > 5 || !Character.isUpperCase(text.charAt(start))) {
+            return false;
+        }
+        return TITLES.contains(text.substring(start, end));
+    }
+
+    private void finishRun() {
+        if (runStart < 0) {
+            return;
+        }
+        if (runCount * 4 == runs.length) {
+            runs = Arrays.copyOf(runs, runs.length * 2);
+        }
+        int base = runCount * 4;
+        runs[base] = runStart;
+        runs[base + 1] = runEnd;
+        runs[base + 2] = runFirstWordEnd;
+        runs[base + 3] = runFlags;
+        runCount++;
+        runStart = -1;
+    }
+
+    private Detection apply(String text) {
+        // Первый проход: какие фрагменты являются именами
+        String[] accepted = new String[runCount];
+        Map<String, Integer> found = new HashMap<>();
+        List<ResultMessage.DetectedName> names = new ArrayList<>();
+        boolean deferred = false;
+
+        for (int r = 0; r < runCount; r++) {
+            int base = r * 4;
+            int start = runs[base];
+            int end = runs[base + 1];
+            int flags = runs[base + 3];
+
+            boolean titled = (flags & FLAG_TITLED) != 0;
+            boolean sentenceStart = (flags & FLAG_SENTENCE_START) != 0;
+            boolean multiWord = (flags & FLAG_MULTI_WORD) != 0;
+
+            if (!titled && isCommonWord(text, start, runs[base + 2])) {
+                if (!multiWord) {
+                    continue;
+                }
+                // Первое слово — обычное ("The Queen"), имя начинается со следующего
+                start = skipSpaces(text, runs[base + 2]);
+                runs[base] = start;
+                sentenceStart = false;
+            }
+            if (!titled && sentenceStart && !multiWord) {
+                deferred = true;
+                continue;
+            }
+            accepted[r] = normalizeSpaces(text.substring(start, end));
+            found.putIfAbsent(accepted[r], -1);
+        }
+
+        // Одиночное слово в начале предложения — имя, если в секции оно уже встречалось как имя
+        if (deferred) {
+            for (int r = 0; r < runCount; r++) {
+                int base = r * 4;
+                if (accepted[r] == null && (runs[base + 3] & FLAG_SENTENCE_START) != 0) {
+                    String candidate = text.substring(runs[base], runs[base + 1]);
+                    if (found.containsKey(candidate)) {
+                        accepted[r] = candidate;
+                    }
+                }
+            }
+        }
+
+        // Второй проход: замена и подсчёт
+        List<ResultMessage.TextEdit> edits = new ArrayList<>();
+        for (int r = 0; r < runCount; r++) {
+            String name = accepted[r];
+            if (name == null) {
+                continue;
+            }
+            int base = r * 4;
+            int start = runs[base];
+            int end = runs[base + 1];
+
+            int index = found.get(name);
+            if (index < 0) {
+                index = names.size();
+                found.put(name, index);
+                names.add(new ResultMessage.DetectedName(name, pseudonymFor(name), 1));
+            } else {
+                ResultMessage.DetectedName detected = names.get(index);
+                detected.setCount(detected.getCount() + 1);
+            }
+
+            edits.add(new ResultMessage.TextEdit(start, end - start, names.get(index).getReplacement()));
+        }
+
+        return new Detection(TextEdits.apply(text, edits), edits, names);
+    }
+
+    // Служебное слово или слово, которое встречается в секции и со строчной буквы
+    private boolean isCommonWord(String text, int start, int end) {
+        String word = text.substring(start, end);
+        return STOPWORDS.contains(word) || lowercaseWords.get(word.toLowerCase(Locale.ROOT)) > 0;
+    }
+
+    private static int skipSpaces(String text, int from) {
+        int i = from;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String normalizeSpaces(String name) {
+        return name.indexOf("  ") >= 0 || name.indexOf('\n') >= 0 || name.indexOf('\t') >= 0
+                ? name.trim().replaceAll("\\s+", " ")
+                : name;
+    }
+
+    // Псевдоним имени из нескольких слов — псевдонимы его слов через пробел
+    private String pseudonymFor(String name) {
+        String cached = pseudonyms.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String word : name.split(" ")) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(pseudonymForWord(word));
+        }
+        String pseudonym = sb.toString();
+        if (pseudonyms.size() >= MAX_CACHED_PSEUDONYMS) {
+            pseudonyms.clear();
+        }
+        pseudonyms.put(name, pseudonym);
+        return pseudonym;
+    }
+
+    static String pseudonymForWord(String word) {
+        int hash = word.hashCode() * 0x9E3779B9;
+        hash ^= hash >>> 15;
+        int value = hash & 0x7fffffff;
+
+        StringBuilder sb = new StringBuilder(PSEUDONYM_SYLLABLES * 2);
+        for (int i = 0; i < PSEUDONYM_SYLLABLES; i++) {
+            sb.append(CONSONANTS.charAt(value % CONSONANTS.length()));
+            value /= CONSONANTS.length();
+            sb.append(VOWELS.charAt(value % VOWELS.length()));
+            value /= VOWELS.length();
+        }
+        sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+        return sb.toString();
+    }
+}
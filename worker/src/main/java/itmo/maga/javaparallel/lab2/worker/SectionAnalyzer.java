@@ -0,0 +1,299 @@
+package itmo.maga.javaparallel.lab2.worker;
+
+import itmo.maga.javaparallel.lab2.common.ResultMessage;
+import itmo.maga.javaparallel.lab2.common.WordCounter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Однопроходный анализ секции: границы слов, приведение к нижнему регистру, частоты,
+ * число слов и поток слов для тональности собираются за один проход по символам, без регулярных
+ * выражений и промежуточного списка строк. Тональность затем считается по массиву номеров слов
+ * словаря (см. SentimentLexicon); номер ищется один раз на каждое различное слово секции.
+ * Байесовский классификатор (NaiveBayesModel) считается по тем же различным словам и их частотам
+ * после прохода, без повторного чтения текста и без создания объектов на слово.
+ * Слово — максимальная последовательность букв (\p{L}) и десятичных цифр (\p{Nd}),
+ * как в прежнем split("[^\\p{L}\\p{Nd}]+"). Регистр приводится по Locale.ROOT,
+ * поэтому результат не зависит от локали JVM.
+ * Экземпляр хранит буферы между секциями и не потокобезопасен.
+ */
+final class SectionAnalyzer {
+
+    private static final int INITIAL_BUFFER_SIZE = 64;
+
+    private static final int CAPITAL_SIGMA = 0x03A3;
+    // Предел окружения слова с Σ, чтобы длинный текст без пробелов не давал квадратичной работы
+    private static final int MAX_SIGMA_CONTEXT = 256;
+
+    // Поток слов огромной секции не держим между секциями
+    private static final int MAX_RETAINED_TOKENS = 1 << 20;
+
+    private final SentimentLexicon lexicon;
+    private final SentimentLexicon.Score score = new SentimentLexicon.Score();
+
+    // null — классификатор не загружен
+    private final NaiveBayesModel classifier;
+    // Вероятности классов последней секции
+    private final double[] classScores;
+    private boolean classified;
+
+    private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+
+    // Номер слова в словаре тональности и в словаре классификатора для каждого слова секции
+    // (по номеру в frequencies)
+    private int[] lexiconIds = new int[INITIAL_BUFFER_SIZE];
+    private int[] classifierIds = new int[INITIAL_BUFFER_SIZE];
+    private int knownWords;
+    // Слова секции в порядке появления: номера словаря, UNKNOWN_WORD и CLAUSE_BREAK
+    private int[] tokens = new int[INITIAL_BUFFER_SIZE];
+    private int tokenCount;
+    private boolean clauseBreak;
+
+    private boolean scoreLexicon;
+    private boolean classify;
+
+    // ASCII-слова ищутся в счётчике прямо из буфера, строка создаётся только для нового слова
+    private final WordCounter frequencies = new WordCounter();
+
+    private int wordCount;
+
+    SectionAnalyzer(SentimentLexicon lexicon, NaiveBayesModel classifier) {
+        this.lexicon = lexicon;
+        this.classifier = classifier;
+        this.classScores = classifier != null ? new double[classifier.getClassCount()] : new double[0];
+    }
+
+    /**
+     * scoreLexicon — тональность по словарю (иначе она нулевая), classify — вероятности классов,
+     * если классификатор загружен.
+     */
+    void analyze(String text, boolean scoreLexicon, boolean classify) {
+        this.scoreLexicon = scoreLexicon;
+        this.classify = classify && classifier != null;
+        frequencies.clear();
+        wordCount = 0;
+        knownWords = 0;
+        tokenCount = 0;
+        clauseBreak = false;
+        if (tokens.length > MAX_RETAINED_TOKENS) {
+            tokens = new int[INITIAL_BUFFER_SIZE];
+            lexiconIds = new int[INITIAL_BUFFER_SIZE];
+            classifierIds = new int[INITIAL_BUFFER_SIZE];
+        }
+        if (text != null) {
+            scan(text);
+        }
+        // Без словаря поток слов пуст, и оценка просто обнуляется
+        lexicon.score(tokens, tokenCount, score);
+
+        classified = this.classify;
+        if (classified) {
+            classifier.startScores(classScores);
+            for (int i = 0; i < knownWords; i++) {
+                if (classifierIds[i] >= 0) {
+                    classifier.addWord(classifierIds[i], frequencies.countAt(i), classScores);
+                }
+            }
+            classifier.toProbabilities(classScores);
+        }
+    }
+
+    int getWordCount() {
+        return wordCount;
+    }
+
+    int getPositiveCount() {
+        return score.getPositive();
+    }
+
+    int getNegativeCount() {
+        return score.getNegative();
+    }
+
+    double getSentimentScore() {
+        return score.getValue();
+    }
+
+    boolean isClassified() {
+        return classified;
+    }
+
+    int getClassCount() {
+        return classScores.length;
+    }
+
+    String getClassLabel(int classIndex) {
+        return classifier.getLabel(classIndex);
+    }
+
+    double getClassProbability(int classIndex) {
+        return classScores[classIndex];
+    }
+
+    WordCounter getFrequencies() {
+        return frequencies;
+    }
+
+    List<ResultMessage.WordFrequency> topWords(int limit) {
+        return frequencies.topWords(limit);
+    }
+
+    private void scan(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            // Пропускаем разделители
+            while (i < length) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    if (isAsciiWordChar(c)) {
+                        break;
+                    }
+                    clauseBreak |= isClausePunctuation(c);
+                    i++;
+                } else {
+                    int codePoint = Character.codePointAt(text, i);
+                    if (isWordCodePoint(codePoint)) {
+                        break;
+                    }
+                    i += Character.charCount(codePoint);
+                }
+            }
+            if (i >= length) {
+                return;
+            }
+
+            int start = i;
+            int wordLength = 0;
+            boolean ascii = true;
+            boolean capitalSigma = false;
+            while (i < length) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    if (!isAsciiWordChar(c)) {
+                        break;
+                    }
+                    if (wordLength == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    buffer[wordLength++] = c >= 'A' && c <= 'Z' ? (char) (c | 0x20) : c;
+                    i++;
+                } else {
+                    int codePoint = Character.codePointAt(text, i);
+                    if (!isWordCodePoint(codePoint)) {
+                        break;
+                    }
+                    ascii = false;
+                    capitalSigma |= codePoint == CAPITAL_SIGMA;
+                    i += Character.charCount(codePoint);
+                }
+            }
+
+            if (ascii) {
+                countWord(frequencies.add(buffer, 0, wordLength, 1));
+            } else {
+                // Редкий путь: полное приведение регистра может изменить длину слова
+                // или дать небуквенный символ (İ -> i + U+0307), поэтому слово сканируется повторно
+                String lowered = capitalSigma
+                        ? lowerCaseWithContext(text, start, i)
+                        : text.subSequence(start, i).toString().toLowerCase(Locale.ROOT);
+                addLoweredWords(lowered);
+            }
+        }
+    }
+
+    // Σ в конце слова становится ς, а JDK определяет конец слова по BreakIterator с учётом
+    // соседних символов, поэтому в нижний регистр переводится весь фрагмент между пробелами.
+    // Длину меняет только İ, и не зависит от контекста, так что слово вырезается по длинам краёв.
+    private static String lowerCaseWithContext(CharSequence text, int start, int end) {
+        int from = start;
+        while (from > 0 && start - from < MAX_SIGMA_CONTEXT) {
+            int codePoint = Character.codePointBefore(text, from);
+            from -= Character.charCount(codePoint);
+            if (Character.isWhitespace(codePoint)) {
+                break;
+            }
+        }
+        int to = end;
+        while (to < text.length() && to - end < MAX_SIGMA_CONTEXT) {
+            int codePoint = Character.codePointAt(text, to);
+            to += Character.charCount(codePoint);
+            if (Character.isWhitespace(codePoint)) {
+                break;
+            }
+        }
+
+        String window = text.subSequence(from, to).toString().toLowerCase(Locale.ROOT);
+        int prefixLength = text.subSequence(from, start).toString().toLowerCase(Locale.ROOT).length();
+        int suffixLength = text.subSequence(end, to).toString().toLowerCase(Locale.ROOT).length();
+        return window.substring(prefixLength, window.length() - suffixLength);
+    }
+
+    private void addLoweredWords(String lowered) {
+        int length = lowered.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = lowered.codePointAt(i);
+            if (!isWordCodePoint(codePoint)) {
+                i += Character.charCount(codePoint);
+                continue;
+            }
+            int start = i;
+            while (i < length) {
+                codePoint = lowered.codePointAt(i);
+                if (!isWordCodePoint(codePoint)) {
+                    break;
+                }
+                i += Character.charCount(codePoint);
+            }
+            addWord(start == 0 && i == length ? lowered : lowered.substring(start, i));
+        }
+    }
+
+    private void addWord(String word) {
+        countWord(frequencies.add(word, 1));
+    }
+
+    private void countWord(int index) {
+        wordCount++;
+
+        // Номера слов идут подряд: новое слово секции получает следующий номер
+        if (index == knownWords) {
+            if (index == lexiconIds.length) {
+                lexiconIds = Arrays.copyOf(lexiconIds, lexiconIds.length * 2);
+                classifierIds = Arrays.copyOf(classifierIds, classifierIds.length * 2);
+            }
+            // Строка из счётчика с уже вычисленным хэшем
+            String word = frequencies.wordAt(index);
+            lexiconIds[index] = scoreLexicon ? lexicon.wordId(word) : SentimentLexicon.UNKNOWN_WORD;
+            classifierIds[index] = classify ? classifier.wordIndex(word) : -1;
+            knownWords++;
+        }
+
+        if (!scoreLexicon) {
+            return;
+        }
+        if (tokenCount + 2 > tokens.length) {
+            tokens = Arrays.copyOf(tokens, tokens.length * 2);
+        }
+        if (clauseBreak) {
+            tokens[tokenCount++] = SentimentLexicon.CLAUSE_BREAK;
+            clauseBreak = false;
+        }
+        tokens[tokenCount++] = lexiconIds[index];
+    }
+
+    private static boolean isClausePunctuation(char c) {
+        return c == '.' || c == '!' || c == '?' || c == ',' || c == ';' || c == ':';
+    }
+
+    private static boolean isAsciiWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    static boolean isWordCodePoint(int codePoint) {
+        return Character.isLetter(codePoint) || Character.getType(codePoint) == Character.DECIMAL_DIGIT_NUMBER;
+    }
+}
@@ -0,0 +1,367 @@
+package itmo.maga.javaparallel.lab2.worker;
+
+import itmo.maga.javaparallel.lab2.common.WordCounter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Скомпилированный словарь тональности: слова и фразы с весами, отрицания и усилители.
+ * <p>
+ * Все слова словаря получают номера (словарь слов — WordCounter), записи собираются в префиксное
+ * дерево по номерам слов. Анализатор секции один раз на каждое различное слово узнаёт его номер,
+ * дальше поток номеров проверяется по дереву без создания объектов; переходы из корня — прямой
+ * индекс по номеру слова, глубже — двоичный поиск по отсортированным рёбрам.
+ * <p>
+ * Правила подсчёта:
+ * <ul>
+ *     <li>из записей, начинающихся в одной позиции, берётся самая длинная ("not bad" раньше "not");</li>
+ *     <li>отрицание меняет знак и ослабляет вес (negationFactor) у записей в пределах negationScope
+ *     следующих слов;</li>
+ *     <li>усилители перемножаются и действуют на ближайшую тональную запись, если между ними
+ *     нет других слов;</li>
+ *     <li>граница предложения или части предложения (CLAUSE_BREAK) сбрасывает отрицание и усилитель.</li>
+ * </ul>
+ * Записи разбиваются на слова так же, как текст секции, поэтому "don't" в словаре — это два слова "don" и "t".
+ * Если одна фраза объявлена в нескольких ролях, действует последняя: отрицания, затем усилители, затем веса.
+ */
+final class SentimentLexicon {
+
+    // Слово не входит в словарь
+    static final int UNKNOWN_WORD = -1;
+    // Знак препинания, завершающий предложение или его часть
+    static final int CLAUSE_BREAK = -2;
+
+    private static final byte SENTIMENT = 0;
+    private static final byte NEGATOR = 1;
+    private static final byte INTENSIFIER = 2;
+
+    private static final int NO_ENTRY = -1;
+
+    /**
+     * Итог по секции; экземпляр переиспользуется анализатором.
+     */
+    static final class Score {
+
+        private double value;
+        private int positive;
+        private int negative;
+
+        double getValue() {
+            return value;
+        }
+
+        int getPositive() {
+            return positive;
+        }
+
+        int getNegative() {
+            return negative;
+        }
+
+        private void reset() {
+            value = 0.0;
+            positive = 0;
+            negative = 0;
+        }
+    }
+
+    private final WordCounter words;
+
+    // Переход из корня по номеру слова, NO_ENTRY — нет
+    private final int[] rootChildren;
+    // Рёбра узла node: edgeWords/edgeTargets[edgeStart[node], edgeStart[node + 1]), номера слов отсортированы
+    private final int[] edgeStart;
+    private final int[] edgeWords;
+    private final int[] edgeTargets;
+    // Номер записи для узла, которым она заканчивается, иначе NO_ENTRY
+    private final int[] terminal;
+
+    private final byte[] kinds;
+    private final double[] weights;
+
+    private final int negationScope;
+    private final double negationFactor;
+
+    private SentimentLexicon(
+            WordCounter words,
+            int[] rootChildren,
+            int[] edgeStart,
+            int[] edgeWords,
+            int[] edgeTargets,
+            int[] terminal,
+            byte[] kinds,
+            double[] weights,
+            int negationScope,
+            double negationFactor
+    ) {
+        this.words = words;
+        this.rootChildren = rootChildren;
+        this.edgeStart = edgeStart;
+        this.edgeWords = edgeWords;
+        this.edgeTargets = edgeTargets;
+        this.terminal = terminal;
+        this.kinds = kinds;
+        this.weights = weights;
+        this.negationScope = negationScope;
+        this.negationFactor = negationFactor;
+    }
+
+    /**
+     * sentiment — вес тональной записи (отрицательный — негативная), intensifiers — множитель усилителя.
+     */
+    static SentimentLexicon compile(
+            Map<String, Double> sentiment,
+            Map<String, Double> intensifiers,
+            Collection<String> negators,
+            int negationScope,
+            double negationFactor
+    ) {
+        WordCounter words = new WordCounter();
+        List<Map<Integer, Integer>> children = new ArrayList<>();
+        List<Integer> terminals = new ArrayList<>();
+        List<Byte> kinds = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        children.add(new HashMap<>());
+        terminals.add(NO_ENTRY);
+
+        for (String negator : negators) {
+            insert(negator, NEGATOR, 0.0, words, children, terminals, kinds, weights);
+        }
+        for (Map.Entry<String, Double> entry : intensifiers.entrySet()) {
+            if (entry.getValue() != null) {
+                insert(entry.getKey(), INTENSIFIER, entry.getValue(), words, children, terminals, kinds, weights);
+            }
+        }
+        for (Map.Entry<String, Double> entry : sentiment.entrySet()) {
+            if (entry.getValue() != null) {
+                insert(entry.getKey(), SENTIMENT, entry.getValue(), words, children, terminals, kinds, weights);
+            }
+        }
+
+        int[] rootChildren = new int[words.size()];
+        Arrays.fill(rootChildren, NO_ENTRY);
+        for (Map.Entry<Integer, Integer> edge : children.get(0).entrySet()) {
+            rootChildren[edge.getKey()] = edge.getValue();
+        }
+
+        int nodeCount = children.size();
+        int[] edgeStart = new int[nodeCount + 1];
+        int edgeCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            edgeStart[node] = edgeCount;
+            if (node > 0) {
+                edgeCount += children.get(node).size();
+            }
+        }
+        edgeStart[nodeCount] = edgeCount;
+
+        int[] edgeWords = new int[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        int[] terminal = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            terminal[node] = terminals.get(node);
+            if (node == 0) {
+                continue;
+            }
+            Integer[] keys = children.get(node).keySet().toArray(new Integer[0]);
+            Arrays.sort(keys);
+            int edge = edgeStart[node];
+            for (Integer key : keys) {
+                edgeWords[edge] = key;
+                edgeTargets[edge] = children.get(node).get(key);
+                edge++;
+            }
+        }
+
+        byte[] kindArray = new byte[kinds.size()];
+        double[] weightArray = new double[weights.size()];
+        for (int i = 0; i < kindArray.length; i++) {
+            kindArray[i] = kinds.get(i);
+            weightArray[i] = weights.get(i);
+        }
+
+        return new SentimentLexicon(
+                words, rootChildren, edgeStart, edgeWords, edgeTargets, terminal,
+                kindArray, weightArray, Math.max(0, negationScope), negationFactor
+        );
+    }
+
+    private static void insert(
+            String phrase,
+            byte kind,
+            double weight,
+            WordCounter words,
+            List<Map<Integer, Integer>> children,
+            List<Integer> terminals,
+            List<Byte> kinds,
+            List<Double> weights
+    ) {
+        List<String> phraseWords = splitWords(phrase);
+        if (phraseWords.isEmpty()) {
+            return;
+        }
+
+        int node = 0;
+        for (String word : phraseWords) {
+            int wordId = words.indexOf(word);
+            if (wordId < 0) {
+                wordId = words.add(word, 1);
+            }
+            Integer next = children.get(node).get(wordId);
+            if (next == null) {
+                next = children.size();
+                children.get(node).put(wordId, next);
+                children.add(new HashMap<>());
+                terminals.add(NO_ENTRY);
+            }
+            node = next;
+        }
+
+        int entry = terminals.get(node);
+        if (entry == NO_ENTRY) {
+            terminals.set(node, kinds.size());
+            kinds.add(kind);
+            weights.add(weight);
+        } else {
+            kinds.set(entry, kind);
+            weights.set(entry, weight);
+        }
+    }
+
+    // Те же границы слов и приведение регистра, что в SectionAnalyzer
+    private static List<String> splitWords(String phrase) {
+        List<String> result = new ArrayList<>();
+        if (phrase == null) {
+            return result;
+        }
+        String lowered = phrase.toLowerCase(Locale.ROOT);
+        int i = 0;
+        while (i < lowered.length()) {
+            int codePoint = lowered.codePointAt(i);
+            if (!SectionAnalyzer.isWordCodePoint(codePoint)) {
+                i += Character.charCount(codePoint);
+                continue;
+            }
+            int start = i;
+            while (i < lowered.length() && SectionAnalyzer.isWordCodePoint(lowered.codePointAt(i))) {
+                i += Character.charCount(lowered.codePointAt(i));
+            }
+            result.add(lowered.substring(start, i));
+        }
+        return result;
+    }
+
+    int getEntryCount() {
+        return kinds.length;
+    }
+
+    // Номер слова словаря или UNKNOWN_WORD; слово уже в нижнем регистре
+    int wordId(String word) {
+        return words.indexOf(word);
+    }
+
+    /**
+     * Тональность потока слов секции: номера слов (wordId), UNKNOWN_WORD и CLAUSE_BREAK.
+     */
+    void score(int[] tokens, int count, Score out) {
+        out.reset();
+        // Сколько ещё слов под действием отрицания
+        int negated = 0;
+        double intensity = 1.0;
+
+        int i = 0;
+        while (i < count) {
+            int token = tokens[i];
+            if (token == CLAUSE_BREAK) {
+                negated = 0;
+                intensity = 1.0;
+                i++;
+                continue;
+            }
+
+            // Самая длинная запись, начинающаяся с этого слова
+            int entry = NO_ENTRY;
+            int end = i + 1;
+            if (token >= 0) {
+                int node = rootChildren[token];
+                int j = i + 1;
+                while (node != NO_ENTRY) {
+                    if (terminal[node] != NO_ENTRY) {
+                        entry = terminal[node];
+                        end = j;
+                    }
+                    if (j >= count || tokens[j] < 0) {
+                        break;
+                    }
+                    node = child(node, tokens[j]);
+                    j++;
+                }
+            }
+
+            if (entry == NO_ENTRY) {
+                negated = Math.max(0, negated - 1);
+                intensity = 1.0;
+                i++;
+                continue;
+            }
+
+            byte kind = kinds[entry];
+            if (kind == NEGATOR) {
+                negated = negationScope;
+            } else {
+                if (kind == INTENSIFIER) {
+                    intensity *= weights[entry];
+                } else {
+                    double value = weights[entry] * intensity;
+                    if (negated > 0) {
+                        value *= negationFactor;
+                    }
+                    out.value += value;
+                    if (value > 0) {
+                        out.positive++;
+                    } else if (value < 0) {
+                        out.negative++;
+                    }
+                    intensity = 1.0;
+                }
+                negated = Math.max(0, negated - (end - i));
+            }
+            i = end;
+        }
+    }
+
+    @Override
+    public String toString() {
+        int[] byKind = new int[3];
+        for (byte kind : kinds) {
+            byKind[kind]++;
+        }
+        return byKind[SENTIMENT] + " weighted words and phrases, " +
+                byKind[NEGATOR] + " negators, " +
+                byKind[INTENSIFIER] + " intensifiers (" + words.size() + " distinct words, negation scope " +
+                negationScope + ", factor " + negationFactor + ")";
+    }
+
+    private int child(int node, int wordId) {
+        int low = edgeStart[node];
+        int high = edgeStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midWord = edgeWords[mid];
+            if (midWord < wordId) {
+                low = mid + 1;
+            } else if (midWord > wordId) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return NO_ENTRY;
+    }
+}
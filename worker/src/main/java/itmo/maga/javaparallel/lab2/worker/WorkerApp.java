@@ -2,29 +2,36 @@ package itmo.maga.javaparallel.lab2.worker;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.rabbitmq.client.AMQP;
-import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.Connection;
-import com.rabbitmq.client.ConnectionFactory;
-import com.rabbitmq.client.DeliverCallback;
+import itmo.maga.javaparallel.lab2.common.ContentHashes;
+import itmo.maga.javaparallel.lab2.common.MessageTransport;
+import itmo.maga.javaparallel.lab2.common.NameReplacer;
+import itmo.maga.javaparallel.lab2.common.PrefetchController;
+import itmo.maga.javaparallel.lab2.common.RabbitTransport;
+import itmo.maga.javaparallel.lab2.common.ResultBatch;
 import itmo.maga.javaparallel.lab2.common.ResultMessage;
+import itmo.maga.javaparallel.lab2.common.SentenceSplitter;
+import itmo.maga.javaparallel.lab2.common.SentimentMode;
+import itmo.maga.javaparallel.lab2.common.TaskBatch;
 import itmo.maga.javaparallel.lab2.common.TaskMessage;
+import itmo.maga.javaparallel.lab2.common.TextEdits;
+import itmo.maga.javaparallel.lab2.common.WordCounter;
+import itmo.maga.javaparallel.lab2.common.WordFrequencyTable;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.TimeoutException;
-import java.util.stream.Collectors;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class WorkerApp {
 
@@ -36,19 +43,71 @@ public class WorkerApp {
     private static final String RABBIT_USERNAME = "labuser";
     private static final String RABBIT_PASSWORD = "labpassword";
 
+    // x-max-priority очереди задач; должен совпадать у продюсера и воркеров (0 — обычная очередь)
+    private static final int TASK_QUEUE_MAX_PRIORITY = Integer.getInteger("lab2.taskQueue.maxPriority", 0);
+
+    // Число потребителей в одном процессе воркера: каналов RabbitMQ или потоков встроенного транспорта
+    private static final int CONSUMER_CHANNELS = Math.max(1, Integer.getInteger(
+            "lab2.worker.channels",
+            Runtime.getRuntime().availableProcessors()
+    ));
+
+    // Где обрабатываются сообщения: channel (в потоке доставки канала), pool или virtual (общий пул)
+    private static final String PROCESSING_MODE = System.getProperty("lab2.worker.processing", "channel");
+    private static final int PROCESSING_THREADS = Math.max(1, Integer.getInteger(
+            "lab2.worker.threads",
+            Runtime.getRuntime().availableProcessors()
+    ));
+
+    // Задачи подтверждаются пачкой после publisher confirm результатов: по числу готовых сообщений
+    // (не больше половины prefetch, чтобы брокер не останавливал доставку) или по времени
+    private static final int ACK_BATCH_SIZE = Math.max(1, Integer.getInteger("lab2.worker.ackBatch", 32));
+    private static final long ACK_MAX_DELAY_MILLIS = Math.max(1L, Long.getLong("lab2.worker.ackDelayMs", 20L));
+
+    // Замена имён: dictionary (name_replacements.json), heuristic (поиск имён без словаря) или both
+    private static final String NAME_MODE = System.getProperty("lab2.worker.names", "dictionary");
+    private static final boolean DICTIONARY_NAMES = NAME_MODE.equals("dictionary") || NAME_MODE.equals("both");
+    private static final boolean HEURISTIC_NAMES = NAME_MODE.equals("heuristic") || NAME_MODE.equals("both");
+
+    // Отправлять полную таблицу частот секции, чтобы агрегатор считал точный глобальный топ;
+    // false — только топ секции (меньше трафика, но слова вне локальных топов теряются)
+    private static final boolean FULL_FREQUENCIES =
+            Boolean.parseBoolean(System.getProperty("lab2.worker.fullFrequencies", "true"));
+
+    // Кэш результатов анализа по хэшу текста секции; 0 — выключен
+    private static final long ANALYSIS_CACHE_BYTES =
+            Math.max(0L, Long.getLong("lab2.worker.cacheMb", 64L)) * 1024 * 1024;
+    // Хранить записи кэша вне кучи
+    private static final boolean ANALYSIS_CACHE_OFF_HEAP =
+            Boolean.parseBoolean(System.getProperty("lab2.worker.cacheOffHeap", "false"));
+
+    // Файл модели байесовского классификатора (NaiveBayesTrainer); не задан — задания с lab2.producer.sentiment
+    // bayes или both получают только словарную тональность
+    private static final String BAYES_MODEL_PATH = System.getProperty("lab2.worker.bayesModel");
+
     private static final String SENTIMENT_LEXICON_RESOURCE = "sentiment_lexicon.json";
     private static final String NAME_REPLACEMENTS_RESOURCE = "name_replacements.json";
 
-    private static final Set<String> POSITIVE_WORDS;
-    private static final Set<String> NEGATIVE_WORDS;
+    // Отрицание действует на столько следующих слов и умножает вес на этот коэффициент
+    private static final int DEFAULT_NEGATION_SCOPE = 3;
+    private static final double DEFAULT_NEGATION_FACTOR = -0.75;
+
+    private static final SentimentLexicon SENTIMENT_LEXICON;
+
+    private static final NaiveBayesModel BAYES_MODEL;
+
+    private static final NameReplacer NAME_REPLACER;
 
-    private static final List<NameReplacementRule> NAME_REPLACEMENT_RULES;
+    // Версия словаря, правил замены, режима имён, модели классификатора и полноты таблиц частот в ключе кэша
+    // и в каждом результате (ключ ResultStore): результат зависит от них так же, как от текста
+    private static final String ANALYSIS_VERSION;
 
     static {
         ObjectMapper mapper = new ObjectMapper();
-        Set<String> positive = new HashSet<>();
-        Set<String> negative = new HashSet<>();
-        List<NameReplacementRule> replacementRules = new ArrayList<>();
+        SentimentLexicon lexicon;
+        StringBuilder configuration = new StringBuilder(NAME_MODE).append('\n').append(FULL_FREQUENCIES);
+        // Порядок объявления важен для совпадающих после обрезки имён
+        Map<String, String> rules = new LinkedHashMap<>();
 
         try (InputStream in = WorkerApp.class
                 .getClassLoader()
@@ -60,31 +119,25 @@ public class WorkerApp {
                 );
             }
 
-            SentimentLexiconConfig config = mapper.readValue(in, SentimentLexiconConfig.class);
-
-            if (config.getPositive() != null) {
-                for (String word : config.getPositive()) {
-                    if (word == null) {
-                        continue;
-                    }
-                    String normalized = word.trim().toLowerCase();
-                    if (!normalized.isEmpty()) {
-                        positive.add(normalized);
-                    }
-                }
-            }
+            byte[] json = in.readAllBytes();
+            configuration.append('\n').append(new String(json, StandardCharsets.UTF_8));
+            SentimentLexiconConfig config = mapper.readValue(json, SentimentLexiconConfig.class);
 
-            if (config.getNegative() != null) {
-                for (String word : config.getNegative()) {
-                    if (word == null) {
-                        continue;
-                    }
-                    String normalized = word.trim().toLowerCase();
-                    if (!normalized.isEmpty()) {
-                        negative.add(normalized);
-                    }
-                }
+            // Списки positive/negative — веса +1 и -1, явные веса из weights их переопределяют
+            Map<String, Double> sentiment = new LinkedHashMap<>();
+            putWeights(sentiment, config.getPositive(), 1.0);
+            putWeights(sentiment, config.getNegative(), -1.0);
+            if (config.getWeights() != null) {
+                sentiment.putAll(config.getWeights());
             }
+
+            lexicon = SentimentLexicon.compile(
+                    sentiment,
+                    config.getIntensifiers() != null ? config.getIntensifiers() : Map.of(),
+                    config.getNegators() != null ? config.getNegators() : List.of(),
+                    config.getNegationScope() != null ? config.getNegationScope() : DEFAULT_NEGATION_SCOPE,
+                    config.getNegationFactor() != null ? config.getNegationFactor() : DEFAULT_NEGATION_FACTOR
+            );
         } catch (IOException e) {
             throw new ExceptionInInitializerError(
                     "Failed to load sentiment lexicon from resource " +
@@ -103,28 +156,15 @@ public class WorkerApp {
                                 ". Name replacement will be disabled."
                 );
             } else {
+                byte[] json = in.readAllBytes();
+                configuration.append('\n').append(new String(json, StandardCharsets.UTF_8));
                 Map<String, String> raw = mapper.readValue(
-                        in,
-                        new TypeReference<Map<String, String>>() {
+                        json,
+                        new TypeReference<LinkedHashMap<String, String>>() {
                         }
                 );
                 if (raw != null) {
-                    for (Map.Entry<String, String> entry : raw.entrySet()) {
-                        String from = entry.getKey();
-                        String to = entry.getValue();
-                        if (from == null || to == null) {
-                            continue;
-                        }
-                        String source = from.trim();
-                        String target = to.trim();
-                        if (source.isEmpty() || target.isEmpty()) {
-                            continue;
-                        }
-                        // \bName\b — замена только целого слова
-                        String regex = "\\b" + Pattern.quote(source) + "\\b";
-                        Pattern pattern = Pattern.compile(regex);
-                        replacementRules.add(new NameReplacementRule(pattern, target));
-                    }
+                    rules.putAll(raw);
                 }
             }
         } catch (IOException e) {
@@ -134,23 +174,50 @@ public class WorkerApp {
             );
         }
 
-        POSITIVE_WORDS = Collections.unmodifiableSet(positive);
-        NEGATIVE_WORDS = Collections.unmodifiableSet(negative);
-        NAME_REPLACEMENT_RULES = Collections.unmodifiableList(replacementRules);
+        NaiveBayesModel model = null;
+        if (BAYES_MODEL_PATH != null) {
+            try {
+                byte[] bytes = Files.readAllBytes(Paths.get(BAYES_MODEL_PATH));
+                configuration.append('\n').append(ContentHashes.sha256Hex(bytes));
+                model = NaiveBayesModel.read(new ByteArrayInputStream(bytes));
+            } catch (IOException e) {
+                throw new ExceptionInInitializerError(
+                        "Failed to load naive Bayes model from " + BAYES_MODEL_PATH + ": " + e.getMessage()
+                );
+            }
+        }
+
+        SENTIMENT_LEXICON = lexicon;
+        BAYES_MODEL = model;
+        NAME_REPLACER = NameReplacer.compile(rules);
+        ANALYSIS_VERSION = ContentHashes.sha256Hex(configuration.toString()).substring(0, 16);
 
+        System.out.println("Analysis version: " + ANALYSIS_VERSION);
+        System.out.println("Loaded sentiment lexicon: " + SENTIMENT_LEXICON);
+        if (BAYES_MODEL != null) {
+            System.out.println("Loaded naive Bayes model: " + BAYES_MODEL);
+        }
         System.out.println(
-                "Loaded sentiment lexicon: " +
-                        POSITIVE_WORDS.size() + " positive words, " +
-                        NEGATIVE_WORDS.size() + " negative words"
-        );
-        System.out.println(
-                "Loaded name replacement rules: " + NAME_REPLACEMENT_RULES.size()
+                "Loaded name replacement rules: " + NAME_REPLACER.getRuleCount()
         );
     }
 
+    private static final ThreadLocal<NameDetector> NAME_DETECTOR = ThreadLocal.withInitial(NameDetector::new);
+
+    // Анализатор с буферами на поток обработки
+    private static final ThreadLocal<SectionAnalyzer> ANALYZER =
+            ThreadLocal.withInitial(() -> new SectionAnalyzer(SENTIMENT_LEXICON, BAYES_MODEL));
+
+    private static final AnalysisCache ANALYSIS_CACHE = ANALYSIS_CACHE_BYTES > 0
+            ? new AnalysisCache(ANALYSIS_CACHE_BYTES, ANALYSIS_CACHE_OFF_HEAP)
+            : null;
+
+    // Задание просит классификатор, а модель не загружена: предупреждаем один раз
+    private static final AtomicBoolean MISSING_MODEL_REPORTED = new AtomicBoolean();
+
     public static void main(String[] args) {
         try {
-            runWorker();
+            start(new RabbitTransport(rabbitSettings()));
         } catch (Exception e) {
             System.err.println("Worker failed with unexpected error");
             e.printStackTrace(System.err);
@@ -158,95 +225,152 @@ public class WorkerApp {
         }
     }
 
-    private static void runWorker() throws IOException, TimeoutException {
-        ConnectionFactory factory = new ConnectionFactory();
-        factory.setHost(RABBIT_HOST);
-        factory.setPort(RABBIT_PORT);
-        factory.setUsername(RABBIT_USERNAME);
-        factory.setPassword(RABBIT_PASSWORD);
+    /**
+     * Подписывает воркер на очередь задач; результаты уходят ответом в очередь результатов.
+     */
+    public static void start(MessageTransport transport) throws IOException {
+        if (!DICTIONARY_NAMES && !HEURISTIC_NAMES) {
+            throw new IllegalArgumentException(
+                    "Unknown lab2.worker.names '" + NAME_MODE + "', expected dictionary, heuristic or both"
+            );
+        }
 
-        Connection connection = factory.newConnection();
-        Channel channel = connection.createChannel();
+        ExecutorService processingExecutor = createProcessingExecutor();
+        PrefetchController prefetch = PrefetchController.configured(
+                "lab2.worker", TASK_QUEUE_NAME, defaultPrefetch()
+        );
+        String workerId = buildWorkerId();
 
-        channel.queueDeclare(TASK_QUEUE_NAME, true, false, false, null);
-        channel.queueDeclare(RESULT_QUEUE_NAME, true, false, false, null);
+        transport.declareQueue(TASK_QUEUE_NAME, TASK_QUEUE_MAX_PRIORITY);
+        transport.declareQueue(RESULT_QUEUE_NAME, 0);
+        transport.consume(
+                TASK_QUEUE_NAME,
+                TaskBatch.class,
+                CONSUMER_CHANNELS,
+                prefetch,
+                processingExecutor,
+                batch -> handleBatch(workerId, batch)
+        );
 
-        channel.basicQos(1);
+        System.out.println(
+                "Worker " + workerId +
+                        " started. Waiting for messages from '" + TASK_QUEUE_NAME + "' (" +
+                        CONSUMER_CHANNELS + " consumer(s), " + prefetch.describe() +
+                        ", processing: " + describeProcessing() +
+                        ", analysis cache " + (ANALYSIS_CACHE != null
+                        ? ANALYSIS_CACHE_BYTES / (1024 * 1024) + " MB" + (ANALYSIS_CACHE_OFF_HEAP ? " off-heap" : "")
+                        : "off") +
+                        ", transport: " + transport.describe() + ")"
+        );
+    }
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.findAndRegisterModules();
+    private static RabbitTransport.Settings rabbitSettings() {
+        RabbitTransport.Settings settings = new RabbitTransport.Settings();
+        settings.setHost(RABBIT_HOST);
+        settings.setPort(RABBIT_PORT);
+        settings.setUsername(RABBIT_USERNAME);
+        settings.setPassword(RABBIT_PASSWORD);
+        // По потоку доставки на канал, чтобы каналы не ждали друг друга
+        settings.setConnectionThreads(CONSUMER_CHANNELS);
+        settings.setAckBatchSize(ACK_BATCH_SIZE);
+        settings.setAckMaxDelayMillis(ACK_MAX_DELAY_MILLIS);
+        return settings;
+    }
 
-        AMQP.BasicProperties resultProps = new AMQP.BasicProperties.Builder()
-                .contentType("application/json")
-                .deliveryMode(2)
-                .build();
+    private static MessageTransport.Reply handleBatch(String workerId, TaskBatch batch) throws IOException {
+        if (batch == null || batch.getTasks().isEmpty()) {
+            System.err.println("Worker " + workerId + " got empty TaskBatch, skipping");
+            return null;
+        }
 
-        String workerId = buildWorkerId();
+        System.out.println(
+                "Worker " + workerId +
+                        " received batch of " + batch.getTasks().size() +
+                        " sections for job " + batch.getJobId()
+        );
+
+        List<ResultMessage> results = new ArrayList<>(batch.getTasks().size());
+        int batchWordCount = 0;
+        for (TaskMessage task : batch.getTasks()) {
+            if (task == null) {
+                continue;
+            }
+            ResultMessage result = processTask(task);
+            results.add(result);
+            batchWordCount += result.getWordCount();
+        }
 
         System.out.println(
                 "Worker " + workerId +
-                        " started. Waiting for messages from '" + TASK_QUEUE_NAME + "'"
+                        " processed sections " + describeSections(results) +
+                        ", wordCount = " + batchWordCount +
+                        (ANALYSIS_CACHE != null ? ", cache " + ANALYSIS_CACHE.describe() : "")
         );
 
-        DeliverCallback deliverCallback = (consumerTag, delivery) -> {
-            long deliveryTag = delivery.getEnvelope().getDeliveryTag();
-            try {
-                byte[] body = delivery.getBody();
-                TaskMessage task = objectMapper.readValue(body, TaskMessage.class);
+        return new MessageTransport.Reply(RESULT_QUEUE_NAME, new ResultBatch(batch.getJobId(), results));
+    }
 
-                if (task == null) {
-                    System.err.println("Worker " + workerId + " got null TaskMessage, skipping");
-                    channel.basicAck(deliveryTag, false);
-                    return;
+    // null — сообщения обрабатываются в потоках потребителей
+    private static ExecutorService createProcessingExecutor() {
+        switch (PROCESSING_MODE) {
+            case "channel":
+                return null;
+            case "pool":
+                return Executors.newFixedThreadPool(PROCESSING_THREADS);
+            case "virtual":
+                ExecutorService virtual = newVirtualThreadExecutor();
+                if (virtual != null) {
+                    return virtual;
                 }
-
                 System.out.println(
-                        "Worker " + workerId +
-                                " received section " + task.getSectionIndex() +
-                                " of " + task.getTotalSections() +
-                                " for job " + task.getJobId()
+                        "Virtual threads are not available on Java " + Runtime.version().feature() +
+                                ", falling back to a pool of " + PROCESSING_THREADS + " threads"
                 );
-
-                ResultMessage result = processTask(task);
-
-                byte[] resultBody = objectMapper.writeValueAsBytes(result);
-
-                channel.basicPublish(
-                        "",
-                        RESULT_QUEUE_NAME,
-                        resultProps,
-                        resultBody
+                return Executors.newFixedThreadPool(PROCESSING_THREADS);
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown lab2.worker.processing '" + PROCESSING_MODE + "', expected channel, pool or virtual"
                 );
+        }
+    }
 
-                System.out.println(
-                        "Worker " + workerId +
-                                " processed section " + task.getSectionIndex() +
-                                ", wordCount = " + result.getWordCount() +
-                                ", sentimentScore = " + result.getSentimentScore() +
-                                ", positiveWords = " + result.getPositiveWordCount() +
-                                ", negativeWords = " + result.getNegativeWordCount()
-                );
+    // Сборка идёт под Java 17, поэтому Executors.newVirtualThreadPerTaskExecutor вызывается через reflection
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factoryMethod.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
 
-                channel.basicAck(deliveryTag, false);
-            } catch (Exception ex) {
-                System.err.println(
-                        "Worker " + workerId +
-                                " failed to process message, will requeue"
-                );
-                ex.printStackTrace(System.err);
-                channel.basicNack(deliveryTag, false, true);
-            }
-        };
+    // Начальный prefetch, дальше его ведёт контроллер (lab2.worker.prefetch, prefetchMin/Max, targetLatencyMs):
+    // вдвое больше сообщений, чем потоков обработки на канал; в режиме channel — два:
+    // пока результат одного ждёт confirm, обрабатывается следующее
+    private static int defaultPrefetch() {
+        if (PROCESSING_MODE.equals("channel")) {
+            return 2;
+        }
+        return Math.max(1, 2 * PROCESSING_THREADS / CONSUMER_CHANNELS);
+    }
 
-        boolean autoAck = false;
-        channel.basicConsume(
-                TASK_QUEUE_NAME,
-                autoAck,
-                deliverCallback,
-                consumerTag -> System.out.println(
-                        "Worker " + workerId + " cancelled consumer: " + consumerTag
-                )
-        );
+    private static String describeProcessing() {
+        if (PROCESSING_MODE.equals("channel")) {
+            return "on channel threads";
+        }
+        if (PROCESSING_MODE.equals("virtual")) {
+            return "virtual threads";
+        }
+        return PROCESSING_MODE + " executor, " + PROCESSING_THREADS + " thread(s)";
+    }
+
+    private static String describeSections(List<ResultMessage> results) {
+        if (results.isEmpty()) {
+            return "[]";
+        }
+        int first = results.get(0).getSectionIndex();
+        int last = results.get(results.size() - 1).getSectionIndex();
+        return first == last ? String.valueOf(first) : first + ".." + last;
     }
 
     private static String buildWorkerId() {
@@ -255,120 +379,150 @@ public class WorkerApp {
         return threadPart + "-" + randomPart;
     }
 
-    private static ResultMessage processTask(TaskMessage task) {
+    private static ResultMessage processTask(TaskMessage task) throws IOException {
+        if (task.isVersionProbe()) {
+            ResultMessage reply = new ResultMessage();
+            reply.setJobId(task.getJobId());
+            reply.setVersionProbe(true);
+            reply.setAnalysisVersion(ANALYSIS_VERSION);
+            return reply;
+        }
         String originalText = task.getSectionText();
         if (originalText == null) {
             originalText = "";
         }
 
-        String transformedText = applyNameReplacements(originalText);
-
-        List<String> tokens = tokenize(transformedText);
-        int wordCount = tokens.size();
-
-        Map<String, Integer> freqMap = new HashMap<>();
+        int topN = task.getTopN() > 0 ? task.getTopN() : TaskMessage.DEFAULT_TOP_N;
+        SentimentMode sentimentMode = task.getSentimentMode();
+        if (sentimentMode.usesClassifier() && BAYES_MODEL == null
+                && MISSING_MODEL_REPORTED.compareAndSet(false, true)) {
+            System.err.println(
+                    "Job " + task.getJobId() + " asks for sentiment mode " + sentimentMode +
+                            ", but no naive Bayes model is loaded (lab2.worker.bayesModel); sections are not classified"
+            );
+        }
 
-        int positiveCount = 0;
-        int negativeCount = 0;
-        int sentimentScore = 0;
+        String cacheKey = null;
+        ResultMessage result = null;
+        if (ANALYSIS_CACHE != null) {
+            cacheKey = cacheKey(task, originalText, sentimentMode);
+            result = ANALYSIS_CACHE.get(cacheKey);
+        }
 
-        for (String token : tokens) {
-            if (token == null || token.isEmpty()) {
-                continue;
+        String transformedText;
+        if (result != null) {
+            transformedText = TextEdits.apply(originalText, result.getTextEdits());
+            if (result.getTopN() != topN) {
+                result.setTopN(topN);
+                result.setTopWords(topWords(result.getWordFrequencies(), topN));
             }
-
-            freqMap.merge(token, 1, Integer::sum);
-
-            if (isPositiveWord(token)) {
-                positiveCount++;
-                sentimentScore++;
-            } else if (isNegativeWord(token)) {
-                negativeCount++;
-                sentimentScore--;
+        } else {
+            result = new ResultMessage();
+            transformedText = analyze(originalText, topN, sentimentMode, result);
+            if (cacheKey != null) {
+                ANALYSIS_CACHE.put(cacheKey, result);
             }
         }
 
-        List<ResultMessage.WordFrequency> topWords = freqMap.entrySet()
-                .stream()
-                .sorted(new Comparator<Map.Entry<String, Integer>>() {
-                    @Override
-                    public int compare(
-                            Map.Entry<String, Integer> o1,
-                            Map.Entry<String, Integer> o2
-                    ) {
-                        int c = Integer.compare(o2.getValue(), o1.getValue());
-                        if (c != 0) {
-                            return c;
-                        }
-                        return o1.getKey().compareTo(o2.getKey());
-                    }
-                })
-                .limit(10)
-                .map(entry -> new ResultMessage.WordFrequency(entry.getKey(), entry.getValue()))
-                .collect(Collectors.toList());
-
-        ResultMessage result = new ResultMessage();
         result.setJobId(task.getJobId());
         result.setSectionIndex(task.getSectionIndex());
         result.setTotalSections(task.getTotalSections());
-        result.setWordCount(wordCount);
-        result.setTopWords(topWords);
-        result.setSentimentScore(sentimentScore);
-        result.setPositiveWordCount(positiveCount);
-        result.setNegativeWordCount(negativeCount);
-        result.setTransformedSectionText(transformedText);
+        result.setSourceFileId(task.getSourceFileId());
+        result.setContinuationSeparator(task.getContinuationSeparator());
+        result.setContentHash(task.getContentHash());
+        result.setSentimentMode(sentimentMode);
+        result.setAnalysisVersion(ANALYSIS_VERSION);
+        if (!FULL_FREQUENCIES) {
+            result.setWordFrequencies(null);
+        }
+        // Исходник есть у агрегатора: отправляем только правки, если они короче текста
+        if (!task.isOriginalStored() || TextEdits.estimatedSize(result.getTextEdits()) >= transformedText.length()) {
+            result.setTextEdits(null);
+            result.setTransformedSectionText(transformedText);
+        }
 
         return result;
     }
 
-    private static String applyNameReplacements(String text) {
-        if (text == null || text.isEmpty()) {
-            return text;
+    // Заполняет в result всё, что зависит только от текста секции (это же попадает в кэш);
+    // возвращает текст после замен
+    private static String analyze(String originalText, int topN, SentimentMode sentimentMode, ResultMessage result) {
+        List<ResultMessage.TextEdit> edits = DICTIONARY_NAMES
+                ? NAME_REPLACER.findEdits(originalText)
+                : new ArrayList<>();
+        String transformedText = TextEdits.apply(originalText, edits);
+        List<ResultMessage.DetectedName> detectedNames = null;
+        if (HEURISTIC_NAMES) {
+            NameDetector.Detection detection = NAME_DETECTOR.get().detect(transformedText);
+            transformedText = detection.getText();
+            edits = TextEdits.compose(edits, detection.getEdits());
+            detectedNames = detection.getNames();
         }
-        if (NAME_REPLACEMENT_RULES.isEmpty()) {
-            return text;
+
+        SectionAnalyzer analyzer = ANALYZER.get();
+        analyzer.analyze(transformedText, sentimentMode.usesLexicon(), sentimentMode.usesClassifier());
+
+        result.setWordCount(analyzer.getWordCount());
+        result.setTopN(topN);
+        result.setTopWords(analyzer.topWords(topN));
+        // Для кэша таблица нужна всегда: по ней считается топ другого размера
+        if (FULL_FREQUENCIES || ANALYSIS_CACHE != null) {
+            result.setWordFrequencies(WordFrequencyTable.of(analyzer.getFrequencies()));
         }
-        String result = text;
-        for (NameReplacementRule rule : NAME_REPLACEMENT_RULES) {
-            Matcher matcher = rule.getPattern().matcher(result);
-            result = matcher.replaceAll(rule.getReplacement());
+        result.setSentimentScore(analyzer.getSentimentScore());
+        result.setPositiveWordCount(analyzer.getPositiveCount());
+        result.setNegativeWordCount(analyzer.getNegativeCount());
+        if (analyzer.isClassified()) {
+            List<ResultMessage.ClassProbability> classes = new ArrayList<>(analyzer.getClassCount());
+            for (int c = 0; c < analyzer.getClassCount(); c++) {
+                classes.add(new ResultMessage.ClassProbability(
+                        analyzer.getClassLabel(c), analyzer.getClassProbability(c)
+                ));
+            }
+            result.setClassProbabilities(classes);
         }
-        return result;
+        result.setTextEdits(edits);
+        result.setDetectedNames(detectedNames);
+        result.setSentences(SentenceSplitter.split(transformedText));
+
+        return transformedText;
     }
 
-    private static boolean isPositiveWord(String word) {
-        return word != null && POSITIVE_WORDS.contains(word);
+    private static String cacheKey(TaskMessage task, String originalText, SentimentMode sentimentMode) {
+        String hash = ContentHashes.isSha256Hex(task.getContentHash())
+                ? task.getContentHash()
+                : ContentHashes.sha256Hex(originalText);
+        return hash + ':' + ANALYSIS_VERSION + ':' + sentimentMode.ordinal();
     }
 
-    private static boolean isNegativeWord(String word) {
-        return word != null && NEGATIVE_WORDS.contains(word);
+    private static List<ResultMessage.WordFrequency> topWords(WordFrequencyTable table, int topN) {
+        WordCounter counter = new WordCounter(table.getWords().size());
+        table.addTo(counter);
+        return counter.topWords(topN);
     }
 
-    private static List<String> tokenize(String text) {
-        List<String> tokens = new ArrayList<>();
-        if (text == null || text.isEmpty()) {
-            return tokens;
+    private static void putWeights(Map<String, Double> target, List<String> words, double weight) {
+        if (words == null) {
+            return;
         }
-
-        String normalized = text.toLowerCase();
-        String[] parts = normalized.split("[^\\p{L}\\p{Nd}]+");
-
-        for (String part : parts) {
-            if (part != null) {
-                String trimmed = part.trim();
-                if (!trimmed.isEmpty()) {
-                    tokens.add(trimmed);
-                }
+        for (String word : words) {
+            if (word != null && !word.isBlank()) {
+                target.put(word, weight);
             }
         }
-
-        return tokens;
     }
 
     private static final class SentimentLexiconConfig {
 
         private List<String> positive;
         private List<String> negative;
+        // Слова и фразы с явным весом, например "not bad": 0.5
+        private Map<String, Double> weights;
+        // Множители: "very": 1.5
+        private Map<String, Double> intensifiers;
+        private List<String> negators;
+        private Integer negationScope;
+        private Double negationFactor;
 
         public SentimentLexiconConfig() {
         }
@@ -388,25 +542,45 @@ public class WorkerApp {
         public void setNegative(List<String> negative) {
             this.negative = negative;
         }
-    }
 
-    // Правило замены имени
-    private static final class NameReplacementRule {
+        public Map<String, Double> getWeights() {
+            return weights;
+        }
+
+        public void setWeights(Map<String, Double> weights) {
+            this.weights = weights;
+        }
+
+        public Map<String, Double> getIntensifiers() {
+            return intensifiers;
+        }
+
+        public void setIntensifiers(Map<String, Double> intensifiers) {
+            this.intensifiers = intensifiers;
+        }
+
+        public List<String> getNegators() {
+            return negators;
+        }
 
-        private final Pattern pattern;
-        private final String replacement;
+        public void setNegators(List<String> negators) {
+            this.negators = negators;
+        }
+
+        public Integer getNegationScope() {
+            return negationScope;
+        }
 
-        NameReplacementRule(Pattern pattern, String replacement) {
-            this.pattern = pattern;
-            this.replacement = replacement;
+        public void setNegationScope(Integer negationScope) {
+            this.negationScope = negationScope;
         }
 
-        Pattern getPattern() {
-            return pattern;
+        public Double getNegationFactor() {
+            return negationFactor;
         }
 
-        String getReplacement() {
-            return replacement;
+        public void setNegationFactor(Double negationFactor) {
+            this.negationFactor = negationFactor;
         }
     }
 }
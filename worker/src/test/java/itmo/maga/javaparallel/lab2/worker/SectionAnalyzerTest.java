@@ -0,0 +1,141 @@
+package itmo.maga.javaparallel.lab2.worker;
+
+import itmo.maga.javaparallel.lab2.common.WordCounter;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Однопроходный разбор SectionAnalyzer против прежнего toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+"):
+ * те же слова в том же порядке, те же частоты и число слов, и та же тональность, что у прежнего подсчёта
+ * (+1 за позитивное слово, -1 за негативное) при словаре без усилителей и отрицаний.
+ */
+class SectionAnalyzerTest {
+
+    private static final Map<String, Double> SENTIMENT = Map.of(
+            "good", 1.0,
+            "bad", -1.0,
+            "don", -1.0,
+            "well", 1.0,
+            "café", 1.0,
+            "хорошо", 1.0,
+            "плохо", -1.0,
+            "οδος", 1.0,
+            "istanbul", 1.0,
+            "straße", 1.0
+    );
+
+    private static final SentimentLexicon LEXICON = SentimentLexicon.compile(SENTIMENT, Map.of(), List.of(), 0, 1.0);
+
+    @Test
+    void apostrophesSplitWords() {
+        assertSameAsBaseline("don't won't it's O'Brien rock'n'roll");
+        assertSameAsBaseline("don’t rock’n’roll ‘quoted’ ʼokina doesnʼt");
+        assertSameAsBaseline("'good' ''bad'' good's bad' 'n' '");
+        assertWords("don't rock’n’roll", "don", "t", "rock", "n", "roll");
+        // U+02BC — буква (Lm), поэтому слово не разрывает
+        assertWords("doesnʼt", "doesnʼt");
+    }
+
+    @Test
+    void hyphensSplitWords() {
+        assertSameAsBaseline("well-known well\u2010known well\u2011known self—made 1990–2000 -good- --bad-- \u2015");
+        assertSameAsBaseline("e-mail E-MAIL co-op re-enter x-ray-x - — – \u2010");
+        assertWords("well-known — good", "well", "known", "good");
+    }
+
+    @Test
+    void unicodeLetters() {
+        assertSameAsBaseline("Café CAFÉ café Cafe\u0301 naïve Ærøskøbing");
+        assertSameAsBaseline("Хорошо ХОРОШО хорошо, плохо! Ёжик ёлка");
+        // Σ в конце слова переходит в ς, в середине — в σ
+        assertSameAsBaseline("ΟΔΟΣ ΟΔΟΣ. ΣΟΦΙΑ ΟΔΟΣΟΔΟΣ Σ ΑΣ-ΑΣ «ΟΔΟΣ»");
+        // İ в нижнем регистре — i и U+0307, который не буква и разрывает слово
+        assertSameAsBaseline("İstanbul ISTANBUL istanbul İ İİ xİy");
+        assertSameAsBaseline("STRASSE Straße ß ẞ ﬁne ŉ");
+        assertSameAsBaseline("日本語 テキスト 한국어 عربي עברית ไทย");
+        assertSameAsBaseline("𝐀𝐁𝐂 𝐀 x𝐀y 😀good😀 \uD835");
+        assertWords("Café ΟΔΟΣ", "café", "οδος");
+    }
+
+    @Test
+    void digitsAndSeparators() {
+        assertSameAsBaseline("route66 4x4 ٣٤ 123 1,000.5 x² ½ Ⅻ");
+        assertSameAsBaseline("good_bad good\u00A0bad good bad\tgood\r\nbad\u200Bgood");
+        assertSameAsBaseline("");
+        assertSameAsBaseline("   ,.;!?  ");
+    }
+
+    @Test
+    void matchesBaselineOnRandomTexts() {
+        String[] pieces = {
+                "good", "Bad", "WELL", "don", "t", "'", "’", "-", "\u2010", "—", " ", " ", ", ", ".",
+                "café", "É", "\u0301", "хорошо", "ПЛОХО", "ΟΔΟΣ", "Σ", "İ", "ß", "ﬁ", "𝐀", "日本",
+                "42", "٣", "_", "\n", "\u00A0"
+        };
+        Random random = new Random(20240517L);
+        for (int iteration = 0; iteration < 500; iteration++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(200);
+            while (text.length() < length) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            assertSameAsBaseline(text.toString());
+        }
+    }
+
+    private static void assertSameAsBaseline(String text) {
+        // Прежний разбор и подсчёт тональности
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        int words = 0;
+        int positive = 0;
+        int negative = 0;
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            expected.merge(word, 1, Integer::sum);
+            words++;
+            double weight = SENTIMENT.getOrDefault(word, 0.0);
+            if (weight > 0) {
+                positive++;
+            } else if (weight < 0) {
+                negative++;
+            }
+        }
+
+        SectionAnalyzer analyzer = new SectionAnalyzer(LEXICON, null);
+        analyzer.analyze(text, true, false);
+
+        String context = "text: " + text;
+        assertEquals(expected.toString(), frequencies(analyzer.getFrequencies()).toString(), context);
+        assertEquals(words, analyzer.getWordCount(), context);
+        assertEquals(positive, analyzer.getPositiveCount(), context);
+        assertEquals(negative, analyzer.getNegativeCount(), context);
+        assertEquals(positive - negative, analyzer.getSentimentScore(), 1e-9, context);
+    }
+
+    private static void assertWords(String text, String... words) {
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        for (String word : words) {
+            expected.merge(word, 1, Integer::sum);
+        }
+        SectionAnalyzer analyzer = new SectionAnalyzer(LEXICON, null);
+        analyzer.analyze(text, false, false);
+        assertEquals(expected.toString(), frequencies(analyzer.getFrequencies()).toString(), "text: " + text);
+    }
+
+    private static Map<String, Integer> frequencies(WordCounter counter) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < counter.size(); i++) {
+            result.put(counter.wordAt(i), counter.countAt(i));
+        }
+        return result;
+    }
+}